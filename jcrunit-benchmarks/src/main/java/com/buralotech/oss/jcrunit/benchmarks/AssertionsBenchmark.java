@@ -0,0 +1,156 @@
+/*
+ * Copyright 2025 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.buralotech.oss.jcrunit.benchmarks;
+
+import com.buralotech.oss.jcrunit.JCRAssertions;
+import com.buralotech.oss.jcrunit.JCRRepositoryTester;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.jcr.RepositoryException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of each of the {@link JCRAssertions} methods against a repository populated with 1,000 nodes.
+ *
+ * @author <a href="mailto:bmatthews68@gmail.com">Brian Matthews</a>
+ * @since 5.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class AssertionsBenchmark {
+
+    /**
+     * The path of a node imported from the fixture.
+     */
+    private static final String NODE = Fixtures.ROOT + "/g5/n500";
+
+    /**
+     * The repository helper.
+     */
+    private JCRRepositoryTester helper;
+
+    /**
+     * Launch the repository and populate it with a folder, a file and the nodes from the fixture.
+     *
+     * @throws IOException         If there was a problem launching or populating the repository.
+     * @throws RepositoryException If there was a problem launching or populating the repository.
+     */
+    @Setup(Level.Trial)
+    public void launch() throws IOException, RepositoryException {
+        helper = Fixtures.createHelper("default")
+                .importFromXML(new ByteArrayInputStream(Fixtures.documentView(1000)))
+                .tree()
+                .folder("folder", folder -> folder.file("file.txt", "text/plain", "UTF-8", "Hello World"))
+                .create();
+    }
+
+    /**
+     * Shut down the repository.
+     *
+     * @throws RepositoryException If there was a problem shutting down the repository.
+     */
+    @TearDown(Level.Trial)
+    public void close() throws RepositoryException {
+        helper.close();
+    }
+
+    /**
+     * Assert that a node exists.
+     *
+     * @return The assertions.
+     */
+    @Benchmark
+    public JCRAssertions pathExists() {
+        return helper.assertThat().pathExists(NODE);
+    }
+
+    /**
+     * Assert that a node does not exist.
+     *
+     * @return The assertions.
+     */
+    @Benchmark
+    public JCRAssertions pathDoesNotExist() {
+        return helper.assertThat().pathDoesNotExist(NODE + "/missing");
+    }
+
+    /**
+     * Assert that a node is a file.
+     *
+     * @return The assertions.
+     */
+    @Benchmark
+    public JCRAssertions isFile() {
+        return helper.assertThat().isFile("/folder/file.txt");
+    }
+
+    /**
+     * Assert that a node is a folder.
+     *
+     * @return The assertions.
+     */
+    @Benchmark
+    public JCRAssertions isFolder() {
+        return helper.assertThat().isFolder("/folder");
+    }
+
+    /**
+     * Assert that a node has a property.
+     *
+     * @return The assertions.
+     */
+    @Benchmark
+    public JCRAssertions hasProperty() {
+        return helper.assertThat().hasProperty(NODE, "title");
+    }
+
+    /**
+     * Assert that a node does not have a property.
+     *
+     * @return The assertions.
+     */
+    @Benchmark
+    public JCRAssertions hasNoProperty() {
+        return helper.assertThat().hasNoProperty(NODE, "missing");
+    }
+
+    /**
+     * Assert the value of a string property.
+     *
+     * @return The assertions.
+     */
+    @Benchmark
+    public JCRAssertions hasStringPropertyValue() {
+        return helper.assertThat().hasPropertyValue(NODE, "title", "Node 500");
+    }
+}
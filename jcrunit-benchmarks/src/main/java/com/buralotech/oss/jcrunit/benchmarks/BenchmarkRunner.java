@@ -0,0 +1,62 @@
+/*
+ * Copyright 2025 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.buralotech.oss.jcrunit.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks accepting the standard JMH command line options. Unless overridden on the command line the
+ * results are written as JSON to {@code jmh-result.json} so that they can be compared between runs.
+ *
+ * @author <a href="mailto:bmatthews68@gmail.com">Brian Matthews</a>
+ * @since 5.0
+ */
+public final class BenchmarkRunner {
+
+    /**
+     * The file the results are written to unless overridden with {@code -rff}.
+     */
+    private static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+    /**
+     * Prevent instantiation.
+     */
+    private BenchmarkRunner() {
+    }
+
+    /**
+     * Run the benchmarks.
+     *
+     * @param args The JMH command line options.
+     * @throws CommandLineOptionException If the command line options are invalid.
+     * @throws RunnerException            If the benchmarks could not be run.
+     */
+    public static void main(final String[] args) throws CommandLineOptionException, RunnerException {
+        final CommandLineOptions commandLine = new CommandLineOptions(args);
+        final Options options = new OptionsBuilder()
+                .parent(commandLine)
+                .resultFormat(commandLine.getResultFormat().orElse(ResultFormatType.JSON))
+                .result(commandLine.getResult().orElse(DEFAULT_RESULT_FILE))
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2025 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.buralotech.oss.jcrunit.benchmarks;
+
+import com.buralotech.oss.jcrunit.JCRPurgeScope;
+import com.buralotech.oss.jcrunit.JCRRepositoryTester;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.jcr.RepositoryException;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of {@link JCRRepositoryTester#createFile} by payload size for the in-memory and file-backed blob
+ * stores. The files created by each invocation are purged before the next invocation.
+ *
+ * @author <a href="mailto:bmatthews68@gmail.com">Brian Matthews</a>
+ * @since 5.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class CreateFileBenchmark {
+
+    /**
+     * The size of the payload in bytes.
+     */
+    @Param({"1024", "1048576", "16777216"})
+    public int size;
+
+    /**
+     * The repository configuration.
+     */
+    @Param({"default", "file"})
+    public String configuration;
+
+    /**
+     * The payload.
+     */
+    private byte[] data;
+
+    /**
+     * The repository helper.
+     */
+    private JCRRepositoryTester helper;
+
+    /**
+     * Generate the payload and launch the repository.
+     *
+     * @throws IOException         If there was a problem launching the repository.
+     * @throws RepositoryException If there was a problem launching the repository.
+     */
+    @Setup(Level.Trial)
+    public void launch() throws IOException, RepositoryException {
+        data = new byte[size];
+        new Random(size).nextBytes(data);
+        helper = Fixtures.createHelper(configuration);
+    }
+
+    /**
+     * Remove the file created by the invocation.
+     *
+     * @throws RepositoryException If there was a problem purging the repository.
+     */
+    @TearDown(Level.Invocation)
+    public void purge() throws RepositoryException {
+        helper.purge(JCRPurgeScope.TEST);
+    }
+
+    /**
+     * Shut down the repository.
+     *
+     * @throws RepositoryException If there was a problem shutting down the repository.
+     */
+    @TearDown(Level.Trial)
+    public void close() throws RepositoryException {
+        helper.close();
+    }
+
+    /**
+     * Create a file.
+     *
+     * @return The repository helper.
+     * @throws IOException         If there was a problem reading the payload.
+     * @throws RepositoryException If there was a problem creating the file.
+     */
+    @Benchmark
+    public JCRRepositoryTester createFile() throws IOException, RepositoryException {
+        return helper.createFile("/", "data.bin", "application/octet-stream", "binary", data);
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2025 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.buralotech.oss.jcrunit.benchmarks;
+
+import com.buralotech.oss.jcrunit.JCRRepositoryTester;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.jcr.RepositoryException;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of launching and shutting down a repository with {@link JCRRepositoryTester#createHelper}.
+ *
+ * @author <a href="mailto:bmatthews68@gmail.com">Brian Matthews</a>
+ * @since 5.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class CreateHelperBenchmark {
+
+    /**
+     * The repository configuration.
+     */
+    @Param({"default", "pooled", "minimal"})
+    public String configuration;
+
+    /**
+     * Launch a repository and close it again.
+     *
+     * @return The closed repository helper.
+     * @throws IOException         If there was a problem launching the repository.
+     * @throws RepositoryException If there was a problem launching or closing the repository.
+     */
+    @Benchmark
+    public JCRRepositoryTester createHelper() throws IOException, RepositoryException {
+        try (JCRRepositoryTester helper = Fixtures.createHelper(configuration)) {
+            return helper;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2025 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.buralotech.oss.jcrunit.benchmarks;
+
+import com.buralotech.oss.jcrunit.JCRBlobStore;
+import com.buralotech.oss.jcrunit.JCRRepositoryConfiguration;
+import com.buralotech.oss.jcrunit.JCRRepositoryProfile;
+import com.buralotech.oss.jcrunit.JCRRepositoryTester;
+
+import javax.jcr.RepositoryException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Generates the fixtures and repository configurations used by the benchmarks.
+ *
+ * @author <a href="mailto:bmatthews68@gmail.com">Brian Matthews</a>
+ * @since 5.0
+ */
+final class Fixtures {
+
+    /**
+     * The maximum number of children below each node in a generated document.
+     */
+    private static final int FAN_OUT = 100;
+
+    /**
+     * The path of the folder that holds the fixture content.
+     */
+    static final String ROOT = "/bench";
+
+    /**
+     * Prevent instantiation.
+     */
+    private Fixtures() {
+    }
+
+    /**
+     * A repository configured with the default options.
+     */
+    @JCRRepositoryConfiguration
+    private static final class Default {
+    }
+
+    /**
+     * A repository acquired from the shared pool.
+     */
+    @JCRRepositoryConfiguration(pooled = true)
+    private static final class Pooled {
+    }
+
+    /**
+     * A repository that only installs the minimal set of Oak features.
+     */
+    @JCRRepositoryConfiguration(profile = JCRRepositoryProfile.MINIMAL)
+    private static final class Minimal {
+    }
+
+    /**
+     * A repository that stores binaries in a file-backed blob store.
+     */
+    @JCRRepositoryConfiguration(blobStore = JCRBlobStore.FILE)
+    private static final class FileBlobs {
+    }
+
+    /**
+     * Create a repository helper.
+     *
+     * @param configuration The name of the configuration: {@code default}, {@code pooled}, {@code minimal} or
+     *                      {@code file}.
+     * @return The repository helper.
+     * @throws IOException         If there was a problem creating the repository helper.
+     * @throws RepositoryException If there was a problem creating the repository helper.
+     */
+    static JCRRepositoryTester createHelper(final String configuration) throws IOException, RepositoryException {
+        final Class<?> holder = switch (configuration) {
+            case "default" -> Default.class;
+            case "pooled" -> Pooled.class;
+            case "minimal" -> Minimal.class;
+            case "file" -> FileBlobs.class;
+            default -> throw new IllegalArgumentException("Unknown configuration: " + configuration);
+        };
+        return JCRRepositoryTester.createHelper(holder.getAnnotation(JCRRepositoryConfiguration.class));
+    }
+
+    /**
+     * Generate a document view XML document containing a tree of {@code nt:unstructured} nodes below
+     * {@link #ROOT}. Each node has a {@code title} property.
+     *
+     * @param nodes The number of nodes below the root of the document.
+     * @return The XML document.
+     */
+    static byte[] documentView(final int nodes) {
+        final StringBuilder builder = new StringBuilder(nodes * 64);
+        builder.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>")
+                .append("<bench xmlns:jcr=\"http://www.jcp.org/jcr/1.0\" jcr:primaryType=\"nt:unstructured\">");
+        for (int group = 0; group * FAN_OUT < nodes; group++) {
+            builder.append("<g").append(group).append(" jcr:primaryType=\"nt:unstructured\">");
+            for (int node = group * FAN_OUT; node < Math.min(nodes, (group + 1) * FAN_OUT); node++) {
+                builder.append("<n").append(node)
+                        .append(" jcr:primaryType=\"nt:unstructured\" title=\"Node ").append(node)
+                        .append("\"/>");
+            }
+            builder.append("</g").append(group).append('>');
+        }
+        builder.append("</bench>");
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2025 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.buralotech.oss.jcrunit.benchmarks;
+
+import com.buralotech.oss.jcrunit.JCRRepositoryTester;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.jcr.RepositoryException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of {@link JCRRepositoryTester#importFromXML} by document size. Each invocation imports the
+ * document into an empty repository.
+ *
+ * @author <a href="mailto:bmatthews68@gmail.com">Brian Matthews</a>
+ * @since 5.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class ImportFromXMLBenchmark {
+
+    /**
+     * The number of nodes in the document.
+     */
+    @Param({"100", "1000", "10000"})
+    public int nodes;
+
+    /**
+     * The document view XML document.
+     */
+    private byte[] document;
+
+    /**
+     * The repository helper.
+     */
+    private JCRRepositoryTester helper;
+
+    /**
+     * Generate the document.
+     */
+    @Setup(Level.Trial)
+    public void generate() {
+        document = Fixtures.documentView(nodes);
+    }
+
+    /**
+     * Launch an empty repository from the pool.
+     *
+     * @throws IOException         If there was a problem launching the repository.
+     * @throws RepositoryException If there was a problem launching the repository.
+     */
+    @Setup(Level.Invocation)
+    public void launch() throws IOException, RepositoryException {
+        helper = Fixtures.createHelper("pooled");
+    }
+
+    /**
+     * Return the repository to the pool.
+     *
+     * @throws RepositoryException If there was a problem resetting the repository.
+     */
+    @TearDown(Level.Invocation)
+    public void close() throws RepositoryException {
+        helper.close();
+    }
+
+    /**
+     * Import the document.
+     *
+     * @return The repository helper.
+     * @throws IOException         If there was a problem reading the document.
+     * @throws RepositoryException If there was a problem importing the document.
+     */
+    @Benchmark
+    public JCRRepositoryTester importFromXML() throws IOException, RepositoryException {
+        return helper.importFromXML(new ByteArrayInputStream(document));
+    }
+}
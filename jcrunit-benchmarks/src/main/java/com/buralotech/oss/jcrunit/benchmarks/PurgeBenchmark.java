@@ -0,0 +1,112 @@
+/*
+ * Copyright 2025 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.buralotech.oss.jcrunit.benchmarks;
+
+import com.buralotech.oss.jcrunit.JCRRepositoryTester;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.jcr.RepositoryException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of {@link JCRRepositoryTester#purge()} by the size of the tree being purged. The tree is
+ * imported before each invocation.
+ *
+ * @author <a href="mailto:bmatthews68@gmail.com">Brian Matthews</a>
+ * @since 5.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class PurgeBenchmark {
+
+    /**
+     * The number of nodes in the tree.
+     */
+    @Param({"10", "1000", "10000"})
+    public int nodes;
+
+    /**
+     * The document view XML document used to populate the repository.
+     */
+    private byte[] document;
+
+    /**
+     * The repository helper.
+     */
+    private JCRRepositoryTester helper;
+
+    /**
+     * Generate the document and launch the repository.
+     *
+     * @throws IOException         If there was a problem launching the repository.
+     * @throws RepositoryException If there was a problem launching the repository.
+     */
+    @Setup(Level.Trial)
+    public void launch() throws IOException, RepositoryException {
+        document = Fixtures.documentView(nodes);
+        helper = Fixtures.createHelper("default");
+    }
+
+    /**
+     * Populate the repository.
+     *
+     * @throws IOException         If there was a problem reading the document.
+     * @throws RepositoryException If there was a problem importing the document.
+     */
+    @Setup(Level.Invocation)
+    public void populate() throws IOException, RepositoryException {
+        helper.importFromXML(new ByteArrayInputStream(document));
+    }
+
+    /**
+     * Shut down the repository.
+     *
+     * @throws RepositoryException If there was a problem shutting down the repository.
+     */
+    @TearDown(Level.Trial)
+    public void close() throws RepositoryException {
+        helper.close();
+    }
+
+    /**
+     * Purge the repository.
+     *
+     * @return The repository helper.
+     * @throws RepositoryException If there was a problem purging the repository.
+     */
+    @Benchmark
+    public JCRRepositoryTester purge() throws RepositoryException {
+        return helper.purge();
+    }
+}
@@ -0,0 +1,389 @@
+/*
+ * Copyright 2025 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.buralotech.oss.jcrunit;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import javax.jcr.InvalidSerializedDataException;
+import javax.jcr.ReferentialIntegrityException;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.xml.XMLConstants;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Set;
+import java.util.function.LongConsumer;
+
+import static javax.jcr.ImportUUIDBehavior.IMPORT_UUID_COLLISION_THROW;
+
+/**
+ * Streams a system view or document view XML document into the repository, saving the session each time a batch of
+ * nodes has been imported. The document is parsed with a SAX parser and fed to the content handler returned by
+ * {@link Session#getImportContentHandler(String, int)} so neither the document nor the imported tree is ever held in
+ * memory in full, and the transient space normally holds no more than one batch of nodes.
+ * <p>
+ * The session is only saved when a node element ends, at which point the node and all its descendants have been
+ * imported. If a save fails the referential integrity check, because the batch references a node that appears further
+ * down the document, the changes are kept in the transient space and the save is retried at the next batch boundary.
+ * Once a user or group is encountered no more intermediate saves are made, because Oak's user importer only resolves
+ * group members and impersonators at the end of the document.
+ *
+ * @author <a href="mailto:bmatthews68@gmail.com">Brian Matthews</a>
+ * @since 5.0
+ */
+final class ChunkedImportHandler implements ContentHandler {
+
+    /**
+     * The namespace URI of the system view elements.
+     */
+    private static final String SV_URI = "http://www.jcp.org/jcr/sv/1.0";
+
+    /**
+     * The local name of the system view node element.
+     */
+    private static final String SV_NODE = "node";
+
+    /**
+     * The local name of the system view property element.
+     */
+    private static final String SV_PROPERTY = "property";
+
+    /**
+     * The local name of the system view value element.
+     */
+    private static final String SV_VALUE = "value";
+
+    /**
+     * The local name of the system view name attribute.
+     */
+    private static final String SV_NAME = "name";
+
+    /**
+     * The namespace URI of the JCR names.
+     */
+    private static final String JCR_URI = "http://www.jcp.org/jcr/1.0";
+
+    /**
+     * The name of the primary type property.
+     */
+    private static final String JCR_PRIMARY_TYPE = "jcr:primaryType";
+
+    /**
+     * The name of the mixin types property.
+     */
+    private static final String JCR_MIXIN_TYPES = "jcr:mixinTypes";
+
+    /**
+     * The node types whose content is imported by Oak's user importer.
+     */
+    private static final Set<String> AUTHORIZABLE_TYPES = Set.of("rep:User", "rep:SystemUser", "rep:Group");
+
+    /**
+     * The session the document is imported with.
+     */
+    private final Session session;
+
+    /**
+     * The content handler provided by the session.
+     */
+    private final ContentHandler delegate;
+
+    /**
+     * The number of nodes imported between saves.
+     */
+    private final int batchSize;
+
+    /**
+     * Receives the number of nodes imported each time the session is saved.
+     */
+    private final LongConsumer progress;
+
+    /**
+     * Indicates if the document is in system view format or {@code null} before the first element is encountered.
+     */
+    private Boolean systemView;
+
+    /**
+     * The number of nodes imported so far.
+     */
+    private long imported;
+
+    /**
+     * The number of nodes imported when the session was last saved.
+     */
+    private long saved;
+
+    /**
+     * Indicates if the document contains users or groups, in which case the session is only saved at the end.
+     */
+    private boolean authorizables;
+
+    /**
+     * Indicates if the system view property being imported is the primary or mixin type.
+     */
+    private boolean typeProperty;
+
+    /**
+     * Accumulates the text of the system view type value being imported or {@code null} outside such a value element.
+     */
+    private StringBuilder value;
+
+    /**
+     * Initialise the import handler.
+     *
+     * @param session   The session the document is imported with.
+     * @param parent    The path of the node below which the document is imported.
+     * @param batchSize The number of nodes imported between saves.
+     * @param progress  Receives the number of nodes imported each time the session is saved.
+     * @throws RepositoryException If the session could not provide a content handler.
+     */
+    private ChunkedImportHandler(final Session session,
+                                 final String parent,
+                                 final int batchSize,
+                                 final LongConsumer progress) throws RepositoryException {
+        this.session = session;
+        this.delegate = session.getImportContentHandler(parent, IMPORT_UUID_COLLISION_THROW);
+        this.batchSize = batchSize;
+        this.progress = progress;
+    }
+
+    /**
+     * Import an XML document, saving the session each time a batch of nodes has been imported and when the document
+     * is complete.
+     *
+     * @param session     The session the document is imported with.
+     * @param parent      The path of the node below which the document is imported.
+     * @param inputStream The input stream from which the XML document is read.
+     * @param batchSize   The number of nodes imported between saves.
+     * @param progress    Receives the number of nodes imported each time the session is saved.
+     * @return The number of nodes imported.
+     * @throws IOException         If there was a problem reading the XML document.
+     * @throws RepositoryException If there was a problem importing the XML document.
+     */
+    static long importXML(final Session session,
+                          final String parent,
+                          final InputStream inputStream,
+                          final int batchSize,
+                          final LongConsumer progress) throws IOException, RepositoryException {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        final ChunkedImportHandler handler = new ChunkedImportHandler(session, parent, batchSize, progress);
+        try {
+            final XMLReader reader = createReader();
+            reader.setContentHandler(handler);
+            reader.parse(new InputSource(inputStream));
+        } catch (final ParserConfigurationException e) {
+            throw new RepositoryException(e);
+        } catch (final SAXException e) {
+            if (e.getException() instanceof RepositoryException repositoryException) {
+                throw repositoryException;
+            }
+            throw new InvalidSerializedDataException(e.getMessage(), e);
+        }
+        return handler.imported;
+    }
+
+    /**
+     * Create a namespace aware SAX parser with secure processing enabled.
+     *
+     * @return The SAX parser.
+     * @throws ParserConfigurationException If the SAX parser could not be configured.
+     * @throws SAXException                 If the SAX parser could not be created.
+     */
+    static XMLReader createReader() throws ParserConfigurationException, SAXException {
+        final SAXParserFactory factory = SAXParserFactory.newInstance();
+        factory.setNamespaceAware(true);
+        factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+        return factory.newSAXParser().getXMLReader();
+    }
+
+    @Override
+    public void setDocumentLocator(final Locator locator) {
+        delegate.setDocumentLocator(locator);
+    }
+
+    @Override
+    public void startDocument() throws SAXException {
+        delegate.startDocument();
+    }
+
+    @Override
+    public void endDocument() throws SAXException {
+        delegate.endDocument();
+        final boolean pending;
+        try {
+            pending = imported > saved || session.hasPendingChanges();
+        } catch (final RepositoryException e) {
+            throw new SAXException(e);
+        }
+        if (pending) {
+            save();
+        }
+    }
+
+    @Override
+    public void startPrefixMapping(final String prefix,
+                                   final String uri) throws SAXException {
+        delegate.startPrefixMapping(prefix, uri);
+    }
+
+    @Override
+    public void endPrefixMapping(final String prefix) throws SAXException {
+        delegate.endPrefixMapping(prefix);
+    }
+
+    @Override
+    public void startElement(final String uri,
+                             final String localName,
+                             final String qName,
+                             final Attributes attributes) throws SAXException {
+        if (systemView == null) {
+            systemView = SV_URI.equals(uri) && SV_NODE.equals(localName);
+        }
+        if (!systemView) {
+            for (int i = 0; i < attributes.getLength(); i++) {
+                if (JCR_URI.equals(attributes.getURI(i)) && isTypeProperty("jcr:" + attributes.getLocalName(i))) {
+                    for (final String token : attributes.getValue(i).split(" ")) {
+                        scan(token);
+                    }
+                }
+            }
+        } else if (SV_URI.equals(uri) && SV_PROPERTY.equals(localName)) {
+            typeProperty = isTypeProperty(attributes.getValue(SV_URI, SV_NAME));
+        } else if (SV_URI.equals(uri) && SV_VALUE.equals(localName) && typeProperty) {
+            value = new StringBuilder();
+        }
+        delegate.startElement(uri, localName, qName, attributes);
+    }
+
+    @Override
+    public void endElement(final String uri,
+                           final String localName,
+                           final String qName) throws SAXException {
+        delegate.endElement(uri, localName, qName);
+        if (systemView && SV_URI.equals(uri) && SV_VALUE.equals(localName)) {
+            if (value != null) {
+                scan(value.toString());
+                value = null;
+            }
+        } else if (systemView && SV_URI.equals(uri) && SV_PROPERTY.equals(localName)) {
+            typeProperty = false;
+        } else if (!systemView || SV_URI.equals(uri) && SV_NODE.equals(localName)) {
+            imported++;
+            if (imported - saved >= batchSize && !authorizables) {
+                trySave();
+            }
+        }
+    }
+
+    @Override
+    public void characters(final char[] ch,
+                           final int start,
+                           final int length) throws SAXException {
+        if (value != null) {
+            value.append(ch, start, length);
+        }
+        delegate.characters(ch, start, length);
+    }
+
+    @Override
+    public void ignorableWhitespace(final char[] ch,
+                                    final int start,
+                                    final int length) throws SAXException {
+        delegate.ignorableWhitespace(ch, start, length);
+    }
+
+    @Override
+    public void processingInstruction(final String target,
+                                      final String data) throws SAXException {
+        delegate.processingInstruction(target, data);
+    }
+
+    @Override
+    public void skippedEntity(final String name) throws SAXException {
+        delegate.skippedEntity(name);
+    }
+
+    /**
+     * Check if a property holds the primary or mixin types of a node.
+     *
+     * @param name The name of the property.
+     * @return {@code true} if the property holds node types. Otherwise, {@code false}.
+     */
+    private static boolean isTypeProperty(final String name) {
+        return JCR_PRIMARY_TYPE.equals(name) || JCR_MIXIN_TYPES.equals(name);
+    }
+
+    /**
+     * Record whether a node type is imported by Oak's user importer.
+     *
+     * @param type The node type.
+     */
+    private void scan(final String type) {
+        authorizables |= AUTHORIZABLE_TYPES.contains(type);
+    }
+
+    /**
+     * Save the session at a batch boundary. If the save fails the referential integrity check the changes are kept
+     * in the transient space, to be saved with a later batch once the referenced nodes have been imported.
+     *
+     * @throws SAXException If the session could not be saved for any other reason.
+     */
+    private void trySave() throws SAXException {
+        try {
+            session.save();
+        } catch (final ReferentialIntegrityException e) {
+            return;
+        } catch (final RepositoryException e) {
+            throw new SAXException(e);
+        }
+        saved();
+    }
+
+    /**
+     * Save the session and report the progress.
+     *
+     * @throws SAXException If the session could not be saved.
+     */
+    private void save() throws SAXException {
+        try {
+            session.save();
+        } catch (final RepositoryException e) {
+            throw new SAXException(e);
+        }
+        saved();
+    }
+
+    /**
+     * Record that the nodes imported so far have been saved and report the progress.
+     */
+    private void saved() {
+        saved = imported;
+        if (progress != null) {
+            progress.accept(imported);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2025 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.buralotech.oss.jcrunit;
+
+import org.apache.jackrabbit.oak.plugins.document.DocumentNodeStore;
+import org.apache.jackrabbit.oak.plugins.document.DocumentNodeStoreBuilder;
+import org.apache.jackrabbit.oak.plugins.document.LeaseCheckMode;
+import org.apache.jackrabbit.oak.plugins.document.memory.MemoryDocumentStore;
+import org.apache.jackrabbit.oak.spi.blob.BlobStore;
+
+/**
+ * Creates document node stores backed by in-memory document stores.
+ *
+ * @author <a href="mailto:bmatthews68@gmail.com">Brian Matthews</a>
+ * @since 5.0
+ */
+final class DocumentNodeStores {
+
+    /**
+     * Prevent instantiation.
+     */
+    private DocumentNodeStores() {
+    }
+
+    /**
+     * Create a document node store backed by a new in-memory document store. Background operations run synchronously
+     * and lease checks are disabled because the store is only used by a single cluster node.
+     *
+     * @param blobStore The blob store used for binaries or {@code null} to use an in-memory blob store.
+     * @return The node store.
+     */
+    static NodeStores.Handle create(final BlobStore blobStore) {
+        final DocumentNodeStoreBuilder<?> builder = DocumentNodeStoreBuilder.newDocumentNodeStoreBuilder()
+                .setDocumentStore(new MemoryDocumentStore())
+                .setLeaseCheckMode(LeaseCheckMode.DISABLED)
+                .setAsyncDelay(0);
+        if (blobStore != null) {
+            builder.setBlobStore(blobStore);
+        }
+        final DocumentNodeStore nodeStore = builder.build();
+        return new NodeStores.Handle(nodeStore, nodeStore::dispose);
+    }
+}
@@ -0,0 +1,388 @@
+/*
+ * Copyright 2025 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buralotech.oss.jcrunit;
+
+import org.apache.jackrabbit.api.JackrabbitRepository;
+import org.apache.jackrabbit.oak.InitialContent;
+import org.apache.jackrabbit.oak.Oak;
+import org.apache.jackrabbit.oak.api.CommitFailedException;
+import org.apache.jackrabbit.oak.api.PropertyState;
+import org.apache.jackrabbit.oak.jcr.Jcr;
+import org.apache.jackrabbit.oak.plugins.commit.ConflictValidatorProvider;
+import org.apache.jackrabbit.oak.plugins.commit.JcrConflictHandler;
+import org.apache.jackrabbit.oak.plugins.memory.EmptyNodeState;
+import org.apache.jackrabbit.oak.plugins.name.NameValidatorProvider;
+import org.apache.jackrabbit.oak.plugins.name.NamespaceEditorProvider;
+import org.apache.jackrabbit.oak.plugins.nodetype.TypeEditorProvider;
+import org.apache.jackrabbit.oak.spi.commit.CommitInfo;
+import org.apache.jackrabbit.oak.spi.commit.EmptyHook;
+import org.apache.jackrabbit.oak.spi.security.OpenSecurityProvider;
+import org.apache.jackrabbit.oak.spi.state.ChildNodeEntry;
+import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
+import org.apache.jackrabbit.oak.spi.state.NodeState;
+import org.apache.jackrabbit.oak.spi.state.NodeStore;
+import org.apache.jackrabbit.oak.spi.whiteboard.DefaultWhiteboard;
+import org.apache.jackrabbit.oak.spi.whiteboard.Whiteboard;
+
+import javax.jcr.Repository;
+import javax.jcr.RepositoryException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An embedded Jackrabbit Oak repository together with the node store that backs it. The root node state is captured
+ * immediately after the repository has been bootstrapped so that the repository can later be returned to that
+ * baseline without having to be rebuilt.
+ *
+ * @author <a href="mailto:bmatthews68@gmail.com">Brian Matthews</a>
+ * @since 5.0
+ */
+final class EmbeddedRepository {
+
+    /**
+     * The number of threads kept alive in the executor used for Oak's background tasks.
+     */
+    private static final int EXECUTOR_THREADS = 2;
+
+    /**
+     * How long to wait for Oak's background tasks to complete when the repository is disposed.
+     */
+    private static final long EXECUTOR_SHUTDOWN_TIMEOUT = 10;
+
+    /**
+     * Used to number the threads created for Oak's background tasks.
+     */
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    /**
+     * The options used to create the repository.
+     */
+    private final RepositoryOptions options;
+
+    /**
+     * The node store that holds the repository content.
+     */
+    private final NodeStore nodeStore;
+
+    /**
+     * Releases the resources held by the node store.
+     */
+    private final Runnable nodeStoreDisposer;
+
+    /**
+     * The directory holding the binaries or {@code null} if they are held by the node store.
+     */
+    private final FileBlobNodeStore.BlobDirectory blobs;
+
+    /**
+     * {@code true} if the repository was bootstrapped from an empty root so the baseline references no binaries.
+     */
+    private final boolean bootstrapped;
+
+    /**
+     * The JCR repository.
+     */
+    private final Repository repository;
+
+    /**
+     * The root node state captured after the repository was bootstrapped.
+     */
+    private final NodeState baseline;
+
+    /**
+     * The executor used to run Oak's background tasks such as observation and asynchronous indexing.
+     */
+    private final ScheduledExecutorService executor;
+
+    /**
+     * Counts the writes made to the repository on behalf of the attached {@link RepositoryMetrics}.
+     */
+    private final MetricsEditorProvider metricsEditorProvider;
+
+    /**
+     * Initialise the embedded repository capturing the current root node state as the baseline.
+     *
+     * @param options               The options used to create the repository.
+     * @param nodeStore             The node store.
+     * @param nodeStoreDisposer     Releases the resources held by the node store.
+     * @param blobs                 The directory holding the binaries or {@code null} if they are held by the node
+     *                              store.
+     * @param bootstrapped          {@code true} if the repository was bootstrapped from an empty root.
+     * @param repository            The JCR repository.
+     * @param executor              The executor used to run Oak's background tasks.
+     * @param metricsEditorProvider Counts the writes made to the repository.
+     */
+    private EmbeddedRepository(final RepositoryOptions options,
+                               final NodeStore nodeStore,
+                               final Runnable nodeStoreDisposer,
+                               final FileBlobNodeStore.BlobDirectory blobs,
+                               final boolean bootstrapped,
+                               final Repository repository,
+                               final ScheduledExecutorService executor,
+                               final MetricsEditorProvider metricsEditorProvider) {
+        this.options = options;
+        this.nodeStore = nodeStore;
+        this.nodeStoreDisposer = nodeStoreDisposer;
+        this.blobs = blobs;
+        this.bootstrapped = bootstrapped;
+        this.repository = repository;
+        this.executor = executor;
+        this.metricsEditorProvider = metricsEditorProvider;
+        this.baseline = nodeStore.getRoot();
+    }
+
+    /**
+     * Create and bootstrap a new in-memory repository.
+     *
+     * @return The embedded repository.
+     */
+    static EmbeddedRepository create() {
+        return create(RepositoryOptions.DEFAULT);
+    }
+
+    /**
+     * Create and bootstrap a new repository.
+     *
+     * @param options The options that determine how the repository is constructed.
+     * @return The embedded repository.
+     */
+    static EmbeddedRepository create(final RepositoryOptions options) {
+        return create(options, EmptyNodeState.EMPTY_NODE);
+    }
+
+    /**
+     * Create a new repository whose content starts from a root node state. The bootstrap leaves content that was
+     * already initialised untouched.
+     *
+     * @param options The options that determine how the repository is constructed.
+     * @param root    The initial root node state.
+     * @return The embedded repository.
+     */
+    static EmbeddedRepository create(final RepositoryOptions options,
+                                     final NodeState root) {
+        return create(options, NodeStores.create(options, root), root == EmptyNodeState.EMPTY_NODE);
+    }
+
+    /**
+     * Create and bootstrap a new repository backed by the node store. If the node store already contains repository
+     * content the bootstrap leaves it untouched. The executor and whiteboard are supplied explicitly, rather than
+     * letting Oak create its own, so that the background tasks and the services registered by Oak are reclaimed
+     * deterministically by {@link #dispose()}.
+     *
+     * @param options      The options that determine how the repository is constructed.
+     * @param handle       The node store.
+     * @param bootstrapped {@code true} if the node store starts from an empty root.
+     * @return The embedded repository.
+     */
+    private static EmbeddedRepository create(final RepositoryOptions options,
+                                             final NodeStores.Handle handle,
+                                             final boolean bootstrapped) {
+        final NodeStore nodeStore = handle.nodeStore();
+        final ScheduledExecutorService executor = createExecutor();
+        final Whiteboard whiteboard = new DefaultWhiteboard();
+        final MetricsEditorProvider metricsEditorProvider = new MetricsEditorProvider();
+        try {
+            final Jcr jcr = options.profile() == JCRRepositoryProfile.MINIMAL
+                    ? minimal(new Oak(nodeStore))
+                    : new Jcr(new Oak(nodeStore));
+            final Repository repository = jcr
+                    .with(executor)
+                    .with((Executor) executor)
+                    .with(whiteboard)
+                    .with(metricsEditorProvider)
+                    .createRepository();
+            return new EmbeddedRepository(options, nodeStore, handle.disposer(), handle.blobs(), bootstrapped,
+                    repository, executor, metricsEditorProvider);
+        } catch (final RuntimeException e) {
+            executor.shutdownNow();
+            handle.disposer().run();
+            throw e;
+        }
+    }
+
+    /**
+     * Configure a repository with only the features that are needed to create, import, read and validate content.
+     * See {@link JCRRepositoryProfile#MINIMAL} for the features that are not available.
+     *
+     * @param oak The Oak repository builder.
+     * @return The JCR repository builder.
+     */
+    private static Jcr minimal(final Oak oak) {
+        return new Jcr(oak, false)
+                .with(new InitialContent())
+                .with(new OpenSecurityProvider())
+                .with(new NamespaceEditorProvider())
+                .with(new TypeEditorProvider())
+                .with(new NameValidatorProvider())
+                .with(new ConflictValidatorProvider())
+                .with(JcrConflictHandler.createJcrConflictHandler());
+    }
+
+    /**
+     * Create the executor used to run Oak's background tasks. The threads are daemon threads so that a repository
+     * that was not disposed cannot prevent the JVM from exiting.
+     *
+     * @return The executor.
+     */
+    private static ScheduledExecutorService createExecutor() {
+        final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(EXECUTOR_THREADS, runnable -> {
+            final Thread thread = new Thread(runnable, "jcrunit-oak-" + THREAD_COUNTER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+
+    /**
+     * Create a new repository whose node store starts from the current content of this repository. An in-memory node
+     * store shares the immutable node states of this repository and only holds its own changes, so the content tree
+     * is not duplicated. Other node stores are populated with a copy of the content. Neither repository can see the
+     * changes made by the other. Both repositories use the same blob directory, which is deleted when the last of
+     * them is disposed.
+     *
+     * @return The forked embedded repository.
+     */
+    EmbeddedRepository fork() {
+        return create(options, NodeStores.create(options, nodeStore.getRoot(), blobs == null ? null : blobs.acquire()),
+                false);
+    }
+
+    /**
+     * Return the options used to create the repository.
+     *
+     * @return The options.
+     */
+    RepositoryOptions getOptions() {
+        return options;
+    }
+
+    /**
+     * Return the JCR repository.
+     *
+     * @return The JCR repository.
+     */
+    Repository getRepository() {
+        return repository;
+    }
+
+    /**
+     * Return the node store.
+     *
+     * @return The node store.
+     */
+    NodeStore getNodeStore() {
+        return nodeStore;
+    }
+
+    /**
+     * Attach the metrics that subsequent writes to the repository are counted against.
+     *
+     * @param metrics The metrics or {@code null} to stop counting.
+     */
+    void attach(final RepositoryMetrics metrics) {
+        metricsEditorProvider.attach(metrics);
+    }
+
+    /**
+     * Shut down the repository, which closes the content repository and unregisters the services it registered on
+     * the whiteboard, then stop the executor used to run Oak's background tasks and release the node store.
+     */
+    void dispose() {
+        try {
+            if (repository instanceof JackrabbitRepository jackrabbitRepository) {
+                jackrabbitRepository.shutdown();
+            }
+        } finally {
+            executor.shutdownNow();
+            try {
+                executor.awaitTermination(EXECUTOR_SHUTDOWN_TIMEOUT, TimeUnit.SECONDS);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                nodeStoreDisposer.run();
+            }
+        }
+    }
+
+    /**
+     * Return the repository to the state it was in immediately after it was bootstrapped. The binaries written since
+     * then are deleted if the baseline cannot reference them and no fork shares the blob directory, so a pooled
+     * repository does not accumulate the binaries of every test that used it.
+     *
+     * @throws RepositoryException If the baseline could not be restored.
+     */
+    void reset() throws RepositoryException {
+        restore(baseline);
+        if (blobs != null && bootstrapped) {
+            blobs.clear();
+        }
+    }
+
+    /**
+     * Replace the content of the repository with a previously captured root node state. The commit hooks are not run
+     * because the index entries in the captured state are consistent with its content. Only the immediate children
+     * of the root are swapped so the cost is proportional to the fan-out of the root node rather than the size of
+     * the content tree.
+     *
+     * @param snapshot The root node state to restore.
+     * @throws RepositoryException If the snapshot could not be restored.
+     */
+    void restore(final NodeState snapshot) throws RepositoryException {
+        restore(nodeStore, snapshot);
+    }
+
+    /**
+     * Replace the content of a node store with a root node state. Only the immediate children of the root that differ
+     * are replaced.
+     *
+     * @param nodeStore The node store.
+     * @param snapshot  The root node state to restore.
+     * @throws RepositoryException If the root node state could not be restored.
+     */
+    static void restore(final NodeStore nodeStore,
+                        final NodeState snapshot) throws RepositoryException {
+        final NodeState current = nodeStore.getRoot();
+        final NodeBuilder builder = current.builder();
+        for (final PropertyState property : current.getProperties()) {
+            if (!snapshot.hasProperty(property.getName())) {
+                builder.removeProperty(property.getName());
+            }
+        }
+        for (final PropertyState property : snapshot.getProperties()) {
+            builder.setProperty(property);
+        }
+        for (final String name : current.getChildNodeNames()) {
+            if (!snapshot.hasChildNode(name)) {
+                builder.getChildNode(name).remove();
+            }
+        }
+        for (final ChildNodeEntry entry : snapshot.getChildNodeEntries()) {
+            if (current.getChildNode(entry.getName()) != entry.getNodeState()) {
+                builder.setChildNode(entry.getName(), entry.getNodeState());
+            }
+        }
+        try {
+            nodeStore.merge(builder, EmptyHook.INSTANCE, CommitInfo.EMPTY);
+        } catch (final CommitFailedException e) {
+            throw e.asRepositoryException();
+        }
+    }
+}
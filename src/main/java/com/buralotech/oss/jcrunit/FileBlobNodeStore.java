@@ -0,0 +1,295 @@
+/*
+ * Copyright 2025 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buralotech.oss.jcrunit;
+
+import org.apache.jackrabbit.oak.api.Blob;
+import org.apache.jackrabbit.oak.api.CommitFailedException;
+import org.apache.jackrabbit.oak.plugins.blob.BlobStoreBlob;
+import org.apache.jackrabbit.oak.plugins.memory.MemoryNodeStore;
+import org.apache.jackrabbit.oak.spi.blob.BlobStore;
+import org.apache.jackrabbit.oak.spi.blob.FileBlobStore;
+import org.apache.jackrabbit.oak.spi.commit.CommitHook;
+import org.apache.jackrabbit.oak.spi.commit.CommitInfo;
+import org.apache.jackrabbit.oak.spi.commit.Observable;
+import org.apache.jackrabbit.oak.spi.commit.Observer;
+import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
+import org.apache.jackrabbit.oak.spi.state.NodeState;
+import org.apache.jackrabbit.oak.spi.state.NodeStore;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * An in-memory node store that streams binaries into a file-backed blob store instead of holding them on the heap.
+ * The node states are held by a {@link MemoryNodeStore} so forking and restoring a repository work in the same way
+ * as they do for a purely in-memory repository.
+ * <p>
+ * Each embedded repository writes its binaries to its own {@link BlobDirectory}, which is shared with the repositories
+ * forked from it and deleted when the last of them is disposed. The directory is created in the temporary directory
+ * unless a parent directory is specified with the {@code jcrunit.blobStore.directory} system property.
+ *
+ * @author <a href="mailto:bmatthews68@gmail.com">Brian Matthews</a>
+ * @since 5.0
+ */
+final class FileBlobNodeStore implements NodeStore, Observable {
+
+    /**
+     * The name of the system property used to choose the directory for the blob store.
+     */
+    static final String DIRECTORY_PROPERTY = "jcrunit.blobStore.directory";
+
+    /**
+     * The node store that holds the node states.
+     */
+    private final MemoryNodeStore delegate;
+
+    /**
+     * The blob store that holds the binaries.
+     */
+    private final BlobStore blobStore;
+
+    /**
+     * Initialise the node store.
+     *
+     * @param root      The initial root node state.
+     * @param blobStore The blob store that holds the binaries.
+     */
+    FileBlobNodeStore(final NodeState root,
+                      final BlobStore blobStore) {
+        this.delegate = new MemoryNodeStore(root);
+        this.blobStore = blobStore;
+    }
+
+    @Override
+    public Closeable addObserver(final Observer observer) {
+        return delegate.addObserver(observer);
+    }
+
+    @Override
+    public NodeState getRoot() {
+        return delegate.getRoot();
+    }
+
+    @Override
+    public NodeState merge(final NodeBuilder builder,
+                           final CommitHook commitHook,
+                           final CommitInfo info)
+            throws CommitFailedException {
+        return delegate.merge(builder, commitHook, info);
+    }
+
+    @Override
+    public NodeState rebase(final NodeBuilder builder) {
+        return delegate.rebase(builder);
+    }
+
+    @Override
+    public NodeState reset(final NodeBuilder builder) {
+        return delegate.reset(builder);
+    }
+
+    /**
+     * Stream the binary into the blob store. Only the blob identifier is held on the heap.
+     *
+     * @param inputStream The binary content.
+     * @return The blob.
+     * @throws IOException If the binary could not be written to the blob store.
+     */
+    @Override
+    public Blob createBlob(final InputStream inputStream) throws IOException {
+        try (inputStream) {
+            return new BlobStoreBlob(blobStore, blobStore.writeBlob(inputStream));
+        }
+    }
+
+    @Override
+    public Blob getBlob(final String reference) {
+        final String blobId = blobStore.getBlobId(reference);
+        return blobId == null ? null : new BlobStoreBlob(blobStore, blobId);
+    }
+
+    @Override
+    public String checkpoint(final long lifetime,
+                             final Map<String, String> properties) {
+        return delegate.checkpoint(lifetime, properties);
+    }
+
+    @Override
+    public String checkpoint(final long lifetime) {
+        return delegate.checkpoint(lifetime);
+    }
+
+    @Override
+    public Map<String, String> checkpointInfo(final String checkpoint) {
+        return delegate.checkpointInfo(checkpoint);
+    }
+
+    @Override
+    public Iterable<String> checkpoints() {
+        return delegate.checkpoints();
+    }
+
+    @Override
+    public NodeState retrieve(final String checkpoint) {
+        return delegate.retrieve(checkpoint);
+    }
+
+    @Override
+    public boolean release(final String checkpoint) {
+        return delegate.release(checkpoint);
+    }
+
+    /**
+     * A directory holding the binaries written by an embedded repository and the repositories forked from it. The
+     * directory is reference counted and deleted when the last repository using it is disposed. Directories that are
+     * still in use when the JVM exits are deleted by a shutdown hook.
+     */
+    static final class BlobDirectory {
+
+        /**
+         * The directories that have not been released yet.
+         */
+        private static final Set<Path> LIVE = ConcurrentHashMap.newKeySet();
+
+        static {
+            Runtime.getRuntime().addShutdownHook(new Thread(
+                    () -> LIVE.forEach(directory -> delete(directory, true)),
+                    "jcrunit-blob-cleanup"));
+        }
+
+        /**
+         * The directory.
+         */
+        private final Path directory;
+
+        /**
+         * The blob store that writes to the directory.
+         */
+        private final BlobStore blobStore;
+
+        /**
+         * The number of repositories using the directory.
+         */
+        private final AtomicInteger references = new AtomicInteger(1);
+
+        /**
+         * Initialise the blob directory.
+         *
+         * @param directory The directory.
+         */
+        private BlobDirectory(final Path directory) {
+            this.directory = directory;
+            this.blobStore = new FileBlobStore(directory.toString());
+        }
+
+        /**
+         * Create a new blob directory in the directory specified by the {@code jcrunit.blobStore.directory} system
+         * property or in the temporary directory. The caller holds the first reference.
+         *
+         * @return The blob directory.
+         */
+        static BlobDirectory create() {
+            final String parent = System.getProperty(DIRECTORY_PROPERTY);
+            try {
+                final Path directory = parent == null
+                        ? Files.createTempDirectory("jcrunit-blobs")
+                        : Files.createTempDirectory(Files.createDirectories(Paths.get(parent)), "jcrunit-blobs");
+                LIVE.add(directory);
+                return new BlobDirectory(directory);
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Return the directory.
+         *
+         * @return The directory.
+         */
+        Path directory() {
+            return directory;
+        }
+
+        /**
+         * Return the blob store that writes to the directory.
+         *
+         * @return The blob store.
+         */
+        BlobStore blobStore() {
+            return blobStore;
+        }
+
+        /**
+         * Add a reference for a repository forked from one that already uses the directory.
+         *
+         * @return The blob directory.
+         */
+        BlobDirectory acquire() {
+            references.incrementAndGet();
+            return this;
+        }
+
+        /**
+         * Release a reference and delete the directory once no repository uses it.
+         */
+        void release() {
+            if (references.decrementAndGet() == 0) {
+                LIVE.remove(directory);
+                delete(directory, true);
+            }
+        }
+
+        /**
+         * Delete the binaries when the caller is the only repository using the directory and has discarded every
+         * node state that references them. The subdirectories are kept because the blob store does not expect them
+         * to disappear.
+         */
+        void clear() {
+            if (references.get() == 1) {
+                delete(directory, false);
+            }
+        }
+
+        /**
+         * Delete the files in a directory ignoring any failures.
+         *
+         * @param directory   The directory.
+         * @param directories {@code true} if the directory and its subdirectories are deleted as well.
+         */
+        private static void delete(final Path directory,
+                                   final boolean directories) {
+            try (Stream<Path> paths = Files.walk(directory)) {
+                paths.sorted(Comparator.reverseOrder())
+                        .filter(path -> directories || Files.isRegularFile(path))
+                        .forEach(path -> path.toFile().delete());
+            } catch (final IOException | UncheckedIOException ignored) {
+                // The files are removed on a best effort basis
+            }
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2025 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buralotech.oss.jcrunit;
+
+import org.apache.jackrabbit.oak.spi.state.NodeState;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A process-wide cache of the root node states produced while setting up repositories and importing fixtures.
+ * <p>
+ * Every repository starts from its own bootstrap, with its own password salts and creation dates, so the root node
+ * states of two repositories are never equal. The first repository set up for a combination of options, user and index
+ * definitions captures its root node state once the user has been created and the index definitions imported. Later
+ * repositories set up the same way restore that state instead, so that every one of them starts from the same shared
+ * root node state.
+ * <p>
+ * The first time a fixture is imported on top of that state the root node states before and after the import are
+ * captured. A subsequent import of the same fixture into a repository whose root node state equals the captured state
+ * before the import restores the captured state after the import, including the index entries, skipping the XML
+ * parsing and per-node validation. Because the states share their unchanged child node states the comparison only
+ * visits the children of the root. The captured changes are never replayed onto a different root node state because
+ * that would overwrite index and counter values and bypass the identifier collision checks performed by the importer.
+ * <p>
+ * The cache holds at most 32 entries, evicting the least recently used, unless a different size is specified with the
+ * {@code jcrunit.fixtureCache.size} system property.
+ *
+ * @author <a href="mailto:bmatthews68@gmail.com">Brian Matthews</a>
+ * @since 5.0
+ */
+final class FixtureCache {
+
+    /**
+     * The name of the system property used to override the maximum number of entries.
+     */
+    static final String SIZE_PROPERTY = "jcrunit.fixtureCache.size";
+
+    /**
+     * The maximum number of entries.
+     */
+    private static final int SIZE = Integer.getInteger(SIZE_PROPERTY, 32);
+
+    /**
+     * The captured set up states and fixtures keyed by the repository options and resource, in least recently used
+     * order.
+     */
+    private static final Map<Key, Fixture> FIXTURES = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<Key, Fixture> eldest) {
+            return size() > SIZE;
+        }
+    });
+
+    /**
+     * Identifies a captured set up state or fixture. States captured from repositories created with different options,
+     * for different users or on top of different fixtures are not interchangeable.
+     *
+     * @param options          The options used to create the repository the state was captured from.
+     * @param indexDefinitions The resources the index definitions of the repository were imported from.
+     * @param username         The user the repository was created for.
+     * @param password         The password of the user.
+     * @param imported         The resources imported into the repository before the fixture, in order.
+     * @param path             The resource the fixture was imported from or {@code null} for the set up state.
+     */
+    private record Key(RepositoryOptions options,
+                       List<String> indexDefinitions,
+                       String username,
+                       String password,
+                       List<String> imported,
+                       String path) {
+    }
+
+    /**
+     * The root node states captured around the import of a fixture.
+     *
+     * @param before The root node state before the fixture was imported.
+     * @param after  The root node state after the fixture was imported.
+     */
+    record Fixture(NodeState before, NodeState after) {
+    }
+
+    /**
+     * Prevent instantiation.
+     */
+    private FixtureCache() {
+    }
+
+    /**
+     * Look up the captured root node state of a repository that has been set up.
+     *
+     * @param options          The options used to create the repository.
+     * @param indexDefinitions The resources the index definitions of the repository were imported from.
+     * @param username         The user the repository was created for.
+     * @param password         The password of the user.
+     * @return The root node state or {@code null} if it has not been captured.
+     */
+    static NodeState getSetup(final RepositoryOptions options,
+                              final List<String> indexDefinitions,
+                              final String username,
+                              final String password) {
+        final Fixture fixture = FIXTURES.get(new Key(options, indexDefinitions, username, password, List.of(), null));
+        return fixture == null ? null : fixture.after();
+    }
+
+    /**
+     * Capture the root node state of a repository that has been set up.
+     *
+     * @param options          The options used to create the repository.
+     * @param indexDefinitions The resources the index definitions of the repository were imported from.
+     * @param username         The user the repository was created for.
+     * @param password         The password of the user.
+     * @param setup            The root node state after the user was created and the index definitions imported.
+     */
+    static void putSetup(final RepositoryOptions options,
+                         final List<String> indexDefinitions,
+                         final String username,
+                         final String password,
+                         final NodeState setup) {
+        FIXTURES.putIfAbsent(
+                new Key(options, indexDefinitions, username, password, List.of(), null),
+                new Fixture(null, setup));
+    }
+
+    /**
+     * Look up a captured fixture.
+     *
+     * @param options          The options used to create the repository.
+     * @param indexDefinitions The resources the index definitions of the repository were imported from.
+     * @param username         The user the repository was created for.
+     * @param password         The password of the user.
+     * @param imported         The resources imported into the repository before the fixture, in order.
+     * @param path             The resource the fixture is imported from.
+     * @return The captured fixture or {@code null} if the fixture has not been captured.
+     */
+    static Fixture get(final RepositoryOptions options,
+                       final List<String> indexDefinitions,
+                       final String username,
+                       final String password,
+                       final List<String> imported,
+                       final String path) {
+        return FIXTURES.get(new Key(options, indexDefinitions, username, password, List.copyOf(imported), path));
+    }
+
+    /**
+     * Capture a fixture.
+     *
+     * @param options          The options used to create the repository.
+     * @param indexDefinitions The resources the index definitions of the repository were imported from.
+     * @param username         The user the repository was created for.
+     * @param password         The password of the user.
+     * @param imported         The resources imported into the repository before the fixture, in order.
+     * @param path             The resource the fixture was imported from.
+     * @param before           The root node state before the fixture was imported.
+     * @param after            The root node state after the fixture was imported.
+     */
+    static void put(final RepositoryOptions options,
+                    final List<String> indexDefinitions,
+                    final String username,
+                    final String password,
+                    final List<String> imported,
+                    final String path,
+                    final NodeState before,
+                    final NodeState after) {
+        FIXTURES.putIfAbsent(
+                new Key(options, indexDefinitions, username, password, List.copyOf(imported), path),
+                new Fixture(before, after));
+    }
+}
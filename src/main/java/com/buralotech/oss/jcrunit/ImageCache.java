@@ -0,0 +1,378 @@
+/*
+ * Copyright 2025 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.buralotech.oss.jcrunit;
+
+import org.apache.jackrabbit.oak.OakVersion;
+import org.apache.jackrabbit.oak.api.CommitFailedException;
+import org.apache.jackrabbit.oak.segment.SegmentNodeStore;
+import org.apache.jackrabbit.oak.segment.SegmentNodeStoreBuilders;
+import org.apache.jackrabbit.oak.segment.file.FileStore;
+import org.apache.jackrabbit.oak.segment.file.FileStoreBuilder;
+import org.apache.jackrabbit.oak.segment.file.InvalidFileStoreVersionException;
+import org.apache.jackrabbit.oak.segment.file.ReadOnlyFileStore;
+import org.apache.jackrabbit.oak.spi.commit.CommitInfo;
+import org.apache.jackrabbit.oak.spi.commit.EmptyHook;
+import org.apache.jackrabbit.oak.spi.state.ApplyDiff;
+import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
+import org.apache.jackrabbit.oak.spi.state.NodeState;
+
+import javax.jcr.RepositoryException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * A persistent cache of repository images that survives between JVMs. An image is a read-only segment store holding
+ * the root node state of a repository after it was bootstrapped and the configured user was created, and after the
+ * fixtures were imported. Later test runs, including other Surefire forks, open the image with memory mapping and
+ * use its root node states as the starting point of an in-memory repository instead of bootstrapping the repository
+ * and importing the fixtures again.
+ * <p>
+ * Images are stored in {@code target/jcrunit-cache} unless a different directory is specified with the
+ * {@code jcrunit.imageCache.directory} system property. Each image is keyed by a hash of the Oak version, the
+ * repository options, the credentials and the content of the fixtures, so a stale image is never used. Images are
+ * written to a temporary directory and atomically renamed so concurrent forks never observe a partial image. If the
+ * file system does not support atomic renames a warning is logged and no images are written.
+ * <p>
+ * Requires {@code org.apache.jackrabbit:oak-segment-tar} on the class path.
+ *
+ * @author <a href="mailto:bmatthews68@gmail.com">Brian Matthews</a>
+ * @since 5.0
+ */
+final class ImageCache {
+
+    /**
+     * The name of the system property used to choose the cache directory.
+     */
+    static final String DIRECTORY_PROPERTY = "jcrunit.imageCache.directory";
+
+    /**
+     * The cache directory used unless overridden by the {@code jcrunit.imageCache.directory} system property.
+     */
+    private static final String DEFAULT_DIRECTORY = "target/jcrunit-cache";
+
+    /**
+     * Changed whenever the layout of an image changes to invalidate the existing images.
+     */
+    private static final String FORMAT = "1";
+
+    /**
+     * The name of the node in an image that holds the root node state after the repository was bootstrapped.
+     */
+    private static final String CONTENT = "content";
+
+    /**
+     * The name of the node in an image that holds the root node state after the fixtures were imported.
+     */
+    private static final String TEST = "test";
+
+    /**
+     * The images opened by this JVM keyed by hash. The read-only stores are kept open for the lifetime of the JVM
+     * because the repositories created from an image continue to read from it.
+     */
+    private static final Map<String, Image> OPEN = new ConcurrentHashMap<>();
+
+    /**
+     * The keys calculated for each repository configuration. The fixtures are only hashed once per JVM.
+     */
+    private static final Map<JCRRepositoryConfiguration, String> KEYS = new ConcurrentHashMap<>();
+
+    /**
+     * Used to warn that images cannot be written to the cache directory.
+     */
+    private static final System.Logger LOGGER = System.getLogger(ImageCache.class.getName());
+
+    /**
+     * Set once the file system has been found not to support atomic renames, after which no more images are written.
+     */
+    private static volatile boolean readOnly;
+
+    /**
+     * The root node states held by an image.
+     *
+     * @param content The root node state after the repository was bootstrapped and the configured user was created.
+     * @param test    The root node state after the fixtures were imported.
+     */
+    record Image(NodeState content, NodeState test) {
+    }
+
+    /**
+     * Prevent instantiation.
+     */
+    private ImageCache() {
+    }
+
+    /**
+     * Calculate the key for the image of a repository configuration. The key is calculated once for each
+     * configuration and then reused for the lifetime of the JVM.
+     *
+     * @param annotation The repository configuration.
+     * @param options    The options that determine how the repository is constructed.
+     * @return The hexadecimal encoded hash.
+     * @throws IOException If a fixture could not be read.
+     */
+    static String key(final JCRRepositoryConfiguration annotation,
+                      final RepositoryOptions options) throws IOException {
+        try {
+            return KEYS.computeIfAbsent(annotation, key -> {
+                try {
+                    return hash(annotation, options);
+                } catch (final IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (final UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Hash the Oak version, the repository options, the credentials and the content of the fixtures.
+     *
+     * @param annotation The repository configuration.
+     * @param options    The options that determine how the repository is constructed.
+     * @return The hexadecimal encoded hash.
+     * @throws IOException If a fixture could not be read.
+     */
+    private static String hash(final JCRRepositoryConfiguration annotation,
+                               final RepositoryOptions options) throws IOException {
+        final MessageDigest digest = sha256();
+        update(digest, FORMAT);
+        update(digest, OakVersion.getVersion());
+        update(digest, options.toString());
+        update(digest, annotation.username());
+        update(digest, annotation.password());
+        update(digest, Boolean.toString(annotation.lazyImports()));
+        final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        update(digest, annotation.indexDefinitions(), classLoader);
+        update(digest, annotation.importXMLs(), classLoader);
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Add the paths and content of resources on the class path to a message digest.
+     *
+     * @param digest      The message digest.
+     * @param paths       The paths of the resources.
+     * @param classLoader Used to load the resources.
+     * @throws IOException If a resource could not be read.
+     */
+    private static void update(final MessageDigest digest,
+                               final String[] paths,
+                               final ClassLoader classLoader) throws IOException {
+        update(digest, Integer.toString(paths.length));
+        for (final String path : paths) {
+            update(digest, path);
+            try (InputStream inputStream = classLoader.getResourceAsStream(path)) {
+                if (inputStream != null) {
+                    final byte[] buffer = new byte[8192];
+                    for (int count = inputStream.read(buffer); count != -1; count = inputStream.read(buffer)) {
+                        digest.update(buffer, 0, count);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Open an image.
+     *
+     * @param key The key calculated by {@link #key}.
+     * @return The image or {@code null} if it has not been written.
+     */
+    static Image load(final String key) {
+        final Image image = OPEN.get(key);
+        if (image != null) {
+            return image;
+        }
+        final Path directory = directory().resolve(key);
+        if (!Files.isDirectory(directory)) {
+            return null;
+        }
+        try {
+            return OPEN.computeIfAbsent(key, k -> open(directory));
+        } catch (final NoClassDefFoundError e) {
+            throw unavailable(e);
+        }
+    }
+
+    /**
+     * Write an image unless another JVM or thread has already written it.
+     *
+     * @param key     The key calculated by {@link #key}.
+     * @param content The root node state after the repository was bootstrapped and the configured user was created.
+     * @param test    The root node state after the fixtures were imported.
+     * @throws IOException         If the image could not be written.
+     * @throws RepositoryException If the root node states could not be copied to the image.
+     */
+    static void store(final String key,
+                      final NodeState content,
+                      final NodeState test) throws IOException, RepositoryException {
+        final Path target = directory().resolve(key);
+        if (readOnly || Files.isDirectory(target)) {
+            return;
+        }
+        Files.createDirectories(target.getParent());
+        final Path temporary = Files.createTempDirectory(target.getParent(), key + ".tmp");
+        try {
+            try {
+                write(temporary, content, test);
+            } catch (final NoClassDefFoundError e) {
+                throw unavailable(e);
+            }
+            try {
+                Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (final FileAlreadyExistsException | DirectoryNotEmptyException e) {
+                // Another fork won the race
+            } catch (final AtomicMoveNotSupportedException e) {
+                readOnly = true;
+                LOGGER.log(System.Logger.Level.WARNING,
+                        "The file system of {0} does not support atomic renames so repository images cannot be cached. Set {1} to a directory on a different file system.",
+                        target.getParent(), DIRECTORY_PROPERTY);
+            }
+        } finally {
+            delete(temporary);
+        }
+    }
+
+    /**
+     * Copy the root node states into a new segment store. The state after the fixtures were imported is written as a
+     * diff against the bootstrapped state so that the unchanged content is only stored once.
+     *
+     * @param directory The directory of the new segment store.
+     * @param content   The root node state after the repository was bootstrapped and the configured user was created.
+     * @param test      The root node state after the fixtures were imported.
+     * @throws IOException         If the segment store could not be written.
+     * @throws RepositoryException If the root node states could not be copied.
+     */
+    private static void write(final Path directory,
+                              final NodeState content,
+                              final NodeState test) throws IOException, RepositoryException {
+        try (FileStore fileStore = FileStoreBuilder.fileStoreBuilder(directory.toFile()).build()) {
+            final SegmentNodeStore nodeStore = SegmentNodeStoreBuilders.builder(fileStore).build();
+            NodeBuilder builder = nodeStore.getRoot().builder();
+            builder.setChildNode(CONTENT, content);
+            nodeStore.merge(builder, EmptyHook.INSTANCE, CommitInfo.EMPTY);
+            final NodeState root = nodeStore.getRoot();
+            builder = root.builder();
+            test.compareAgainstBaseState(content, new ApplyDiff(builder.setChildNode(TEST, root.getChildNode(CONTENT))));
+            nodeStore.merge(builder, EmptyHook.INSTANCE, CommitInfo.EMPTY);
+            fileStore.flush();
+        } catch (final InvalidFileStoreVersionException e) {
+            throw new IOException(e);
+        } catch (final CommitFailedException e) {
+            throw e.asRepositoryException();
+        }
+    }
+
+    /**
+     * Open an image with memory mapping.
+     *
+     * @param directory The directory of the image.
+     * @return The image.
+     */
+    private static Image open(final Path directory) {
+        try {
+            final ReadOnlyFileStore fileStore = FileStoreBuilder.fileStoreBuilder(directory.toFile())
+                    .withMemoryMapping(true)
+                    .buildReadOnly();
+            final NodeState root = SegmentNodeStoreBuilders.builder(fileStore).build().getRoot();
+            return new Image(root.getChildNode(CONTENT), root.getChildNode(TEST));
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (final InvalidFileStoreVersionException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Report that the image cache cannot be used because {@code oak-segment-tar} is not on the class path.
+     *
+     * @param cause The error raised when loading the segment store classes.
+     * @return The exception to be thrown.
+     */
+    private static IllegalStateException unavailable(final NoClassDefFoundError cause) {
+        return new IllegalStateException("The image cache requires oak-segment-tar on the class path", cause);
+    }
+
+    /**
+     * Return the cache directory.
+     *
+     * @return The cache directory.
+     */
+    private static Path directory() {
+        return Paths.get(System.getProperty(DIRECTORY_PROPERTY, DEFAULT_DIRECTORY));
+    }
+
+    /**
+     * Create a SHA-256 message digest.
+     *
+     * @return The message digest.
+     */
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Add a length-prefixed string to a message digest so that adjacent strings cannot be confused.
+     *
+     * @param digest The message digest.
+     * @param value  The string.
+     */
+    private static void update(final MessageDigest digest,
+                               final String value) {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        digest.update((byte) (bytes.length >>> 24));
+        digest.update((byte) (bytes.length >>> 16));
+        digest.update((byte) (bytes.length >>> 8));
+        digest.update((byte) bytes.length);
+        digest.update(bytes);
+    }
+
+    /**
+     * Delete a directory and its content ignoring any failures.
+     *
+     * @param directory The directory.
+     */
+    private static void delete(final Path directory) {
+        if (Files.exists(directory)) {
+            try (Stream<Path> paths = Files.walk(directory)) {
+                paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            } catch (final IOException ignored) {
+                // A partial image is never used because it is not at its final location
+            }
+        }
+    }
+}
@@ -18,9 +18,18 @@ package com.buralotech.oss.jcrunit;
 
 import org.assertj.core.api.AbstractAssert;
 
-import javax.jcr.PropertyType;
 import javax.jcr.RepositoryException;
-import java.util.Objects;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 
 import static javax.jcr.nodetype.NodeType.NT_FILE;
 import static javax.jcr.nodetype.NodeType.NT_FOLDER;
@@ -30,6 +39,11 @@ import static javax.jcr.nodetype.NodeType.NT_FOLDER;
  */
 public class JCRAssertions extends AbstractAssert<JCRAssertions, JCRRepositoryTester> {
 
+    /**
+     * The maximum number of differences between a subtree and a snapshot file that are described in a failure.
+     */
+    private static final int MAX_DIFFERENCES = 20;
+
     /**
      * Initialise the assertions object.
      *
@@ -148,7 +162,12 @@ public class JCRAssertions extends AbstractAssert<JCRAssertions, JCRRepositoryTe
     /**
      * Assert that the node at the specified path has the specified property with the expected value.
      * <p>
-     * Only single value Boolean, Decimal, Double, Long and String types are supported.
+     * Properties of every type are supported. Multi-valued properties are compared with a {@link Collection} or an
+     * array of expected values. Dates are compared as instants and can be expected as a {@link java.util.Calendar},
+     * {@link java.util.Date} or {@link java.time.Instant}. Binary values can be expected as a {@code byte[]},
+     * {@link Path} or {@link java.io.InputStream} and are compared by length and SHA-256 hash while they are streamed
+     * so large binaries are never copied onto the heap. References can be expected as the referenced
+     * {@link javax.jcr.Node} or its identifier. Names, paths and URIs can be expected as a {@link String}.
      *
      * @param path          The path.
      * @param propertyName  The property name.
@@ -158,58 +177,186 @@ public class JCRAssertions extends AbstractAssert<JCRAssertions, JCRRepositoryTe
     public <T> JCRAssertions hasPropertyValue(final String path,
                                               final String propertyName,
                                               final T propertyValue) {
+        final String mismatch;
         try {
-            actual.property(path, propertyName)
-                    .ifPresentOrElse(
-                            property -> {
-                                try {
-                                    switch (property.getType()) {
-                                        case PropertyType.BOOLEAN ->
-                                                check(path, propertyName, propertyValue, property::getBoolean);
-                                        case PropertyType.DECIMAL ->
-                                                check(path, propertyName, propertyValue, property::getDecimal);
-                                        case PropertyType.DOUBLE ->
-                                                check(path, propertyName, propertyValue, property::getDouble);
-                                        case PropertyType.LONG ->
-                                                check(path, propertyName, propertyValue, property::getLong);
-                                        case PropertyType.STRING ->
-                                                check(path, propertyName, propertyValue, property::getString);
-                                    }
-                                } catch (final RepositoryException e) {
-                                    throw failure("Invalid path: [%s] or property: [%s]", path, propertyName);
-                                }
-                            },
-                            () -> {
-                                if (propertyValue != null) {
-                                    throw failure("[%s] does not have property [%s]", path, propertyName, propertyValue);
-                                }
-                            });
+            mismatch = actual.inSession(session -> {
+                final var node = session.getNode(path);
+                if (node.hasProperty(propertyName)) {
+                    return PropertyValues.compare(path, propertyName, propertyValue, node.getProperty(propertyName));
+                } else if (propertyValue != null) {
+                    return String.format("[%s] does not have property [%s]", path, propertyName);
+                } else {
+                    return null;
+                }
+            });
         } catch (final RepositoryException e) {
             throw failure("Invalid path: [%s] or property: [%s]", path, propertyName);
         }
+        if (mismatch != null) {
+            throw failure("%s", mismatch);
+        }
         return this;
     }
 
     /**
-     * Helper method to compare a property value.
+     * Start assertions about the results and plan of a JCR-SQL2 query.
      *
-     * @param path         The  path.
-     * @param propertyName The property name.
-     * @param expectValue  The expected value.
-     * @param supplier     Supplies the actual value.
-     * @param <T>          The property type.
-     * @throws RepositoryException If there was an exception accessing the value.
-     */
-    private <T> void check(final String path,
-                           final String propertyName,
-                           final T expectValue,
-                           final ValueAccessor<T> supplier)
-            throws RepositoryException {
-        final T actualValue = supplier.get();
-        if (!Objects.equals(expectValue, actualValue)) {
-            throw failure("Expected [%s] to have property [%s] equal to [%s] but was [%s]", path,
-                    propertyName, expectValue, actualValue);
+     * @param statement The JCR-SQL2 query.
+     * @return The query assertions.
+     * @since 5.0
+     */
+    public JCRQueryAssertions query(final String statement) {
+        return new JCRQueryAssertions(actual, statement);
+    }
+
+    /**
+     * Assert that a node exists at each of the specified paths. All the paths are checked using a single session and
+     * every missing path is reported in a single failure.
+     *
+     * @param paths The paths.
+     * @return Self.
+     * @since 5.0
+     */
+    public JCRAssertions pathsExist(final Collection<String> paths) {
+        return matches(JCRExpectations.expect().pathsExist(paths));
+    }
+
+    /**
+     * Assert that a node does not exist at any of the specified paths. All the paths are checked using a single
+     * session and every path that exists is reported in a single failure.
+     *
+     * @param paths The paths.
+     * @return Self.
+     * @since 5.0
+     */
+    public JCRAssertions pathsDoNotExist(final Collection<String> paths) {
+        return matches(JCRExpectations.expect().pathsDoNotExist(paths));
+    }
+
+    /**
+     * Assert that the content of the repository meets all the expectations. The expectations are verified using a
+     * single session and every expectation that is not met is reported in a single failure. Relative paths are
+     * resolved against the root of the repository.
+     *
+     * @param expectations The expectations.
+     * @return Self.
+     * @since 5.0
+     */
+    public JCRAssertions matches(final JCRExpectations expectations) {
+        return matches("/", expectations);
+    }
+
+    /**
+     * Assert that the content below a node meets all the expectations staged by the specification. The expectations
+     * are verified using a single session and every expectation that is not met is reported in a single failure.
+     * Relative paths are resolved against the node.
+     *
+     * @param path          The fully qualified path of the node.
+     * @param specification Stages the expectations.
+     * @return Self.
+     * @since 5.0
+     */
+    public JCRAssertions tree(final String path,
+                              final Consumer<JCRExpectations> specification) {
+        final JCRExpectations expectations = JCRExpectations.expect();
+        specification.accept(expectations);
+        return matches(path, expectations);
+    }
+
+    /**
+     * Verify the expectations using a single session and report every expectation that is not met.
+     *
+     * @param path         The fully qualified path of the node to which relative paths are resolved.
+     * @param expectations The expectations.
+     * @return Self.
+     */
+    private JCRAssertions matches(final String path,
+                                  final JCRExpectations expectations) {
+        final List<String> failures;
+        try {
+            failures = actual.inSession(session -> expectations.verify(session, path));
+        } catch (final RepositoryException e) {
+            throw failure("Could not verify the content below [%s]: %s", path, e.getMessage());
+        }
+        if (!failures.isEmpty()) {
+            throw failure("%d expectation(s) were not met:%n%s", failures.size(), String.join(System.lineSeparator(), failures));
+        }
+        return this;
+    }
+
+    /**
+     * Assert that the subtree below a node matches a snapshot file, leaving out the properties whose values change
+     * every time the content is created ({@code jcr:uuid}, {@code jcr:created}, {@code jcr:createdBy},
+     * {@code jcr:lastModified}, {@code jcr:lastModifiedBy} and the versioning properties).
+     *
+     * @param path     The fully qualified path of the root node of the subtree.
+     * @param snapshot The path of the snapshot file relative to {@code src/test/resources}.
+     * @return Self.
+     * @see #subtreeMatchesSnapshot(String, String, Set)
+     * @since 5.0
+     */
+    public JCRAssertions subtreeMatchesSnapshot(final String path,
+                                                final String snapshot) {
+        return subtreeMatchesSnapshot(path, snapshot, SubtreeSnapshot.VOLATILE_PROPERTIES);
+    }
+
+    /**
+     * Assert that the subtree below a node matches a snapshot file. The subtree is serialised into a canonical form by
+     * {@link JCRRepositoryTester#snapshot(String, Set, Writer)} and compared with the snapshot file one node at a time
+     * so that memory use does not grow with the size of the subtree.
+     * <p>
+     * Snapshot files are relative to {@code src/test/resources} unless a different directory is specified with the
+     * {@code jcrunit.snapshot.directory} system property. When the {@code jcrunit.snapshot.update} system property is
+     * {@code true} the snapshot file is regenerated from the subtree instead and the assertion passes.
+     *
+     * @param path              The fully qualified path of the root node of the subtree.
+     * @param snapshot          The path of the snapshot file relative to {@code src/test/resources}.
+     * @param ignoredProperties The names of the properties that are left out of the comparison.
+     * @return Self.
+     * @since 5.0
+     */
+    public JCRAssertions subtreeMatchesSnapshot(final String path,
+                                                final String snapshot,
+                                                final Set<String> ignoredProperties) {
+        final Path file = SubtreeSnapshot.file(snapshot);
+        Path actualFile = null;
+        try {
+            actualFile = Files.createTempFile("jcrunit", ".snapshot");
+            try (Writer writer = Files.newBufferedWriter(actualFile, StandardCharsets.UTF_8)) {
+                actual.snapshot(path, ignoredProperties, writer);
+            }
+            if (SubtreeSnapshot.isUpdating()) {
+                if (file.getParent() != null) {
+                    Files.createDirectories(file.getParent());
+                }
+                Files.move(actualFile, file, StandardCopyOption.REPLACE_EXISTING);
+                return this;
+            }
+            if (!Files.exists(file)) {
+                throw failure("Snapshot [%s] does not exist. Run with -D%s=true to create it.", file, SubtreeSnapshot.UPDATE_PROPERTY);
+            }
+            final List<String> differences;
+            try (BufferedReader expectedReader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+                 BufferedReader actualReader = Files.newBufferedReader(actualFile, StandardCharsets.UTF_8)) {
+                differences = SubtreeSnapshot.diff(expectedReader, actualReader, MAX_DIFFERENCES);
+            }
+            if (!differences.isEmpty()) {
+                throw failure("Subtree [%s] does not match snapshot [%s]:%n%s", path, file, String.join(System.lineSeparator(), differences));
+            }
+        } catch (final RepositoryException e) {
+            throw failure("Invalid path: [%s]", path);
+        } catch (final IOException e) {
+            throw failure("Could not compare [%s] with snapshot [%s]: %s", path, file, e.getMessage());
+        } finally {
+            if (actualFile != null) {
+                try {
+                    Files.deleteIfExists(actualFile);
+                } catch (final IOException ignored) {
+                    // The temporary file is left behind
+                }
+            }
         }
+        return this;
     }
 
     /**
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2025 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buralotech.oss.jcrunit;
+
+/**
+ * Determines where the binary content of an embedded repository is stored.
+ *
+ * @author <a href="mailto:bmatthews68@gmail.com">Brian Matthews</a>
+ * @since 5.0
+ */
+public enum JCRBlobStore {
+
+    /**
+     * Binaries are held on the heap together with the rest of the repository content.
+     */
+    MEMORY,
+
+    /**
+     * Binaries are streamed into a file-backed blob store in a temporary directory so that large binaries do not
+     * inflate the heap. The blob store is shared by all the embedded repositories in the JVM and is deleted when the
+     * JVM exits. The {@code jcrunit.blobStore.directory} system property can be used to choose the directory.
+     */
+    FILE
+}
@@ -0,0 +1,289 @@
+/*
+ * Copyright 2025 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.buralotech.oss.jcrunit;
+
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static javax.jcr.nodetype.NodeType.NT_FILE;
+import static javax.jcr.nodetype.NodeType.NT_FOLDER;
+
+/**
+ * Stages expectations about the content of the repository so that they can be verified together by
+ * {@link JCRAssertions#matches(JCRExpectations)} or {@link JCRAssertions#tree(String, java.util.function.Consumer)}.
+ * All the expectations are verified using a single session, each node is only looked up once however many
+ * expectations refer to it, and every expectation that is not met is reported in a single failure.
+ * <p>
+ * Paths that do not start with {@code /} are relative to the node below which the expectations are verified.
+ * <pre>{@code
+ * assertThat(helper).tree("/a", a -> a
+ *         .isFolder("b")
+ *         .isFile("b/c")
+ *         .hasPropertyValue("b/c/jcr:content", "jcr:mimeType", "text/plain")
+ *         .pathDoesNotExist("e"));
+ * }</pre>
+ *
+ * @author <a href="mailto:bmatthews68@gmail.com">Brian Matthews</a>
+ * @since 5.0
+ */
+public final class JCRExpectations {
+
+    /**
+     * The staged expectations.
+     */
+    private final List<Expectation> expectations = new ArrayList<>();
+
+    /**
+     * Verifies an expectation about the node at a path.
+     */
+    @FunctionalInterface
+    interface Check {
+
+        /**
+         * Verify the expectation.
+         *
+         * @param path The fully qualified path.
+         * @param node The node at the path or {@code null} if there is no node at the path.
+         * @return A description of the failure or {@code null} if the expectation was met.
+         * @throws RepositoryException If there was a problem accessing the node.
+         */
+        String verify(String path, Node node) throws RepositoryException;
+    }
+
+    /**
+     * An expectation about the node at a path.
+     *
+     * @param path  The absolute or relative path.
+     * @param check Verifies the expectation.
+     */
+    private record Expectation(String path, Check check) {
+    }
+
+    /**
+     * Initialise an empty set of expectations.
+     */
+    private JCRExpectations() {
+    }
+
+    /**
+     * Start staging expectations.
+     *
+     * @return An empty set of expectations.
+     */
+    public static JCRExpectations expect() {
+        return new JCRExpectations();
+    }
+
+    /**
+     * Expect a node to exist at the specified path.
+     *
+     * @param path The path.
+     * @return A reference to {@code this} to allow fluent-style chaining of invocations.
+     */
+    public JCRExpectations pathExists(final String path) {
+        return add(path, (p, node) -> node == null ? String.format("Expected [%s] to exist", p) : null);
+    }
+
+    /**
+     * Expect a node to exist at each of the specified paths.
+     *
+     * @param paths The paths.
+     * @return A reference to {@code this} to allow fluent-style chaining of invocations.
+     */
+    public JCRExpectations pathsExist(final Iterable<String> paths) {
+        paths.forEach(this::pathExists);
+        return this;
+    }
+
+    /**
+     * Expect a node not to exist at the specified path.
+     *
+     * @param path The path.
+     * @return A reference to {@code this} to allow fluent-style chaining of invocations.
+     */
+    public JCRExpectations pathDoesNotExist(final String path) {
+        return add(path, (p, node) -> node != null ? String.format("Expected [%s] to not exist", p) : null);
+    }
+
+    /**
+     * Expect a node not to exist at any of the specified paths.
+     *
+     * @param paths The paths.
+     * @return A reference to {@code this} to allow fluent-style chaining of invocations.
+     */
+    public JCRExpectations pathsDoNotExist(final Iterable<String> paths) {
+        paths.forEach(this::pathDoesNotExist);
+        return this;
+    }
+
+    /**
+     * Expect the node at the specified path to be a file.
+     *
+     * @param path The path.
+     * @return A reference to {@code this} to allow fluent-style chaining of invocations.
+     */
+    public JCRExpectations isFile(final String path) {
+        return add(path, (p, node) -> node == null || !node.isNodeType(NT_FILE)
+                ? String.format("[%s] is not a file", p)
+                : null);
+    }
+
+    /**
+     * Expect the node at the specified path to be a folder.
+     *
+     * @param path The path.
+     * @return A reference to {@code this} to allow fluent-style chaining of invocations.
+     */
+    public JCRExpectations isFolder(final String path) {
+        return add(path, (p, node) -> node == null || !node.isNodeType(NT_FOLDER)
+                ? String.format("[%s] is not a folder", p)
+                : null);
+    }
+
+    /**
+     * Expect the node at the specified path to have the specified property.
+     *
+     * @param path         The path.
+     * @param propertyName The property name.
+     * @return A reference to {@code this} to allow fluent-style chaining of invocations.
+     */
+    public JCRExpectations hasProperty(final String path,
+                                       final String propertyName) {
+        return add(path, (p, node) -> node == null || !node.hasProperty(propertyName)
+                ? String.format("[%s] does not have property [%s]", p, propertyName)
+                : null);
+    }
+
+    /**
+     * Expect the node at the specified path not to have the specified property.
+     *
+     * @param path         The path.
+     * @param propertyName The property name.
+     * @return A reference to {@code this} to allow fluent-style chaining of invocations.
+     */
+    public JCRExpectations hasNoProperty(final String path,
+                                         final String propertyName) {
+        return add(path, (p, node) -> node == null
+                ? String.format("Invalid path: [%s] or property: [%s]", p, propertyName)
+                : node.hasProperty(propertyName) ? String.format("[%s] has property [%s]", p, propertyName) : null);
+    }
+
+    /**
+     * Expect the node at the specified path to have the specified property with the expected value. The property
+     * types supported are those supported by {@link JCRAssertions#hasPropertyValue(String, String, Object)}.
+     *
+     * @param path          The path.
+     * @param propertyName  The property name.
+     * @param propertyValue The expected property value.
+     * @param <T>           The property type.
+     * @return A reference to {@code this} to allow fluent-style chaining of invocations.
+     */
+    public <T> JCRExpectations hasPropertyValue(final String path,
+                                                final String propertyName,
+                                                final T propertyValue) {
+        return add(path, (p, node) -> {
+            if (node == null) {
+                return String.format("Invalid path: [%s] or property: [%s]", p, propertyName);
+            } else if (node.hasProperty(propertyName)) {
+                return PropertyValues.compare(p, propertyName, propertyValue, node.getProperty(propertyName));
+            } else if (propertyValue != null) {
+                return String.format("[%s] does not have property [%s]", p, propertyName);
+            } else {
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Stage an expectation.
+     *
+     * @param path  The absolute or relative path.
+     * @param check Verifies the expectation.
+     * @return A reference to {@code this} to allow fluent-style chaining of invocations.
+     */
+    JCRExpectations add(final String path,
+                        final Check check) {
+        expectations.add(new Expectation(path, check));
+        return this;
+    }
+
+    /**
+     * Verify the expectations using a single session. The expectations are grouped by path so that each node is only
+     * looked up once.
+     *
+     * @param session The session.
+     * @param root    The fully qualified path of the node to which relative paths are resolved.
+     * @return The descriptions of the expectations that were not met.
+     * @throws RepositoryException If there was a problem accessing the repository.
+     */
+    List<String> verify(final Session session,
+                        final String root) throws RepositoryException {
+        final Map<String, List<Check>> checksByPath = new TreeMap<>();
+        for (final Expectation expectation : expectations) {
+            checksByPath.computeIfAbsent(resolve(root, expectation.path()), key -> new ArrayList<>())
+                    .add(expectation.check());
+        }
+        final List<String> failures = new ArrayList<>();
+        for (final Map.Entry<String, List<Check>> entry : checksByPath.entrySet()) {
+            final String path = entry.getKey();
+            final Node node;
+            try {
+                node = session.nodeExists(path) ? session.getNode(path) : null;
+            } catch (final RepositoryException e) {
+                failures.add(String.format("Invalid path: [%s]", path));
+                continue;
+            }
+            for (final Check check : entry.getValue()) {
+                try {
+                    final String failure = check.verify(path, node);
+                    if (failure != null) {
+                        failures.add(failure);
+                    }
+                } catch (final RepositoryException e) {
+                    failures.add(String.format("Invalid path: [%s]: %s", path, e.getMessage()));
+                }
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * Resolve a path relative to a node.
+     *
+     * @param root The fully qualified path of the node.
+     * @param path The absolute or relative path.
+     * @return The fully qualified path.
+     */
+    private static String resolve(final String root,
+                                  final String path) {
+        if (path.startsWith("/")) {
+            return path;
+        } else if (path.isEmpty() || path.equals(".")) {
+            return root;
+        } else if (root.endsWith("/")) {
+            return root + path;
+        } else {
+            return root + "/" + path;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2025 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.buralotech.oss.jcrunit;
+
+/**
+ * Determines the storage engine used by an embedded repository.
+ *
+ * @author <a href="mailto:bmatthews68@gmail.com">Brian Matthews</a>
+ * @since 5.0
+ */
+public enum JCRNodeStore {
+
+    /**
+     * Content is held on the heap by a {@code MemoryNodeStore}. This is the fastest option and supports all the
+     * features of JCR Unit.
+     */
+    MEMORY,
+
+    /**
+     * Content is written to a {@code SegmentNodeStore} in a temporary directory, on tmpfs if {@code /dev/shm} is
+     * available, so tests see the same write amplification and read costs as an Oak TarMK deployment. The directory
+     * can be chosen with the {@code jcrunit.segmentStore.directory} system property. Requires
+     * {@code org.apache.jackrabbit:oak-segment-tar} on the class path.
+     */
+    SEGMENT,
+
+    /**
+     * Content is written to a {@code DocumentNodeStore} backed by an in-memory document store so tests see the same
+     * write amplification and read costs as an Oak DocumentMK deployment. Requires
+     * {@code org.apache.jackrabbit:oak-store-document} on the class path.
+     */
+    DOCUMENT
+}
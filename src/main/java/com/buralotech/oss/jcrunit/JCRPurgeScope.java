@@ -0,0 +1,38 @@
+/*
+ * Copyright 2025 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buralotech.oss.jcrunit;
+
+/**
+ * Determines which content is removed by {@link JCRRepositoryTester#purge(JCRPurgeScope)}.
+ *
+ * @author <a href="mailto:bmatthews68@gmail.com">Brian Matthews</a>
+ * @since 5.0
+ */
+public enum JCRPurgeScope {
+
+    /**
+     * Remove all content, including the content imported when the repository was launched, returning the repository
+     * to the state it was in after it was bootstrapped and the configured user was created.
+     */
+    ALL,
+
+    /**
+     * Remove the content created since the repository helper was handed to the test, keeping the content imported
+     * when the repository was launched.
+     */
+    TEST
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2025 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.buralotech.oss.jcrunit;
+
+import org.assertj.core.api.AbstractAssert;
+
+import javax.jcr.RepositoryException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Assertions for testing the results of a JCR-SQL2 query and the plan chosen for it by the Oak query engine. The
+ * query is executed and explained at most once however many assertions are made.
+ * <pre>{@code
+ * assertThat(helper).query("SELECT * FROM [nt:unstructured] WHERE [title] = 'Hello'")
+ *         .usesIndex("titleIndex")
+ *         .doesNotTraverse()
+ *         .returnsPaths("/content/hello");
+ * }</pre>
+ *
+ * @author <a href="mailto:bmatthews68@gmail.com">Brian Matthews</a>
+ * @since 5.0
+ */
+public final class JCRQueryAssertions extends AbstractAssert<JCRQueryAssertions, JCRRepositoryTester> {
+
+    /**
+     * Matches the part of a plan that indicates the query traverses the content.
+     */
+    private static final Pattern TRAVERSE = Pattern.compile("/\\*\\s*traverse\\b");
+
+    /**
+     * The JCR-SQL2 query.
+     */
+    private final String statement;
+
+    /**
+     * The paths of the nodes selected by the query or {@code null} if the query has not been executed yet.
+     */
+    private List<String> paths;
+
+    /**
+     * The plan chosen for the query or {@code null} if the query has not been explained yet.
+     */
+    private String plan;
+
+    /**
+     * Initialise the query assertions object.
+     *
+     * @param tester    The repository helper.
+     * @param statement The JCR-SQL2 query.
+     */
+    JCRQueryAssertions(final JCRRepositoryTester tester,
+                       final String statement) {
+        super(tester, JCRQueryAssertions.class);
+        this.statement = statement;
+    }
+
+    /**
+     * Assert that the query selects exactly the nodes at the specified paths in any order.
+     *
+     * @param expectedPaths The expected paths.
+     * @return Self.
+     */
+    public JCRQueryAssertions returnsPaths(final String... expectedPaths) {
+        final List<String> expected = new ArrayList<>(Arrays.asList(expectedPaths));
+        final List<String> actualPaths = new ArrayList<>(paths());
+        Collections.sort(expected);
+        Collections.sort(actualPaths);
+        if (!expected.equals(actualPaths)) {
+            throw failure("Expected query [%s] to return %s but was %s", statement, expected, actualPaths);
+        }
+        return this;
+    }
+
+    /**
+     * Assert that the query selects exactly the nodes at the specified paths in the specified order.
+     *
+     * @param expectedPaths The expected paths.
+     * @return Self.
+     */
+    public JCRQueryAssertions returnsPathsInOrder(final String... expectedPaths) {
+        final List<String> expected = Arrays.asList(expectedPaths);
+        if (!expected.equals(paths())) {
+            throw failure("Expected query [%s] to return %s in order but was %s", statement, expected, paths());
+        }
+        return this;
+    }
+
+    /**
+     * Assert that the query selects the specified number of nodes.
+     *
+     * @param expectedCount The expected number of nodes.
+     * @return Self.
+     */
+    public JCRQueryAssertions returnsCount(final long expectedCount) {
+        if (paths().size() != expectedCount) {
+            throw failure("Expected query [%s] to return %d node(s) but was %d", statement, expectedCount, paths().size());
+        }
+        return this;
+    }
+
+    /**
+     * Assert that the plan chosen for the query uses the named index. Only the index part of the plan is matched,
+     * that is the name following the index type at the start of a plan comment such as
+     * {@code /* property titleIndex(title = Hello)} or {@code /* lucene:titleIndex}, or the index definition path
+     * {@code /oak:index/titleIndex}. A property or value in the query with the same name as the index is not
+     * mistaken for it.
+     *
+     * @param indexName The name of the index definition below {@code /oak:index}.
+     * @return Self.
+     */
+    public JCRQueryAssertions usesIndex(final String indexName) {
+        final String name = Pattern.quote(indexName) + "(?![\\w-])";
+        final Pattern pattern = Pattern.compile("/\\*\\s*[\\w-]+(?::|\\s+)" + name + "|/oak:index/" + name);
+        if (!pattern.matcher(plan()).find()) {
+            throw failure("Expected query [%s] to use index [%s] but the plan was [%s]", statement, indexName, plan());
+        }
+        return this;
+    }
+
+    /**
+     * Assert that the plan chosen for the query does not traverse the content for any selector.
+     *
+     * @return Self.
+     */
+    public JCRQueryAssertions doesNotTraverse() {
+        if (TRAVERSE.matcher(plan()).find()) {
+            throw failure("Expected query [%s] not to traverse the content but the plan was [%s]", statement, plan());
+        }
+        return this;
+    }
+
+    /**
+     * Assert that the plan chosen for the query contains the specified text.
+     *
+     * @param text The text.
+     * @return Self.
+     */
+    public JCRQueryAssertions planContains(final String text) {
+        if (!plan().contains(text)) {
+            throw failure("Expected the plan for query [%s] to contain [%s] but was [%s]", statement, text, plan());
+        }
+        return this;
+    }
+
+    /**
+     * Execute the query if it has not been executed already.
+     *
+     * @return The paths of the nodes selected by the query.
+     */
+    private List<String> paths() {
+        if (paths == null) {
+            try {
+                paths = actual.query(statement);
+            } catch (final RepositoryException e) {
+                throw failure("Invalid query: [%s]: %s", statement, e.getMessage());
+            }
+        }
+        return paths;
+    }
+
+    /**
+     * Explain the query if it has not been explained already.
+     *
+     * @return The plan.
+     */
+    private String plan() {
+        if (plan == null) {
+            try {
+                plan = actual.explain(statement);
+            } catch (final RepositoryException e) {
+                throw failure("Invalid query: [%s]: %s", statement, e.getMessage());
+            }
+        }
+        return plan;
+    }
+}
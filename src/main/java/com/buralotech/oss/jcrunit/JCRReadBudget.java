@@ -0,0 +1,51 @@
+/*
+ * Copyright 2025 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.buralotech.oss.jcrunit;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * This annotation is used to limit the number of nodes and properties that a test may read through the
+ * {@link javax.jcr.Repository} injected by {@link JCRRepositoryExtension}. Every {@link javax.jcr.Node} and
+ * {@link javax.jcr.Property} handed to the code under test by a session obtained from the injected repository, whether
+ * by a lookup, an iterator or a query, counts as a read. The test fails if either budget is exceeded. Reads made by
+ * the {@link JCRRepositoryTester} itself, for example to set up content or evaluate assertions, are not counted.
+ * <p>
+ * The annotation can be applied to the test class or method. If the annotation has been applied to both the test
+ * class and the test method the annotation on the test method is used.
+ *
+ * @author <a href="mailto:bmatthews68@gmail.com">Brian Matthews</a>
+ * @since 5.0
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface JCRReadBudget {
+
+    /**
+     * The maximum number of nodes that may be read.
+     */
+    long maxNodesRead() default Long.MAX_VALUE;
+
+    /**
+     * The maximum number of properties that may be read.
+     */
+    long maxPropertiesRead() default Long.MAX_VALUE;
+}
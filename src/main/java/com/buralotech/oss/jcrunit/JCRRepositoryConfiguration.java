@@ -52,4 +52,112 @@ public @interface JCRRepositoryConfiguration {
      * Paths to XML files used to import content into a repository.
      */
     String[] importXMLs() default {};
+
+    /**
+     * Paths to XML files containing index definitions that are imported below {@code /oak:index} before the content
+     * specified by {@link #importXMLs()} is imported. Index definitions must use the system view format so that the
+     * property types required by Oak, such as the {@code Name} type of {@code propertyNames}, are preserved. The index
+     * definitions are kept when the repository is purged.
+     *
+     * @since 5.0
+     */
+    String[] indexDefinitions() default {};
+
+    /**
+     * Indicates whether the repository should be acquired from a shared pool of bootstrapped repositories. Pooled
+     * repositories are reset to their post-bootstrap state when they are returned to the pool rather than being
+     * rebuilt for every test.
+     *
+     * @since 5.0
+     */
+    boolean pooled() default false;
+
+    /**
+     * Determines how long the repository lives and which tests share it. Tests that share a repository also share its
+     * content so the {@link JCRRepositoryScope#CLASS} and {@link JCRRepositoryScope#GLOBAL} scopes are best suited to
+     * tests that only read the content imported by {@link #importXMLs()}.
+     *
+     * @since 5.0
+     */
+    JCRRepositoryScope scope() default JCRRepositoryScope.METHOD;
+
+    /**
+     * Indicates whether the {@link JCRRepositoryTester} should reuse a single session for all its operations rather
+     * than logging in and out for each operation.
+     *
+     * @since 5.0
+     */
+    boolean reuseSession() default false;
+
+    /**
+     * Indicates whether the content imported from the XML files specified by {@link #importXMLs()} should be cached.
+     * Repositories with the same options, user and index definitions start from a shared copy of the content that was
+     * captured after the first of them was set up. The first time an XML file is imported the resulting repository
+     * content is captured and subsequent tests that import the same XML file into an identical repository, with the
+     * same user and the same earlier imports, have the captured content restored instead of parsing the XML file
+     * again. When the repository differs from the one the content was captured from the XML file is imported as
+     * usual. Content is only cached for the {@link JCRNodeStore#MEMORY} node store with the
+     * {@link JCRBlobStore#MEMORY} blob store.
+     *
+     * @since 5.0
+     */
+    boolean cacheImports() default false;
+
+    /**
+     * Indicates whether the XML files specified by {@link #importXMLs()} should only be imported when the content below
+     * their root node is first accessed. Tests that only read part of a large set of fixtures then only pay for the
+     * fixtures they use. Queries, lookups by identifier and listing the children of the root node import every
+     * fixture.
+     *
+     * @since 5.0
+     */
+    boolean lazyImports() default false;
+
+    /**
+     * The number of nodes imported from the XML files specified by {@link #importXMLs()} between saves. The default of
+     * {@code 0} imports each XML file with a single save. A positive batch size streams the XML files into the
+     * repository so that very large content dumps can be imported with bounded memory.
+     *
+     * @since 5.0
+     */
+    int importBatchSize() default 0;
+
+    /**
+     * Determines which Oak features are installed in the repository. The {@link JCRRepositoryProfile#MINIMAL} profile
+     * starts faster but does not support security, versioning or indexing. The {@link #username()} and
+     * {@link #password()} are not validated and the user is not created.
+     *
+     * @since 5.0
+     */
+    JCRRepositoryProfile profile() default JCRRepositoryProfile.FULL;
+
+    /**
+     * Determines the storage engine used by the repository. The {@link JCRNodeStore#SEGMENT} and
+     * {@link JCRNodeStore#DOCUMENT} node stores let performance-sensitive tests run against the same storage engine
+     * as production at the cost of slower startup, forking and purging, and they do not use the import cache.
+     *
+     * @since 5.0
+     */
+    JCRNodeStore nodeStore() default JCRNodeStore.MEMORY;
+
+    /**
+     * Determines where the binary content of the repository is stored. Use {@link JCRBlobStore#FILE} for tests that
+     * create large binaries to keep them off the heap.
+     *
+     * @since 5.0
+     */
+    JCRBlobStore blobStore() default JCRBlobStore.MEMORY;
+
+    /**
+     * Indicates whether an image of the repository, after it was bootstrapped and the XML files specified by
+     * {@link #importXMLs()} were imported, should be cached on disk so that later test runs and Surefire forks can
+     * start from the image instead of bootstrapping the repository and importing the XML files again. Images are
+     * stored in {@code target/jcrunit-cache} unless a different directory is specified with the
+     * {@code jcrunit.imageCache.directory} system property. Only the {@link JCRNodeStore#MEMORY} node store with the
+     * {@link JCRBlobStore#MEMORY} blob store uses the image cache and it requires
+     * {@code org.apache.jackrabbit:oak-segment-tar} on the class path.
+     *
+     * @since 5.0
+     */
+    boolean cacheImage() default false;
 }
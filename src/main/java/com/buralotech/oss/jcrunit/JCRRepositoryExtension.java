@@ -16,20 +16,56 @@
 
 package com.buralotech.oss.jcrunit;
 
+import org.apache.jackrabbit.api.JackrabbitSession;
 import org.junit.jupiter.api.extension.*;
 
+import javax.jcr.Credentials;
 import javax.jcr.Repository;
 import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.SimpleCredentials;
 import java.io.IOException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * JUnit 5 (Jupiter) extension that will start an embedded JCR repository before the test method execution and
- * stop the embedded JCR repository when the test method completes.
+ * stop the embedded JCR repository when the test method completes. If the {@link JCRRepositoryConfiguration}
+ * specifies the {@link JCRRepositoryScope#CLASS} or {@link JCRRepositoryScope#GLOBAL} scope then the embedded JCR
+ * repository is shared and stopped when the test class or test run completes.
+ * <p>
+ * The extension is stateless, all state is held in the JUnit extension context stores, so it supports concurrent
+ * test execution with {@code junit.jupiter.execution.parallel.enabled}. Each test method using the
+ * {@link JCRRepositoryScope#METHOD} scope gets its own repository, pooled repositories are handed out without
+ * locking, and {@link JCRRepositoryScope#CLASS} and {@link JCRRepositoryScope#GLOBAL} repositories are launched exactly
+ * once. Tests that execute concurrently and share a repository must not depend on each other's content and must not
+ * enable {@link JCRRepositoryConfiguration#reuseSession()} because a session cannot be used by more than one thread.
+ * <p>
+ * The repository work performed on behalf of each test, namely the startup and fixture import times, the number of
+ * sessions opened, commits, nodes written and blob bytes stored, is emitted as a {@code com.buralotech.oss.jcrunit.Test}
+ * Java Flight Recorder event. If the {@code jcrunit.metrics.enabled} configuration parameter is {@code true} the
+ * metrics are also published as a report entry for each test and summarised at the end of the test run.
+ * <p>
+ * If the test is annotated with {@link JCRReadBudget} the injected {@link Repository} counts the nodes and properties
+ * read through it and the test fails if it reads more than the budget allows.
+ * <p>
+ * {@link Session} and {@link JackrabbitSession} parameters are logged in through the injected {@link Repository} with
+ * the credentials of the {@link JCRRepositoryConfiguration} or those given by {@link JCRSessionUser}. Parameters for
+ * the same user share one session for the test and its {@code @BeforeEach} methods, and the session is logged out
+ * when the test completes. Sessions that the test logged in through the injected {@link Repository} and left live are
+ * logged out with a warning, because every live session pins the root revision it was last refreshed with.
  *
  * @author <a href="mailto:bmatthews68@gmail.com">Brian Matthews</a>
  * @since 3.0
  */
-public class JCRRepositoryExtension implements BeforeEachCallback, AfterEachCallback, ParameterResolver {
+public class JCRRepositoryExtension implements BeforeAllCallback, BeforeEachCallback, AfterEachCallback, ParameterResolver {
+
+    /**
+     * The namespace used to store the JCR repository helpers that are shared by tests.
+     */
+    private static final ExtensionContext.Namespace SHARED = ExtensionContext.Namespace.create(JCRRepositoryExtension.class);
 
     /**
      * The name of the property used to cache the reference to the JCR repository helper.
@@ -41,9 +77,72 @@ public class JCRRepositoryExtension implements BeforeEachCallback, AfterEachCall
      */
     private static final String REPOSITORY = "repository";
 
+    /**
+     * The name of the property used to cache the leak detection marker taken before the test method was executed.
+     */
+    private static final String LEAK_MARKER = "leakMarker";
+
+    /**
+     * The name of the property used to indicate that the JCR repository helper is owned by the test method.
+     */
+    private static final String OWNED = "owned";
+
+    /**
+     * The name of the property used to cache the metrics of the JCR repository helper before the test method was
+     * executed.
+     */
+    private static final String METRICS = "metrics";
+
+    /**
+     * The name of the property used to cache the read budget of the test method.
+     */
+    private static final String READ_BUDGET = "readBudget";
+
+    /**
+     * The name of the property used to cache the sessions injected into the test method keyed by username.
+     */
+    private static final String SESSIONS = "sessions";
+
+    /**
+     * The name of the property used to cache the tracker of the sessions logged in through the injected repository.
+     */
+    private static final String SESSION_TRACKER = "sessionTracker";
+
+    /**
+     * The name of the property used to record that the startup and import times of a shared JCR repository helper
+     * have been reported.
+     */
+    private static final String SETUP_REPORTED = "setupReported";
+
+    /**
+     * Used to warn about sessions that were left live by a test.
+     */
+    private static final System.Logger LOGGER = System.getLogger(JCRRepositoryExtension.class.getName());
+
+    /**
+     * The name of the configuration parameter used to enable the metrics report entries and summary.
+     */
+    static final String METRICS_ENABLED = "jcrunit.metrics.enabled";
+
+    /**
+     * This callback is invoked before the first test method in the test class is executed and is responsible for
+     * starting the shared embedded JCR repository if the test class is annotated with the
+     * {@link JCRRepositoryScope#CLASS} or {@link JCRRepositoryScope#GLOBAL} scope.
+     *
+     * @param context – the extension context for the test class; never {@code null}.
+     */
+    @Override
+    public void beforeAll(final ExtensionContext context) {
+        final JCRRepositoryConfiguration annotation = context.getRequiredTestClass()
+                .getAnnotation(JCRRepositoryConfiguration.class);
+        if (annotation != null && annotation.scope() != JCRRepositoryScope.METHOD) {
+            getSharedHelper(context, annotation);
+        }
+    }
+
     /**
      * This callback is invoked before the test method is executed and is responsible for starting the embedded
-     * JCR repository.
+     * JCR repository or locating the shared embedded JCR repository.
      *
      * @param context – the extension context for the Executable about to be invoked; never {@code null}.
      */
@@ -51,20 +150,36 @@ public class JCRRepositoryExtension implements BeforeEachCallback, AfterEachCall
     public void beforeEach(final ExtensionContext context) {
         final JCRRepositoryConfiguration annotation = getAnnotation(context);
         if (annotation != null) {
-            try {
-                final JCRRepositoryTester helper = JCRRepositoryTester.createHelper(annotation);
-                final ExtensionContext.Store store = getStore(context);
-                store.put(HELPER, helper);
-                store.put(REPOSITORY, helper.getRepository());
-            } catch (final IOException | RepositoryException e) {
-                throw new AssertionError("Failed to launch embedded JCR repository", e);
+            final ExtensionContext.Store store = getStore(context);
+            final JCRRepositoryTester helper;
+            if (annotation.scope() == JCRRepositoryScope.METHOD) {
+                helper = launch(annotation);
+                store.put(OWNED, Boolean.TRUE);
+                store.put(METRICS, RepositoryMetrics.Snapshot.EMPTY);
+            } else {
+                helper = getSharedHelper(context, annotation);
+                helper.beginTest();
+                final RepositoryMetrics.Snapshot baseline = helper.getMetrics().snapshot();
+                store.put(METRICS, claimSetup(context, annotation) ? baseline.withoutSetup() : baseline);
             }
+            store.put(HELPER, helper);
+            final SessionTracker tracker = new SessionTracker(helper.getMetrics());
+            store.put(SESSION_TRACKER, tracker);
+            final JCRReadBudget readBudget = getReadBudget(context);
+            if (readBudget == null) {
+                store.put(REPOSITORY, tracker.wrap(helper.getRepository()));
+            } else {
+                final ReadBudget budget = new ReadBudget(readBudget);
+                store.put(READ_BUDGET, budget);
+                store.put(REPOSITORY, budget.wrap(tracker.wrap(helper.getRepository())));
+            }
+            store.put(LEAK_MARKER, LeakDetector.mark());
         }
     }
 
     /**
      * This callback is invoked after the test method is executed and is responsible for stopping the embedded
-     * JCR repository.
+     * JCR repository. The test fails if any other embedded JCR repositories opened during the test were not closed.
      *
      * @param context – the extension context for the Executable about to be invoked; never {@code null}.
      */
@@ -72,8 +187,80 @@ public class JCRRepositoryExtension implements BeforeEachCallback, AfterEachCall
     public void afterEach(final ExtensionContext context) {
         final ExtensionContext.Store store = getStore(context);
         if (store != null) {
+            logoutSessions(context, store);
             store.remove(REPOSITORY);
-            store.remove(HELPER);
+            final JCRRepositoryTester helper = store.remove(HELPER, JCRRepositoryTester.class);
+            final RepositoryMetrics.Snapshot baseline = store.remove(METRICS, RepositoryMetrics.Snapshot.class);
+            try {
+                if (helper != null && baseline != null) {
+                    report(context, helper.getMetrics().snapshot().minus(baseline));
+                }
+                if (helper != null && Boolean.TRUE.equals(store.remove(OWNED, Boolean.class))) {
+                    try {
+                        helper.close();
+                    } catch (final RepositoryException e) {
+                        throw new AssertionError("Failed to stop embedded JCR repository", e);
+                    }
+                } else if (helper != null) {
+                    helper.endTest();
+                }
+            } finally {
+                final Long marker = store.remove(LEAK_MARKER, Long.class);
+                final ReadBudget budget = store.remove(READ_BUDGET, ReadBudget.class);
+                try {
+                    if (marker != null) {
+                        LeakDetector.verify(marker);
+                    }
+                } finally {
+                    if (budget != null) {
+                        budget.verify();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Log out the sessions injected into the test method and any sessions the test logged in through the injected
+     * repository but did not log out, warning about the latter.
+     *
+     * @param context The extension context for the test method; never {@code null}.
+     * @param store   The context store for the test method.
+     */
+    @SuppressWarnings("unchecked")
+    private void logoutSessions(final ExtensionContext context,
+                                final ExtensionContext.Store store) {
+        final Map<Object, Session> sessions = store.remove(SESSIONS, Map.class);
+        if (sessions != null) {
+            sessions.values().forEach(Session::logout);
+        }
+        final SessionTracker tracker = store.remove(SESSION_TRACKER, SessionTracker.class);
+        if (tracker != null) {
+            final int live = tracker.logoutLive();
+            if (live > 0) {
+                LOGGER.log(System.Logger.Level.WARNING,
+                        "{0} session(s) were still live at the end of {1}.{2} and have been logged out. Each live session pins old revisions and their memory.",
+                        live, context.getRequiredTestClass().getSimpleName(), context.getDisplayName());
+            }
+        }
+    }
+
+    /**
+     * Report the repository work performed on behalf of a test as a Java Flight Recorder event and, if enabled, as a
+     * report entry and in the summary printed at the end of the test run.
+     *
+     * @param context The extension context for the test method; never {@code null}.
+     * @param metrics The metrics accumulated by the test.
+     */
+    private void report(final ExtensionContext context,
+                        final RepositoryMetrics.Snapshot metrics) {
+        RepositoryMetricsEvent.emit(context.getUniqueId(), metrics);
+        if (context.getConfigurationParameter(METRICS_ENABLED, Boolean::parseBoolean).orElse(false)) {
+            context.publishReportEntry(metrics.toReportEntry());
+            context.getRoot()
+                    .getStore(SHARED)
+                    .getOrComputeIfAbsent(MetricsSummary.class, key -> new MetricsSummary(System.out), MetricsSummary.class)
+                    .record(context.getRequiredTestClass().getSimpleName() + "." + context.getDisplayName(), metrics);
         }
     }
 
@@ -83,14 +270,17 @@ public class JCRRepositoryExtension implements BeforeEachCallback, AfterEachCall
      * @param parameterContext The context for the parameter for which an argument should be resolved;
      *                         never {@code null}.
      * @param extensionContext The extension context for the Executable about to be invoked; never {@code null}.
-     * @return {@code true} if the parameter type is {@link JCRRepositoryTester} or {@link Repository}.
-     * Otherwise, {@code false}.
+     * @return {@code true} if the parameter type is {@link JCRRepositoryTester}, {@link Repository}, {@link Session} or
+     * {@link JackrabbitSession}. Otherwise, {@code false}.
      */
     @Override
     public boolean supportsParameter(final ParameterContext parameterContext,
                                      final ExtensionContext extensionContext) throws ParameterResolutionException {
         final Class<?> parameterType = parameterContext.getParameter().getType();
-        return JCRRepositoryTester.class.equals(parameterType) || Repository.class.equals(parameterType);
+        return JCRRepositoryTester.class.equals(parameterType)
+                || Repository.class.equals(parameterType)
+                || Session.class.equals(parameterType)
+                || JackrabbitSession.class.equals(parameterType);
     }
 
     /**
@@ -107,15 +297,167 @@ public class JCRRepositoryExtension implements BeforeEachCallback, AfterEachCall
                                    final ExtensionContext extensionContext)
             throws ParameterResolutionException {
         final Class<?> parameterType = parameterContext.getParameter().getType();
-        if (JCRRepositoryTester.class.equals(parameterType)) {
+        if (extensionContext.getTestMethod().isEmpty()) {
+            return resolveSharedParameter(parameterType, extensionContext);
+        } else if (JCRRepositoryTester.class.equals(parameterType)) {
             return getStore(extensionContext).get(HELPER, JCRRepositoryTester.class);
         } else if (Repository.class.equals(parameterType)) {
             return getStore(extensionContext).get(REPOSITORY, Repository.class);
+        } else if (Session.class.equals(parameterType) || JackrabbitSession.class.equals(parameterType)) {
+            final Session session = resolveSession(parameterContext, extensionContext);
+            if (!parameterType.isInstance(session)) {
+                throw new ParameterResolutionException("The embedded JCR repository did not provide a " + parameterType.getSimpleName());
+            }
+            return session;
         } else {
             return null;
         }
     }
 
+    /**
+     * Resolve a {@link Session} parameter by logging in through the injected repository with the credentials given by
+     * {@link JCRSessionUser} or, if the parameter is not annotated, the credentials of the repository helper. The
+     * session is shared by all the parameters of the test method and its {@code @BeforeEach} methods with the same
+     * credentials.
+     *
+     * @param parameterContext The context for the parameter; never {@code null}.
+     * @param extensionContext The extension context for the test method; never {@code null}.
+     * @return The session.
+     * @throws ParameterResolutionException If the test is not configured with a JCR repository or the login failed.
+     */
+    @SuppressWarnings("unchecked")
+    private Session resolveSession(final ParameterContext parameterContext,
+                                   final ExtensionContext extensionContext) {
+        final ExtensionContext.Store store = getStore(extensionContext);
+        final Repository repository = store.get(REPOSITORY, Repository.class);
+        final JCRRepositoryTester helper = store.get(HELPER, JCRRepositoryTester.class);
+        if (repository == null || helper == null) {
+            throw new ParameterResolutionException("Test is not configured with a JCR repository");
+        }
+        final Optional<JCRSessionUser> user = parameterContext.findAnnotation(JCRSessionUser.class);
+        final Credentials credentials = user
+                .<Credentials>map(annotation -> new SimpleCredentials(annotation.username(), annotation.password().toCharArray()))
+                .orElseGet(helper::getCredentials);
+        final String username = credentials instanceof SimpleCredentials simpleCredentials
+                ? simpleCredentials.getUserID()
+                : "";
+        final Object sessionKey = credentials instanceof SimpleCredentials simpleCredentials
+                ? Map.entry(username, String.valueOf(simpleCredentials.getPassword()))
+                : credentials;
+        final Map<Object, Session> sessions = store.getOrComputeIfAbsent(SESSIONS, key -> new ConcurrentHashMap<Object, Session>(), Map.class);
+        return sessions.computeIfAbsent(sessionKey, key -> {
+            try {
+                return repository.login(credentials);
+            } catch (final RepositoryException e) {
+                throw new ParameterResolutionException("Failed to log in to the embedded JCR repository as " + username, e);
+            }
+        });
+    }
+
+    /**
+     * Resolve {@link JCRRepositoryTester} or {@link Repository} parameters for class level lifecycle methods such as
+     * those annotated with {@code @BeforeAll} using the shared JCR repository helper.
+     *
+     * @param parameterType    The parameter type.
+     * @param extensionContext The extension context for the test class; never {@code null}.
+     * @return The resolved parameter.
+     * @throws ParameterResolutionException If the test class is not annotated with a shared scope.
+     */
+    private Object resolveSharedParameter(final Class<?> parameterType,
+                                          final ExtensionContext extensionContext) {
+        final JCRRepositoryConfiguration annotation = extensionContext.getRequiredTestClass()
+                .getAnnotation(JCRRepositoryConfiguration.class);
+        if (annotation == null || annotation.scope() == JCRRepositoryScope.METHOD) {
+            throw new ParameterResolutionException("Test class does not declare a CLASS or GLOBAL scoped JCR repository");
+        }
+        if (Session.class.equals(parameterType) || JackrabbitSession.class.equals(parameterType)) {
+            throw new ParameterResolutionException("Sessions can only be injected into test methods and their @BeforeEach methods");
+        }
+        final JCRRepositoryTester helper = getSharedHelper(extensionContext, annotation);
+        return JCRRepositoryTester.class.equals(parameterType) ? helper : helper.getRepository();
+    }
+
+    /**
+     * Get or launch the JCR repository helper shared by tests in the test class or by all tests in the test run. The
+     * shared helpers are keyed by their configuration and are closed by JUnit when the owning extension context is
+     * closed.
+     *
+     * @param context    The extension context; never {@code null}.
+     * @param annotation The configuration with a {@link JCRRepositoryScope#CLASS} or {@link JCRRepositoryScope#GLOBAL}
+     *                   scope.
+     * @return The shared JCR repository helper.
+     */
+    private JCRRepositoryTester getSharedHelper(final ExtensionContext context,
+                                                final JCRRepositoryConfiguration annotation) {
+        return getSharedStore(context, annotation)
+                .getOrComputeIfAbsent(annotation, key -> {
+                    final JCRRepositoryTester helper = launch(annotation);
+                    LeakDetector.exclude(helper);
+                    return helper;
+                }, JCRRepositoryTester.class);
+    }
+
+    /**
+     * Check if a test is the first to use a shared JCR repository helper. The startup and import times of the shared
+     * repository are reported against the first test that uses it.
+     *
+     * @param context    The extension context for the test method; never {@code null}.
+     * @param annotation The configuration with a {@link JCRRepositoryScope#CLASS} or {@link JCRRepositoryScope#GLOBAL}
+     *                   scope.
+     * @return {@code true} if the test is the first to use the shared JCR repository helper. Otherwise, {@code false}.
+     */
+    private boolean claimSetup(final ExtensionContext context,
+                               final JCRRepositoryConfiguration annotation) {
+        return getSharedStore(context, annotation)
+                .getOrComputeIfAbsent(Map.entry(SETUP_REPORTED, annotation), key -> new AtomicBoolean(), AtomicBoolean.class)
+                .compareAndSet(false, true);
+    }
+
+    /**
+     * Locate the store holding the JCR repository helpers shared by tests in the test class or by all tests in the
+     * test run.
+     *
+     * @param context    The extension context; never {@code null}.
+     * @param annotation The configuration with a {@link JCRRepositoryScope#CLASS} or {@link JCRRepositoryScope#GLOBAL}
+     *                   scope.
+     * @return The store.
+     */
+    private ExtensionContext.Store getSharedStore(final ExtensionContext context,
+                                                  final JCRRepositoryConfiguration annotation) {
+        final ExtensionContext owner = annotation.scope() == JCRRepositoryScope.GLOBAL
+                ? context.getRoot()
+                : getClassContext(context);
+        return owner.getStore(SHARED);
+    }
+
+    /**
+     * Locate the extension context for the test class.
+     *
+     * @param context The extension context; never {@code null}.
+     * @return The extension context for the test class.
+     */
+    private ExtensionContext getClassContext(final ExtensionContext context) {
+        ExtensionContext current = context;
+        while (current.getTestMethod().isPresent() && current.getParent().isPresent()) {
+            current = current.getParent().get();
+        }
+        return current;
+    }
+
+    /**
+     * Launch an embedded JCR repository.
+     *
+     * @param annotation The configuration.
+     * @return The JCR repository helper.
+     */
+    private JCRRepositoryTester launch(final JCRRepositoryConfiguration annotation) {
+        try {
+            return JCRRepositoryTester.createHelper(annotation);
+        } catch (final IOException | RepositoryException e) {
+            throw new AssertionError("Failed to launch embedded JCR repository", e);
+        }
+    }
+
     /**
      * Get teh context storage for the method invocation.
      *
@@ -129,6 +471,23 @@ public class JCRRepositoryExtension implements BeforeEachCallback, AfterEachCall
         return extensionContext.getStore(namespace);
     }
 
+    /**
+     * Locate the annotation that specifies the read budget of the test. The annotation is sought on the test method
+     * declaration before falling back to check the test class.
+     *
+     * @param extensionContext – the extension context for the Executable about to be invoked; never {@code null}.
+     * @return The {@code JCRReadBudget} annotation if found. Otherwise, {@code null}.
+     */
+    private JCRReadBudget getReadBudget(final ExtensionContext extensionContext) {
+        final JCRReadBudget annotation = extensionContext.getRequiredTestMethod()
+                .getAnnotation(JCRReadBudget.class);
+        if (annotation == null) {
+            return extensionContext.getRequiredTestClass().getAnnotation(JCRReadBudget.class);
+        } else {
+            return annotation;
+        }
+    }
+
     /**
      * Locate the annotation that specifies the configuration for the content repository. The annotation is
      * sought on the test method declaration before falling back to check the test class.
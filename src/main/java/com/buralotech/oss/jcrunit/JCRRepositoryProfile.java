@@ -0,0 +1,48 @@
+/*
+ * Copyright 2025 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.buralotech.oss.jcrunit;
+
+/**
+ * Determines which Oak features are installed in an embedded repository.
+ *
+ * @author <a href="mailto:bmatthews68@gmail.com">Brian Matthews</a>
+ * @since 5.0
+ */
+public enum JCRRepositoryProfile {
+
+    /**
+     * The full set of initialisers, editors, index providers and security that Oak installs by default.
+     */
+    FULL,
+
+    /**
+     * Only the initial content, namespace and node type validation, name validation and conflict handling are
+     * installed. The bootstrap skips the security, version and index initialisers and each save runs fewer commit
+     * hooks but the following features are unavailable:
+     * <ul>
+     * <li>Security. Any credentials are accepted, every session has full access, and user and access control
+     * management are not supported. The configured user is not created.</li>
+     * <li>Versioning. The version storage is not maintained so {@code mix:versionable} nodes cannot be checked in or
+     * restored.</li>
+     * <li>Indexes. The property, node type, reference and counter indexes are not maintained so queries and
+     * identifier lookups traverse the content.</li>
+     * <li>Referential integrity. {@code REFERENCE} properties are not checked and {@code Node.getReferences()} does
+     * not find them.</li>
+     * <li>Atomic counters.</li>
+     * </ul>
+     */
+    MINIMAL
+}
@@ -16,19 +16,23 @@
 
 package com.buralotech.oss.jcrunit;
 
-import org.apache.jackrabbit.oak.Oak;
-import org.apache.jackrabbit.oak.jcr.Jcr;
 import org.assertj.core.api.AssertProvider;
 import org.junit.rules.ExternalResource;
 
 import javax.jcr.*;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
 import java.util.Optional;
 
 /**
  * A JUnit Rule to help test applications that use the Java Content Repository API. This rule creates an in-memory
  * content repository using <a href="https://jackrabbit.apache.org/oak/">Jackrabbit Oak</a>.
+ * <p>
+ * A rule holds the repository of the test case that is being run, so it must be declared as an instance field and
+ * not shared between test class instances. JUnit creates a test class instance per test case and each instance
+ * launches its own repository so test cases that are executed concurrently do not share repositories.
  *
  * @author <a href="mailto:brian.matthews@buralo.com">Brian Matthews</a>
  * @since 1.0
@@ -40,15 +44,35 @@ public final class JCRRepositoryRule extends ExternalResource implements AssertP
      */
     private final Credentials credentials;
 
+    /**
+     * Indicates whether nodes created in the repository should be referenceable.
+     */
+    private boolean referenceable;
+
+    /**
+     * Indicates whether the repository should be acquired from a shared pool of bootstrapped repositories.
+     */
+    private boolean pooled;
+
+    /**
+     * Indicates whether a single session should be reused for all operations.
+     */
+    private boolean reuseSession;
+
+    /**
+     * The options that determine how the embedded repository is constructed.
+     */
+    private RepositoryOptions options = RepositoryOptions.DEFAULT;
+
     /**
      * The JCR repository helper.
      */
     private JCRRepositoryTester repositoryHelper;
 
     /**
-     * Indicates whether nodes created in the repository should be referenceable.
+     * The leak detection marker taken before the test case was run.
      */
-    private boolean referenceable;
+    private long leakMarker;
 
     /**
      * Private constructor to initialise the rule state with the credentials.
@@ -102,27 +126,105 @@ public final class JCRRepositoryRule extends ExternalResource implements AssertP
         return new JCRRepositoryRule(credentials);
     }
 
+    /**
+     * Configure whether nodes created in the repository should be referenceable.
+     *
+     * @param referenceable {@code true} if nodes created in the repository should be referenceable.
+     * @return A reference to <code>this</code> to allow fluent-style chaining of invocations.
+     */
     public JCRRepositoryRule withReferenable(final boolean referenceable) {
         this.referenceable = referenceable;
         return this;
     }
 
+    /**
+     * Configure whether the repository should be acquired from a shared pool of bootstrapped repositories. Pooled
+     * repositories are reset to their post-bootstrap state when they are returned to the pool rather than being
+     * rebuilt for every test.
+     *
+     * @param pooled {@code true} if the repository should be acquired from the pool.
+     * @return A reference to <code>this</code> to allow fluent-style chaining of invocations.
+     * @since 5.0
+     */
+    public JCRRepositoryRule withPooling(final boolean pooled) {
+        this.pooled = pooled;
+        return this;
+    }
+
+    /**
+     * Configure whether a single session should be reused for all operations rather than logging in and out for
+     * each operation.
+     *
+     * @param reuseSession {@code true} if a single session should be reused.
+     * @return A reference to <code>this</code> to allow fluent-style chaining of invocations.
+     * @since 5.0
+     */
+    public JCRRepositoryRule withSessionReuse(final boolean reuseSession) {
+        this.reuseSession = reuseSession;
+        return this;
+    }
+
+    /**
+     * Configure which Oak features are installed in the repository.
+     *
+     * @param profile Determines which Oak features are installed.
+     * @return A reference to <code>this</code> to allow fluent-style chaining of invocations.
+     * @since 5.0
+     */
+    public JCRRepositoryRule withProfile(final JCRRepositoryProfile profile) {
+        options = options.withProfile(profile);
+        return this;
+    }
+
+    /**
+     * Configure the storage engine used by the repository.
+     *
+     * @param nodeStore Determines the storage engine.
+     * @return A reference to <code>this</code> to allow fluent-style chaining of invocations.
+     * @since 5.0
+     */
+    public JCRRepositoryRule withNodeStore(final JCRNodeStore nodeStore) {
+        options = options.withNodeStore(nodeStore);
+        return this;
+    }
+
+    /**
+     * Configure where the binary content of the repository is stored.
+     *
+     * @param blobStore Determines where binary content is stored.
+     * @return A reference to <code>this</code> to allow fluent-style chaining of invocations.
+     * @since 5.0
+     */
+    public JCRRepositoryRule withBlobStore(final JCRBlobStore blobStore) {
+        options = options.withBlobStore(blobStore);
+        return this;
+    }
+
     /**
      * Invoked by JUnit before the test case is run and is responsible for instantiating the in-memory JCR
      * repository.
      */
     @Override
     public void before() {
-        repositoryHelper = new JCRRepositoryTester(new Jcr(new Oak()).createRepository(), credentials, referenceable);
+        leakMarker = LeakDetector.mark();
+        repositoryHelper = JCRRepositoryTester.createHelper(credentials, referenceable, options, pooled, reuseSession);
     }
 
     /**
-     * Invoked by JUnit after test case has completed and is responsible for resetting the rule allowing the
-     * in-memory JCR repository to be garbage collected.
+     * Invoked by JUnit after test case has completed and is responsible for stopping the in-memory JCR repository
+     * and resetting the rule. The test fails if any other embedded JCR repositories opened during the test case
+     * were not closed.
      */
     @Override
     public void after() {
-        repositoryHelper = null;
+        try {
+            repositoryHelper.close();
+        } catch (final RepositoryException e) {
+            throw new AssertionError("Failed to stop embedded JCR repository", e);
+        } finally {
+            repositoryHelper = null;
+            LeakDetector.verify(leakMarker);
+        }
     }
 
     /**
@@ -220,6 +322,70 @@ public final class JCRRepositoryRule extends ExternalResource implements AssertP
         return this;
     }
 
+    /**
+     * Create a file in the repository streaming the content from a file on the local file system.
+     *
+     * @param path     The fully qualified path of the parent folder.
+     * @param name     The name of the file to be created.
+     * @param type     The content type of the file.
+     * @param encoding The content encoding of the file.
+     * @param source   The file on the local file system that provides the binary content of the file.
+     * @return A reference to {@code this} to allow fluent-style chaining of invocations.
+     * @since 5.0
+     */
+    public JCRRepositoryRule createFile(final String path,
+                                        final String name,
+                                        final String type,
+                                        final String encoding,
+                                        final Path source)
+            throws IOException, RepositoryException {
+        repositoryHelper.createFile(path, name, type, encoding, source);
+        return this;
+    }
+
+    /**
+     * Create a file in the repository streaming the content from a channel.
+     *
+     * @param path     The fully qualified path of the parent folder.
+     * @param name     The name of the file to be created.
+     * @param type     The content type of the file.
+     * @param encoding The content encoding of the file.
+     * @param channel  The channel that provides the binary content of the file.
+     * @return A reference to {@code this} to allow fluent-style chaining of invocations.
+     * @since 5.0
+     */
+    public JCRRepositoryRule createFile(final String path,
+                                        final String name,
+                                        final String type,
+                                        final String encoding,
+                                        final ReadableByteChannel channel)
+            throws RepositoryException {
+        repositoryHelper.createFile(path, name, type, encoding, channel);
+        return this;
+    }
+
+    /**
+     * Start building a tree of folders and files below the root of the repository that is committed with a single
+     * save.
+     *
+     * @return The tree builder.
+     * @since 5.0
+     */
+    public JCRTreeBuilder tree() {
+        return repositoryHelper.tree();
+    }
+
+    /**
+     * Start building a tree of folders and files below an existing folder that is committed with a single save.
+     *
+     * @param path The fully qualified path of the parent folder.
+     * @return The tree builder.
+     * @since 5.0
+     */
+    public JCRTreeBuilder tree(final String path) {
+        return repositoryHelper.tree(path);
+    }
+
     /**
      * Assert that a folder exists in the repository.
      *
@@ -289,6 +455,20 @@ public final class JCRRepositoryRule extends ExternalResource implements AssertP
         return this;
     }
 
+    /**
+     * Purge content from the embedded repository by restoring a root node state recorded when the repository was
+     * launched.
+     *
+     * @param scope Determines which content is removed.
+     * @return A reference to {@code this} to allow fluent-style chaining of invocations.
+     * @throws RepositoryException If there was a problem purging the content.
+     * @since 5.0
+     */
+    public JCRRepositoryRule purge(final JCRPurgeScope scope) throws RepositoryException {
+        repositoryHelper.purge(scope);
+        return this;
+    }
+
     /**
      * Verify that the node at the specified path is the expected type.
      *
@@ -332,6 +512,20 @@ public final class JCRRepositoryRule extends ExternalResource implements AssertP
     }
 
 
+    /**
+     * Perform an operation using a session.
+     *
+     * @param callback The operation.
+     * @param <T>      The result type.
+     * @return The result of the operation.
+     * @throws RepositoryException If there was a problem performing the operation.
+     * @see JCRRepositoryTester#inSession(JCRRepositoryTester.SessionCallback)
+     * @since 5.0
+     */
+    public <T> T inSession(final JCRRepositoryTester.SessionCallback<T> callback) throws RepositoryException {
+        return repositoryHelper.inSession(callback);
+    }
+
     @Override
     public JCRAssertions assertThat() {
         return repositoryHelper.assertThat();
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2025 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buralotech.oss.jcrunit;
+
+/**
+ * Determines how long an embedded JCR repository launched by the {@link JCRRepositoryExtension} lives and which
+ * tests share it.
+ *
+ * @author <a href="mailto:bmatthews68@gmail.com">Brian Matthews</a>
+ * @since 5.0
+ */
+public enum JCRRepositoryScope {
+
+    /**
+     * A repository is launched before each test method and stopped when the test method completes.
+     */
+    METHOD,
+
+    /**
+     * A repository is launched before the first test method in the test class and stopped after the last test method
+     * in the test class has completed. The repository is shared by all test methods in the test class that use the
+     * same configuration.
+     */
+    CLASS,
+
+    /**
+     * A repository is launched by the first test that needs it and stopped when the test engine has finished
+     * executing all tests. The repository is shared by all tests in the test run that use the same configuration.
+     */
+    GLOBAL
+}
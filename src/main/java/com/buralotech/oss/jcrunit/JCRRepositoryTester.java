@@ -17,37 +17,76 @@
 package com.buralotech.oss.jcrunit;
 
 import org.apache.jackrabbit.api.JackrabbitSession;
-import org.apache.jackrabbit.oak.Oak;
-import org.apache.jackrabbit.oak.jcr.Jcr;
+import org.apache.jackrabbit.oak.spi.state.NodeState;
 import org.assertj.core.api.AssertProvider;
 
 import javax.jcr.*;
+import javax.jcr.query.Query;
+import javax.jcr.query.RowIterator;
 import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongConsumer;
 
 import static javax.jcr.ImportUUIDBehavior.IMPORT_UUID_COLLISION_THROW;
 import static javax.jcr.Node.JCR_CONTENT;
 import static javax.jcr.Property.*;
 import static javax.jcr.nodetype.NodeType.*;
+import static org.apache.jackrabbit.oak.plugins.index.IndexConstants.INDEX_DEFINITIONS_NAME;
+import static org.apache.jackrabbit.oak.plugins.index.IndexConstants.INDEX_DEFINITIONS_NODE_TYPE;
+import static org.apache.jackrabbit.oak.plugins.index.IndexConstants.PROPERTY_NAMES;
+import static org.apache.jackrabbit.oak.plugins.index.IndexConstants.REINDEX_PROPERTY_NAME;
+import static org.apache.jackrabbit.oak.plugins.index.IndexConstants.TYPE_PROPERTY_NAME;
 import static org.junit.Assert.assertTrue;
 
 /**
  * A JUnit Rule to help test applications that use the Java Content Repository API. This rule creates an in-memory
  * content repository using <a href="https://jackrabbit.apache.org/oak/">Jackrabbit Oak</a>.
+ * <p>
+ * Unless session reuse is enabled every operation uses its own session so a repository helper can be used by multiple
+ * threads. With session reuse enabled the repository helper must only be used by one thread at a time.
  *
  * @author <a href="mailto:brian.matthews@buralo.com">Brian Matthews</a>
  * @since 3.0
  */
-public final class JCRRepositoryTester implements AssertProvider<JCRAssertions> {
+public final class JCRRepositoryTester implements AssertProvider<JCRAssertions>, AutoCloseable {
 
     @FunctionalInterface
     public interface CreationCallback {
         void accept(Node node) throws RepositoryException;
     }
 
+    /**
+     * Defines the contract for operations that are performed using a session.
+     *
+     * @param <T> The result type.
+     * @since 5.0
+     */
+    @FunctionalInterface
+    public interface SessionCallback<T> {
+        /**
+         * Perform the operation.
+         *
+         * @param session The session.
+         * @return The result.
+         * @throws RepositoryException If there was a problem performing the operation.
+         */
+        T apply(Session session) throws RepositoryException;
+    }
+
     /**
      * The default username and password.
      */
@@ -74,16 +113,127 @@ public final class JCRRepositoryTester implements AssertProvider<JCRAssertions>
     private final boolean referenceable;
 
     /**
-     * Initialise the helper state with the repository and credentials.
+     * The embedded repository if the repository is managed by JCR Unit. Otherwise, {@code null}.
+     */
+    private final EmbeddedRepository embeddedRepository;
+
+    /**
+     * Indicates if the embedded repository was acquired from the {@link RepositoryPool}.
+     */
+    private final boolean pooled;
+
+    /**
+     * Indicates if the repository helper has been closed.
+     */
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    /**
+     * Indicates if a single session should be reused by all operations instead of logging in for each operation.
+     */
+    private final boolean reuseSession;
+
+    /**
+     * The session reused by all operations if session reuse is enabled and the session has been opened. Otherwise,
+     * {@code null}.
+     */
+    private Session session;
+
+    /**
+     * The cost of the repository work performed on behalf of the repository helper.
+     */
+    private final RepositoryMetrics metrics = new RepositoryMetrics();
+
+    /**
+     * The root node state of the embedded repository after it was bootstrapped and the configured user was created.
+     */
+    private NodeState contentCheckpoint;
+
+    /**
+     * The root node state of the embedded repository when the repository helper was handed to the test. Shared
+     * repository helpers record a new checkpoint at the start of each test.
+     */
+    private volatile NodeState testCheckpoint;
+
+    /**
+     * The number of tests that are currently using the repository helper.
+     */
+    private final AtomicInteger activeTests = new AtomicInteger();
+
+    /**
+     * The XML files whose import is deferred until their content is accessed or {@code null} if imports are not
+     * deferred.
+     */
+    private LazyFixtures lazyFixtures;
+
+    /**
+     * The paths of the XML files containing the index definitions that were imported when the repository helper was
+     * created. Fixtures captured with different index definitions are not interchangeable.
+     */
+    private List<String> indexDefinitions = List.of();
+
+    /**
+     * The paths of the resources imported via the {@link FixtureCache} so far, in order. Fixtures captured on top of
+     * different imports are not interchangeable.
+     */
+    private final List<String> cachedImports = new ArrayList<>();
+
+    /**
+     * Initialise the helper state with the repository and credentials. The repository is owned by the caller and
+     * will not be shut down when the helper is closed.
      *
      * @param credentials The credentials.
      */
     public JCRRepositoryTester(final Repository repository,
                                final Credentials credentials,
                                final boolean referenceable) {
+        this(repository, credentials, referenceable, false);
+    }
+
+    /**
+     * Initialise the helper state with the repository and credentials. The repository is owned by the caller and
+     * will not be shut down when the helper is closed.
+     *
+     * @param repository    The repository.
+     * @param credentials   The credentials.
+     * @param referenceable Indicates if the created nodes should be referenceable.
+     * @param reuseSession  Indicates if a single session should be reused by all operations.
+     * @since 5.0
+     */
+    public JCRRepositoryTester(final Repository repository,
+                               final Credentials credentials,
+                               final boolean referenceable,
+                               final boolean reuseSession) {
         this.repository = repository;
         this.credentials = credentials;
         this.referenceable = referenceable;
+        this.reuseSession = reuseSession;
+        this.embeddedRepository = null;
+        this.pooled = false;
+    }
+
+    /**
+     * Initialise the helper state with an embedded repository and credentials.
+     *
+     * @param embeddedRepository The embedded repository.
+     * @param pooled             Indicates if the embedded repository was acquired from the {@link RepositoryPool}.
+     * @param credentials        The credentials.
+     * @param referenceable      Indicates if the created nodes should be referenceable.
+     * @param reuseSession       Indicates if a single session should be reused by all operations.
+     */
+    JCRRepositoryTester(final EmbeddedRepository embeddedRepository,
+                        final boolean pooled,
+                        final Credentials credentials,
+                        final boolean referenceable,
+                        final boolean reuseSession) {
+        this.repository = embeddedRepository.getRepository();
+        this.credentials = credentials;
+        this.referenceable = referenceable;
+        this.reuseSession = reuseSession;
+        this.embeddedRepository = embeddedRepository;
+        this.pooled = pooled;
+        this.contentCheckpoint = embeddedRepository.getNodeStore().getRoot();
+        this.testCheckpoint = contentCheckpoint;
+        embeddedRepository.attach(metrics);
     }
 
     /**
@@ -101,19 +251,95 @@ public final class JCRRepositoryTester implements AssertProvider<JCRAssertions>
                                                    final boolean referenceable,
                                                    final String[] importXMLs)
             throws IOException, RepositoryException {
-        final Repository repository = new Jcr(new Oak()).createRepository();
-        if (!ADMIN.equals(username)) {
-            final Session session = repository.login(ADMIN_CREDENTIALS);
-            try {
-                ((JackrabbitSession) session).getUserManager().createUser(username, password);
-                session.save();
-            } finally {
-                session.logout();
+        final long startedAt = System.nanoTime();
+        return createHelper(EmbeddedRepository.create(), startedAt, false, username, password, referenceable, false, false, false, 0, new String[0], importXMLs);
+    }
+
+    /**
+     * Create the {@link JCRRepositoryTester} for an embedded repository using the username, password and XML files.
+     * If the repository could not be populated then the helper is closed.
+     *
+     * @param embeddedRepository The embedded repository.
+     * @param startedAt          The value of {@link System#nanoTime()} before the embedded repository was launched.
+     * @param pooled             Indicates if the embedded repository was acquired from the {@link RepositoryPool}.
+     * @param username           The username.
+     * @param password           The user's password.
+     * @param referenceable      Indicates if the created nodes should be referenceable.
+     * @param reuseSession       Indicates if a single session should be reused by all operations.
+     * @param cacheImports       Indicates if the XML files should be imported via the {@link FixtureCache}.
+     * @param lazyImports        Indicates if the XML files should only be imported when their content is accessed.
+     * @param importBatchSize    The number of nodes imported between saves or {@code 0} to save once per XML file.
+     * @param indexDefinitions   Paths of XML files containing index definitions.
+     * @param importXMLs         Paths of XML files used to populate the repository.
+     * @return A {@link JCRRepositoryTester}.
+     * @throws IOException         If there was a problem reading from an XML file.
+     * @throws RepositoryException If there was a problem creating repository entries.
+     */
+    private static JCRRepositoryTester createHelper(final EmbeddedRepository embeddedRepository,
+                                                    final long startedAt,
+                                                    final boolean pooled,
+                                                    final String username,
+                                                    final String password,
+                                                    final boolean referenceable,
+                                                    final boolean reuseSession,
+                                                    final boolean cacheImports,
+                                                    final boolean lazyImports,
+                                                    final int importBatchSize,
+                                                    final String[] indexDefinitions,
+                                                    final String[] importXMLs)
+            throws IOException, RepositoryException {
+        final JCRRepositoryTester helper = new JCRRepositoryTester(embeddedRepository, pooled, new SimpleCredentials(username, password.toCharArray()), referenceable, reuseSession);
+        LeakDetector.opened(helper);
+        helper.metrics.startup(System.nanoTime() - startedAt);
+        try {
+            final RepositoryOptions options = embeddedRepository.getOptions();
+            final boolean cached = cacheImports && options.sharesNodeStates();
+            final NodeState setup = cached ? FixtureCache.getSetup(options, List.of(indexDefinitions), username, password) : null;
+            final long importStartedAt;
+            if (setup != null) {
+                embeddedRepository.restore(setup);
+                importStartedAt = System.nanoTime();
+                helper.indexDefinitions = List.of(indexDefinitions);
+                helper.contentCheckpoint = embeddedRepository.getNodeStore().getRoot();
+            } else {
+                if (!ADMIN.equals(username) && options.profile() == JCRRepositoryProfile.FULL) {
+                    final Session session = helper.login(ADMIN_CREDENTIALS);
+                    try {
+                        ((JackrabbitSession) session).getUserManager().createUser(username, password);
+                        session.save();
+                    } finally {
+                        session.logout();
+                    }
+                    helper.contentCheckpoint = embeddedRepository.getNodeStore().getRoot();
+                }
+                importStartedAt = System.nanoTime();
+                if (indexDefinitions.length > 0) {
+                    for (final String path : indexDefinitions) {
+                        helper.importIndexDefinitions(path);
+                    }
+                    helper.indexDefinitions = List.of(indexDefinitions);
+                    helper.contentCheckpoint = embeddedRepository.getNodeStore().getRoot();
+                }
+                if (cached) {
+                    FixtureCache.putSetup(options, List.of(indexDefinitions), username, password, embeddedRepository.getNodeStore().getRoot());
+                }
             }
-        }
-        final JCRRepositoryTester helper = new JCRRepositoryTester(repository, new SimpleCredentials(username, password.toCharArray()), referenceable);
-        for (final String path : importXMLs) {
-            helper.importFromXML(ADMIN_CREDENTIALS, path);
+            if (lazyImports && importXMLs.length > 0) {
+                helper.deferImports(importXMLs, cacheImports, importBatchSize);
+            } else {
+                for (final String path : importXMLs) {
+                    if (cacheImports) {
+                        helper.importCachedXML(path, importBatchSize);
+                    } else {
+                        helper.importFixture(path, importBatchSize);
+                    }
+                }
+            }
+            helper.metrics.imported(System.nanoTime() - importStartedAt);
+            helper.testCheckpoint = embeddedRepository.getNodeStore().getRoot();
+        } catch (final IOException | RepositoryException | RuntimeException e) {
+            helper.close();
+            throw e;
         }
         return helper;
     }
@@ -128,7 +354,120 @@ public final class JCRRepositoryTester implements AssertProvider<JCRAssertions>
      */
     public static JCRRepositoryTester createHelper(final JCRRepositoryConfiguration annotation)
             throws IOException, RepositoryException {
-        return createHelper(annotation.username(), annotation.password(), annotation.referenceable(), annotation.importXMLs());
+        final long startedAt = System.nanoTime();
+        final RepositoryOptions options = RepositoryOptions.of(annotation);
+        final String imageKey = annotation.cacheImage() && options.sharesNodeStates()
+                ? ImageCache.key(annotation, options)
+                : null;
+        final ImageCache.Image image = imageKey == null ? null : ImageCache.load(imageKey);
+        if (image != null) {
+            return createHelper(image, startedAt, options, annotation);
+        }
+        final EmbeddedRepository embeddedRepository = annotation.pooled()
+                ? RepositoryPool.getInstance().acquire(options)
+                : EmbeddedRepository.create(options);
+        final JCRRepositoryTester helper = createHelper(embeddedRepository, startedAt, annotation.pooled(), annotation.username(), annotation.password(), annotation.referenceable(), annotation.reuseSession(), annotation.cacheImports(), annotation.lazyImports(), annotation.importBatchSize(), annotation.indexDefinitions(), annotation.importXMLs());
+        if (imageKey != null) {
+            try {
+                ImageCache.store(imageKey, helper.contentCheckpoint, helper.testCheckpoint);
+            } catch (final IOException | RepositoryException | RuntimeException e) {
+                helper.close();
+                throw e;
+            }
+        }
+        return helper;
+    }
+
+    /**
+     * Create the {@link JCRRepositoryTester} for an embedded repository whose content is loaded from an image in the
+     * {@link ImageCache} instead of bootstrapping the repository and importing the XML files.
+     *
+     * @param image      The image.
+     * @param startedAt  The value of {@link System#nanoTime()} before the embedded repository was launched.
+     * @param options    The options that determine how the embedded repository is constructed.
+     * @param annotation Annotation specifying the username, password and XML files.
+     * @return A {@link JCRRepositoryTester}.
+     * @throws IOException         If there was a problem reading an XML file whose import is deferred.
+     * @throws RepositoryException If there was a problem restoring the image into a pooled repository.
+     */
+    private static JCRRepositoryTester createHelper(final ImageCache.Image image,
+                                                    final long startedAt,
+                                                    final RepositoryOptions options,
+                                                    final JCRRepositoryConfiguration annotation)
+            throws IOException, RepositoryException {
+        final EmbeddedRepository embeddedRepository = annotation.pooled()
+                ? RepositoryPool.getInstance().acquire(options)
+                : EmbeddedRepository.create(options, image.test());
+        final JCRRepositoryTester helper = new JCRRepositoryTester(embeddedRepository, annotation.pooled(), new SimpleCredentials(annotation.username(), annotation.password().toCharArray()), annotation.referenceable(), annotation.reuseSession());
+        LeakDetector.opened(helper);
+        try {
+            if (annotation.pooled()) {
+                embeddedRepository.restore(image.test());
+            }
+            if (annotation.lazyImports() && annotation.importXMLs().length > 0) {
+                helper.deferImports(annotation.importXMLs(), annotation.cacheImports(), annotation.importBatchSize());
+            }
+        } catch (final IOException | RepositoryException | RuntimeException e) {
+            helper.close();
+            throw e;
+        }
+        helper.metrics.startup(System.nanoTime() - startedAt);
+        helper.contentCheckpoint = image.content();
+        helper.testCheckpoint = image.test();
+        helper.indexDefinitions = List.of(annotation.indexDefinitions());
+        return helper;
+    }
+
+    /**
+     * Create a {@link JCRRepositoryTester} for an embedded repository that is optionally acquired from the
+     * {@link RepositoryPool}.
+     *
+     * @param credentials   The credentials.
+     * @param referenceable Indicates if the created nodes should be referenceable.
+     * @param options       The options that determine how the embedded repository is constructed.
+     * @param pooled        Indicates if the embedded repository should be acquired from the {@link RepositoryPool}.
+     * @param reuseSession  Indicates if a single session should be reused by all operations.
+     * @return A {@link JCRRepositoryTester}.
+     */
+    static JCRRepositoryTester createHelper(final Credentials credentials,
+                                            final boolean referenceable,
+                                            final RepositoryOptions options,
+                                            final boolean pooled,
+                                            final boolean reuseSession) {
+        final long startedAt = System.nanoTime();
+        final EmbeddedRepository embeddedRepository = pooled
+                ? RepositoryPool.getInstance().acquire(options)
+                : EmbeddedRepository.create(options);
+        final JCRRepositoryTester helper = new JCRRepositoryTester(embeddedRepository, pooled, credentials, referenceable, reuseSession);
+        LeakDetector.opened(helper);
+        helper.metrics.startup(System.nanoTime() - startedAt);
+        return helper;
+    }
+
+    /**
+     * Close the repository helper logging out the reused session if there is one. If the embedded repository was
+     * acquired from the {@link RepositoryPool} it is reset to its baseline and returned to the pool. Otherwise, an
+     * embedded repository is shut down releasing its background threads and observation queues. Repositories that
+     * were supplied by the caller are left untouched. Closing a repository helper more than once has no effect.
+     *
+     * @throws RepositoryException If the embedded repository could not be reset.
+     * @since 5.0
+     */
+    @Override
+    public void close() throws RepositoryException {
+        if (session != null) {
+            session.logout();
+            session = null;
+        }
+        if (embeddedRepository != null && closed.compareAndSet(false, true)) {
+            LeakDetector.closed(this);
+            embeddedRepository.attach(null);
+            if (pooled) {
+                RepositoryPool.getInstance().release(embeddedRepository);
+            } else {
+                embeddedRepository.dispose();
+            }
+        }
     }
 
     /**
@@ -137,7 +476,7 @@ public final class JCRRepositoryTester implements AssertProvider<JCRAssertions>
      * @return The JCR repository.
      */
     public Repository getRepository() {
-        return repository;
+        return lazyFixtures == null ? repository : lazyFixtures.getRepository();
     }
 
     public Credentials getCredentials() {
@@ -153,19 +492,15 @@ public final class JCRRepositoryTester implements AssertProvider<JCRAssertions>
     public JCRRepositoryTester createRootFolder(final String name,
                                                 final CreationCallback... callbacks)
             throws RepositoryException {
-        final Session session = repository.login(credentials);
+        final Session session = openSession(credentials);
         try {
-            final var parent = session.getRootNode();
-            final var node = parent.addNode(name, NT_FOLDER);
-            if (referenceable) {
-                node.addMixin(MIX_REFERENCEABLE);
-            }
+            final var node = addFolder(session.getRootNode(), name);
             session.save();
             for (var callback : callbacks) {
                 callback.accept(node);
             }
         } finally {
-            session.logout();
+            closeSession(session);
         }
         return this;
     }
@@ -181,19 +516,15 @@ public final class JCRRepositoryTester implements AssertProvider<JCRAssertions>
                                             final String name,
                                             final CreationCallback... callbacks)
             throws RepositoryException {
-        final Session session = repository.login(credentials);
+        final Session session = openSession(credentials);
         try {
-            final var parent = session.getNode(path);
-            final var node = parent.addNode(name, NT_FOLDER);
-            if (referenceable) {
-                node.addMixin(MIX_REFERENCEABLE);
-            }
+            final var node = addFolder(session.getNode(path), name);
             session.save();
             for (var callback : callbacks) {
                 callback.accept(node);
             }
         } finally {
-            session.logout();
+            closeSession(session);
         }
         return this;
     }
@@ -238,10 +569,64 @@ public final class JCRRepositoryTester implements AssertProvider<JCRAssertions>
                                           final CreationCallback... callbacks)
             throws IOException, RepositoryException {
         try (final InputStream inputStream = new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8))) {
-            return createFile(path, name, type, encoding, inputStream);
+            return createFile(path, name, type, encoding, inputStream, callbacks);
         }
     }
 
+    /**
+     * Create a file in the repository streaming the content from a file on the local file system. The content is
+     * never loaded into memory in its entirety so large binaries can be created without inflating the heap when the
+     * repository uses a {@link JCRBlobStore#FILE} blob store.
+     *
+     * @param path     The fully qualified path of the parent folder.
+     * @param name     The name of the file to be created.
+     * @param type     The content type of the file.
+     * @param encoding The content encoding of the file.
+     * @param source   The file on the local file system that provides the binary content of the file.
+     * @return A reference to {@code this} to allow fluent-style chaining of invocations.
+     * @throws IOException         If there was a problem reading the local file.
+     * @throws RepositoryException If there was a problem creating the file.
+     * @since 5.0
+     */
+    public JCRRepositoryTester createFile(final String path,
+                                          final String name,
+                                          final String type,
+                                          final String encoding,
+                                          final Path source,
+                                          final CreationCallback... callbacks)
+            throws IOException, RepositoryException {
+        try (final InputStream inputStream = Files.newInputStream(source)) {
+            return createFile(path, name, type, encoding, inputStream, callbacks);
+        }
+    }
+
+    /**
+     * Create a file in the repository streaming the content from a channel. The channel is read to the end but is
+     * not closed.
+     *
+     * @param path     The fully qualified path of the parent folder.
+     * @param name     The name of the file to be created.
+     * @param type     The content type of the file.
+     * @param encoding The content encoding of the file.
+     * @param channel  The channel that provides the binary content of the file.
+     * @return A reference to {@code this} to allow fluent-style chaining of invocations.
+     * @throws RepositoryException If there was a problem creating the file.
+     * @since 5.0
+     */
+    public JCRRepositoryTester createFile(final String path,
+                                          final String name,
+                                          final String type,
+                                          final String encoding,
+                                          final ReadableByteChannel channel,
+                                          final CreationCallback... callbacks)
+            throws RepositoryException {
+        return createFile(path, name, type, encoding, new FilterInputStream(Channels.newInputStream(channel)) {
+            @Override
+            public void close() {
+            }
+        }, callbacks);
+    }
+
     /**
      * Create a file in the repository.
      *
@@ -259,28 +644,122 @@ public final class JCRRepositoryTester implements AssertProvider<JCRAssertions>
                                           final InputStream inputStream,
                                           final CreationCallback... callbacks)
             throws RepositoryException {
-        final Session session = repository.login(credentials);
+        final Session session = openSession(credentials);
         try {
-            final ValueFactory valueFactory = session.getValueFactory();
-            final Node parent = session.getNode(path);
-            final Node file = parent.addNode(name, NT_FILE);
-            if (referenceable) {
-                file.addMixin(MIX_REFERENCEABLE);
-            }
-            final Node resource = file.addNode(JCR_CONTENT, NT_RESOURCE);
-            resource.setProperty(JCR_MIMETYPE, type);
-            resource.setProperty(JCR_ENCODING, encoding);
-            resource.setProperty(JCR_DATA, valueFactory.createBinary(inputStream));
+            final Node file = addFile(session.getNode(path), name, type, encoding, inputStream);
             session.save();
             for (var callback : callbacks) {
                 callback.accept(file);
             }
         } finally {
-            session.logout();
+            closeSession(session);
         }
         return this;
     }
 
+    /**
+     * Fork the embedded repository. The forked repository helper starts with the current content of this repository
+     * and has the same credentials and options, except that it is never pooled. The forked repository shares the
+     * immutable content tree of this repository and only holds its own changes so tests can start from the same large
+     * baseline without duplicating it. Changes made through either repository helper are not visible to the other.
+     * <p>
+     * Purging the forked repository helper, with either {@link JCRPurgeScope}, returns it to the content it was forked
+     * with.
+     * <p>
+     * The caller is responsible for closing the forked repository helper.
+     *
+     * @return The forked repository helper.
+     * @throws IllegalStateException If the repository helper was not created for an embedded repository.
+     * @since 5.0
+     */
+    public JCRRepositoryTester fork() {
+        if (embeddedRepository == null) {
+            throw new IllegalStateException("Only embedded repositories can be forked");
+        }
+        if (lazyFixtures != null) {
+            try {
+                lazyFixtures.materialiseAll();
+            } catch (final IOException | RepositoryException e) {
+                throw new IllegalStateException("Could not import the deferred XML files", e);
+            }
+        }
+        final long startedAt = System.nanoTime();
+        final JCRRepositoryTester helper = new JCRRepositoryTester(embeddedRepository.fork(), false, credentials, referenceable, reuseSession);
+        LeakDetector.opened(helper);
+        helper.metrics.startup(System.nanoTime() - startedAt);
+        return helper;
+    }
+
+    /**
+     * Start building a tree of folders and files below the root of the repository. The whole tree is created using
+     * a single session and committed with a single save.
+     *
+     * @return The tree builder.
+     * @since 5.0
+     */
+    public JCRTreeBuilder tree() {
+        return tree("/");
+    }
+
+    /**
+     * Start building a tree of folders and files below an existing folder. The whole tree is created using a single
+     * session and committed with a single save.
+     *
+     * @param path The fully qualified path of the parent folder.
+     * @return The tree builder.
+     * @since 5.0
+     */
+    public JCRTreeBuilder tree(final String path) {
+        return new JCRTreeBuilder(this, path);
+    }
+
+    /**
+     * Add a folder node without saving the session.
+     *
+     * @param parent The parent node.
+     * @param name   The name of the new folder.
+     * @return The new folder node.
+     * @throws RepositoryException If there was a problem adding the folder.
+     */
+    Node addFolder(final Node parent,
+                   final String name)
+            throws RepositoryException {
+        final Node node = parent.addNode(name, NT_FOLDER);
+        if (referenceable) {
+            node.addMixin(MIX_REFERENCEABLE);
+        }
+        return node;
+    }
+
+    /**
+     * Add a file node and its content node without saving the session.
+     *
+     * @param parent      The parent node.
+     * @param name        The name of the new file.
+     * @param type        The content type of the file.
+     * @param encoding    The content encoding of the file.
+     * @param inputStream The input stream that provides the binary content of the file.
+     * @return The new file node.
+     * @throws RepositoryException If there was a problem adding the file.
+     */
+    Node addFile(final Node parent,
+                 final String name,
+                 final String type,
+                 final String encoding,
+                 final InputStream inputStream)
+            throws RepositoryException {
+        final ValueFactory valueFactory = parent.getSession().getValueFactory();
+        final Node file = parent.addNode(name, NT_FILE);
+        if (referenceable) {
+            file.addMixin(MIX_REFERENCEABLE);
+        }
+        final Node resource = file.addNode(JCR_CONTENT, NT_RESOURCE);
+        resource.setProperty(JCR_MIMETYPE, type);
+        resource.setProperty(JCR_ENCODING, encoding);
+        resource.setProperty(JCR_DATA, valueFactory.createBinary(inputStream));
+        return file;
+    }
+
     /**
      * Assert that a folder exists in the repository.
      *
@@ -289,12 +768,12 @@ public final class JCRRepositoryTester implements AssertProvider<JCRAssertions>
      */
     public JCRRepositoryTester assertFolderExists(final String path) {
         try {
-            final Session session = repository.login(credentials);
+            final Session session = openSession(credentials);
             try {
                 final Node node = session.getNode(path);
                 assertTrue(path + " is not a folder", node.isNodeType(NT_FOLDER));
             } finally {
-                session.logout();
+                closeSession(session);
             }
         } catch (final RepositoryException e) {
             throw new AssertionError(path + " does not exist", e);
@@ -310,12 +789,12 @@ public final class JCRRepositoryTester implements AssertProvider<JCRAssertions>
      */
     public JCRRepositoryTester assertFileExists(final String path) {
         try {
-            final Session session = repository.login(credentials);
+            final Session session = openSession(credentials);
             try {
                 final Node node = session.getNode(path);
                 assertTrue(path + " is not a file", node.isNodeType(NT_FILE));
             } finally {
-                session.logout();
+                closeSession(session);
             }
         } catch (final RepositoryException e) {
             throw new AssertionError(path + " does not exist", e);
@@ -375,16 +854,302 @@ public final class JCRRepositoryTester implements AssertProvider<JCRAssertions>
      */
     public JCRRepositoryTester importFromXML(final Credentials credentials, final InputStream inputStream)
             throws IOException, RepositoryException {
-        final Session session = repository.login(credentials);
+        final Session session = openSession(credentials);
         try {
             session.importXML("/", inputStream, IMPORT_UUID_COLLISION_THROW);
             session.save();
         } finally {
-            session.logout();
+            closeSession(session);
+        }
+        return this;
+    }
+
+    /**
+     * Import index definitions below {@code /oak:index} from an XML resource on the class path using the administrator
+     * credentials. The index definitions must use the system view format so that the property types required by Oak,
+     * such as the {@code Name} type of {@code propertyNames}, are preserved. Definitions with {@code reindex} set to
+     * {@code true} index the existing content when they are saved.
+     *
+     * @param path The path of the XML resource on the class path.
+     * @return A reference to {@code this} to allow fluent-style chaining of invocations.
+     * @throws IOException         If there was a problem reading the XML resource.
+     * @throws RepositoryException If there was a problem importing the XML resource.
+     * @since 5.0
+     */
+    public JCRRepositoryTester importIndexDefinitions(final String path) throws IOException, RepositoryException {
+        final Session session = openSession(ADMIN_CREDENTIALS);
+        try (InputStream inputStream = Thread.currentThread().getContextClassLoader().getResourceAsStream(path)) {
+            if (inputStream == null) {
+                throw new IOException("Index definitions not found: " + path);
+            }
+            session.importXML("/" + INDEX_DEFINITIONS_NAME, inputStream, IMPORT_UUID_COLLISION_THROW);
+            session.save();
+        } finally {
+            closeSession(session);
+        }
+        return this;
+    }
+
+    /**
+     * Create a synchronous property index below {@code /oak:index} using the administrator credentials. The existing
+     * content is indexed when the index definition is saved.
+     *
+     * @param name          The name of the index definition.
+     * @param propertyNames The names of the indexed properties.
+     * @return A reference to {@code this} to allow fluent-style chaining of invocations.
+     * @throws RepositoryException If there was a problem creating the index definition.
+     * @since 5.0
+     */
+    public JCRRepositoryTester createPropertyIndex(final String name,
+                                                   final String... propertyNames) throws RepositoryException {
+        final Session session = openSession(ADMIN_CREDENTIALS);
+        try {
+            final Node index = session.getNode("/" + INDEX_DEFINITIONS_NAME).addNode(name, INDEX_DEFINITIONS_NODE_TYPE);
+            index.setProperty(TYPE_PROPERTY_NAME, "property");
+            index.setProperty(PROPERTY_NAMES, propertyNames, PropertyType.NAME);
+            index.setProperty(REINDEX_PROPERTY_NAME, true);
+            session.save();
+        } finally {
+            closeSession(session);
+        }
+        return this;
+    }
+
+    /**
+     * Execute a JCR-SQL2 query and return the paths of the nodes selected by the query in the order they were
+     * returned.
+     *
+     * @param statement The JCR-SQL2 query.
+     * @return The paths of the selected nodes.
+     * @throws RepositoryException If there was a problem executing the query.
+     * @since 5.0
+     */
+    public List<String> query(final String statement) throws RepositoryException {
+        return inSession(session -> {
+            final List<String> paths = new ArrayList<>();
+            final NodeIterator nodes = session.getWorkspace().getQueryManager()
+                    .createQuery(statement, Query.JCR_SQL2)
+                    .execute()
+                    .getNodes();
+            while (nodes.hasNext()) {
+                paths.add(nodes.nextNode().getPath());
+            }
+            return paths;
+        });
+    }
+
+    /**
+     * Return the plan chosen by the Oak query engine for a JCR-SQL2 query. The plan names the index used for each
+     * selector or contains {@code traverse} if the query falls back to traversing the content.
+     *
+     * @param statement The JCR-SQL2 query.
+     * @return The plan.
+     * @throws RepositoryException If there was a problem explaining the query.
+     * @since 5.0
+     */
+    public String explain(final String statement) throws RepositoryException {
+        return inSession(session -> {
+            final RowIterator rows = session.getWorkspace().getQueryManager()
+                    .createQuery("explain " + statement, Query.JCR_SQL2)
+                    .execute()
+                    .getRows();
+            return rows.hasNext() ? rows.nextRow().getValue("plan").getString() : "";
+        });
+    }
+
+    /**
+     * Stream nodes into the repository from an XML resource on the class path, saving the session each time a batch of
+     * nodes has been imported.
+     *
+     * @param path      The path of the XML resource on the class path.
+     * @param batchSize The number of nodes imported between saves.
+     * @param progress  Receives the number of nodes imported so far each time the session is saved or {@code null}.
+     * @return A reference to {@code this} to allow fluent-style chaining of invocations.
+     * @throws IOException         If there was a problem reading the XML resource.
+     * @throws RepositoryException If there was a problem importing the XML resource.
+     * @see #importFromXML(Credentials, InputStream, int, LongConsumer)
+     * @since 5.0
+     */
+    public JCRRepositoryTester importFromXML(final String path,
+                                             final int batchSize,
+                                             final LongConsumer progress)
+            throws IOException, RepositoryException {
+        try (InputStream inputStream = Thread.currentThread().getContextClassLoader().getResourceAsStream(path)) {
+            if (inputStream == null) {
+                throw new IOException("XML resource not found: " + path);
+            }
+            return importFromXML(credentials, inputStream, batchSize, progress);
+        }
+    }
+
+    /**
+     * Stream nodes into the repository from an XML file, saving the session each time a batch of nodes has been
+     * imported.
+     *
+     * @param file      The XML file.
+     * @param batchSize The number of nodes imported between saves.
+     * @param progress  Receives the number of nodes imported so far each time the session is saved or {@code null}.
+     * @return A reference to {@code this} to allow fluent-style chaining of invocations.
+     * @throws IOException         If there was a problem reading the XML file.
+     * @throws RepositoryException If there was a problem importing the XML file.
+     * @see #importFromXML(Credentials, InputStream, int, LongConsumer)
+     * @since 5.0
+     */
+    public JCRRepositoryTester importFromXML(final Path file,
+                                             final int batchSize,
+                                             final LongConsumer progress)
+            throws IOException, RepositoryException {
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            return importFromXML(credentials, inputStream, batchSize, progress);
+        }
+    }
+
+    /**
+     * Stream nodes into the repository from an XML document loaded from an input stream, saving the session each time
+     * a batch of nodes has been imported.
+     *
+     * @param inputStream The input stream from which the XML document is loaded.
+     * @param batchSize   The number of nodes imported between saves.
+     * @param progress    Receives the number of nodes imported so far each time the session is saved or {@code null}.
+     * @return A reference to {@code this} to allow fluent-style chaining of invocations.
+     * @throws IOException         If there was a problem reading the XML document.
+     * @throws RepositoryException If there was a problem importing the XML document.
+     * @see #importFromXML(Credentials, InputStream, int, LongConsumer)
+     * @since 5.0
+     */
+    public JCRRepositoryTester importFromXML(final InputStream inputStream,
+                                             final int batchSize,
+                                             final LongConsumer progress)
+            throws IOException, RepositoryException {
+        return importFromXML(credentials, inputStream, batchSize, progress);
+    }
+
+    /**
+     * Stream nodes into the repository from an XML document loaded from an input stream using the specified
+     * credentials. Unlike {@link #importFromXML(Credentials, InputStream)}, which imports the whole document into the
+     * transient space and saves once, the document is parsed a node at a time and fed to the content handler provided
+     * by {@link Session#getImportContentHandler(String, int)}, and the session is saved each time {@code batchSize}
+     * nodes have been imported. The memory used does not depend on the size of the document, so production-sized
+     * system view or document view dumps can be imported.
+     * <p>
+     * Content that was saved before a failure is not rolled back.
+     *
+     * @param credentials The credentials to use for the operation.
+     * @param inputStream The input stream from which the XML document is loaded.
+     * @param batchSize   The number of nodes imported between saves.
+     * @param progress    Receives the number of nodes imported so far each time the session is saved or {@code null}.
+     * @return A reference to {@code this} to allow fluent-style chaining of invocations.
+     * @throws IOException         If there was a problem reading the XML document.
+     * @throws RepositoryException If there was a problem importing the XML document.
+     * @since 5.0
+     */
+    public JCRRepositoryTester importFromXML(final Credentials credentials,
+                                             final InputStream inputStream,
+                                             final int batchSize,
+                                             final LongConsumer progress)
+            throws IOException, RepositoryException {
+        final Session session = openSession(credentials);
+        try {
+            ChunkedImportHandler.importXML(session, "/", inputStream, batchSize, progress);
+        } finally {
+            closeSession(session);
         }
         return this;
     }
 
+    /**
+     * Import a fixture from an XML resource on the class path using the administrator credentials. The session is
+     * opened on the embedded repository rather than the repository returned by {@link #getRepository()}, so that
+     * importing a fixture whose import was deferred does not trigger the import of other deferred fixtures.
+     *
+     * @param path      The path of the XML resource on the class path.
+     * @param batchSize The number of nodes imported between saves or {@code 0} to save once.
+     * @throws IOException         If there was a problem reading the XML resource.
+     * @throws RepositoryException If there was a problem importing the XML resource.
+     */
+    private void importFixture(final String path,
+                               final int batchSize) throws IOException, RepositoryException {
+        try (InputStream inputStream = Thread.currentThread().getContextClassLoader().getResourceAsStream(path)) {
+            if (inputStream == null) {
+                throw new IOException("XML resource not found: " + path);
+            }
+            metrics.sessionOpened();
+            final Session session = repository.login(ADMIN_CREDENTIALS);
+            try {
+                if (batchSize > 0) {
+                    ChunkedImportHandler.importXML(session, "/", inputStream, batchSize, null);
+                } else {
+                    session.importXML("/", inputStream, IMPORT_UUID_COLLISION_THROW);
+                    session.save();
+                }
+            } finally {
+                session.logout();
+            }
+        }
+    }
+
+    /**
+     * Import file and folder nodes from an XML resource on the class path into the embedded repository using the
+     * {@link FixtureCache}. The first time the resource is imported the root node states before and after the import
+     * are captured. Subsequent imports into a repository whose root node state equals the captured state before the
+     * import, such as another repository that was set up from the same cached state, restore the captured state after
+     * the import instead of parsing the XML resource. Otherwise, or for node
+     * stores whose node states cannot be shared between repositories, the XML resource is imported as usual.
+     *
+     * @param path      The path of the XML resource on the class path.
+     * @param batchSize The number of nodes imported between saves or {@code 0} to save once.
+     * @throws IOException         If there was a problem reading the XML resource.
+     * @throws RepositoryException If there was a problem importing the XML resource.
+     */
+    private void importCachedXML(final String path,
+                                 final int batchSize) throws IOException, RepositoryException {
+        final RepositoryOptions options = embeddedRepository.getOptions();
+        if (options.sharesNodeStates()) {
+            final String username = credentials instanceof SimpleCredentials simpleCredentials
+                    ? simpleCredentials.getUserID()
+                    : null;
+            final String password = credentials instanceof SimpleCredentials simpleCredentials
+                    ? String.valueOf(simpleCredentials.getPassword())
+                    : null;
+            final FixtureCache.Fixture fixture = FixtureCache.get(options, indexDefinitions, username, password, cachedImports, path);
+            final NodeState before = embeddedRepository.getNodeStore().getRoot();
+            if (fixture != null && fixture.before().equals(before)) {
+                embeddedRepository.restore(fixture.after());
+            } else {
+                importFixture(path, batchSize);
+                if (fixture == null) {
+                    FixtureCache.put(options, indexDefinitions, username, password, cachedImports, path, before, embeddedRepository.getNodeStore().getRoot());
+                }
+            }
+            cachedImports.add(path);
+        } else {
+            importFixture(path, batchSize);
+        }
+    }
+
+    /**
+     * Defer importing XML resources from the class path until the content below their root nodes is first accessed
+     * through the repository returned by {@link #getRepository()} or by an operation of the repository helper.
+     *
+     * @param paths        The paths of the XML resources on the class path.
+     * @param cacheImports Indicates if the XML resources should be imported via the {@link FixtureCache}.
+     * @param batchSize    The number of nodes imported between saves or {@code 0} to save once per XML resource.
+     * @throws IOException         If there was a problem reading an XML resource.
+     * @throws RepositoryException If an XML resource is not well-formed.
+     * @see LazyFixtures
+     */
+    private void deferImports(final String[] paths,
+                              final boolean cacheImports,
+                              final int batchSize) throws IOException, RepositoryException {
+        lazyFixtures = new LazyFixtures(repository, Thread.currentThread().getContextClassLoader(), paths, path -> {
+            if (cacheImports) {
+                importCachedXML(path, batchSize);
+            } else {
+                importFixture(path, batchSize);
+            }
+        });
+    }
+
     /**
      * Verify that a node exists.
      *
@@ -393,11 +1158,11 @@ public final class JCRRepositoryTester implements AssertProvider<JCRAssertions>
      * @throws RepositoryException If there was a problem verifying that the node exists.
      */
     public boolean exists(final String path) throws RepositoryException {
-        final Session session = repository.login(credentials);
+        final Session session = openSession(credentials);
         try {
             return session.nodeExists(path);
         } finally {
-            session.logout();
+            closeSession(session);
         }
     }
 
@@ -412,12 +1177,12 @@ public final class JCRRepositoryTester implements AssertProvider<JCRAssertions>
     public boolean isType(final String path,
                           final String nodeType)
             throws RepositoryException {
-        final Session session = repository.login(credentials);
+        final Session session = openSession(credentials);
         try {
             final var node = session.getNode(path);
             return node.isNodeType(nodeType);
         } finally {
-            session.logout();
+            closeSession(session);
         }
     }
 
@@ -432,12 +1197,12 @@ public final class JCRRepositoryTester implements AssertProvider<JCRAssertions>
     public boolean propertyExists(final String path,
                                   final String propertyName)
             throws RepositoryException {
-        final Session session = repository.login(credentials);
+        final Session session = openSession(credentials);
         try {
             final var node = session.getNode(path);
             return node.hasProperty(propertyName);
         } finally {
-            session.logout();
+            closeSession(session);
         }
     }
 
@@ -452,7 +1217,7 @@ public final class JCRRepositoryTester implements AssertProvider<JCRAssertions>
     public <T> Optional<Property> property(final String path,
                                            final String propertyName)
             throws RepositoryException {
-        final Session session = repository.login(credentials);
+        final Session session = openSession(credentials);
         try {
             final var node = session.getNode(path);
             if (node.hasProperty(propertyName)) {
@@ -461,18 +1226,49 @@ public final class JCRRepositoryTester implements AssertProvider<JCRAssertions>
                 return Optional.empty();
             }
         } finally {
-            session.logout();
+            closeSession(session);
         }
     }
 
     /**
-     * Purge all the files and folders added to the repository.
+     * Write a canonical snapshot of the subtree below a node. Each node is written as a JSON object on a line of its
+     * own with the children, mixin types and properties of each node sorted by name. Binary values are written as their
+     * length and SHA-256 hash and reference values as the path of the referenced node. The subtree is streamed to the
+     * writer so that its size is not limited by the available memory.
+     *
+     * @param path              The fully qualified path of the root node of the subtree.
+     * @param ignoredProperties The names of the properties that are left out of the snapshot.
+     * @param writer            Receives the snapshot.
+     * @return A reference to {@code this} to allow fluent-style chaining of invocations.
+     * @throws RepositoryException If there was a problem reading the subtree.
+     * @throws IOException         If there was a problem reading a binary value or writing the snapshot.
+     * @since 5.0
+     */
+    public JCRRepositoryTester snapshot(final String path,
+                                        final Set<String> ignoredProperties,
+                                        final Writer writer)
+            throws RepositoryException, IOException {
+        final Session session = openSession(credentials);
+        try {
+            SubtreeSnapshot.write(session.getNode(path), ignoredProperties, writer);
+        } finally {
+            closeSession(session);
+        }
+        return this;
+    }
+
+    /**
+     * Purge all the content added to the repository. For an embedded repository this is equivalent to
+     * {@code purge(JCRPurgeScope.ALL)}. Otherwise, the files and folders at the root of the repository are removed.
      *
      * @return A reference to {@code this} to allow fluent-style chaining of invocations.
      * @throws RepositoryException If there was a problem purging the files and folders added to the repository.
      */
     public JCRRepositoryTester purge() throws RepositoryException {
-        final Session session = repository.login(credentials);
+        if (embeddedRepository != null) {
+            return purge(JCRPurgeScope.ALL);
+        }
+        final Session session = openSession(credentials);
         try {
             final var root = session.getRootNode();
             final var nodes = root.getNodes();
@@ -484,11 +1280,136 @@ public final class JCRRepositoryTester implements AssertProvider<JCRAssertions>
             }
             session.save();
         } finally {
-            session.logout();
+            closeSession(session);
+        }
+        return this;
+    }
+
+    /**
+     * Purge content from the embedded repository by restoring a recorded root node state. Only the children of the
+     * root node are swapped so the cost does not depend on the amount of content being purged, and content of every
+     * node type is removed.
+     * <p>
+     * The checkpoint for {@link JCRPurgeScope#TEST} is recorded when the repository helper is created and, for
+     * repository helpers shared by the {@link JCRRepositoryExtension}, at the start of each test. A repository helper
+     * that is being used by more than one test at the same time cannot be purged because the content of the other
+     * tests would be removed too.
+     *
+     * @param scope Determines which content is removed.
+     * @return A reference to {@code this} to allow fluent-style chaining of invocations.
+     * @throws RepositoryException   If there was a problem purging the content.
+     * @throws IllegalStateException If the repository helper was not created for an embedded repository or if it is
+     *                               being used by other tests that are executing concurrently.
+     * @since 5.0
+     */
+    public JCRRepositoryTester purge(final JCRPurgeScope scope) throws RepositoryException {
+        if (embeddedRepository == null) {
+            throw new IllegalStateException("Only embedded repositories can be purged to a checkpoint");
+        }
+        if (activeTests.get() > 1) {
+            throw new IllegalStateException("The embedded repository cannot be purged while other tests are using it");
+        }
+        embeddedRepository.restore(scope == JCRPurgeScope.ALL ? contentCheckpoint : testCheckpoint);
+        if (lazyFixtures != null) {
+            lazyFixtures.reset(scope == JCRPurgeScope.TEST);
         }
         return this;
     }
 
+    /**
+     * Perform an operation using a session. If session reuse is enabled the same session is used for every operation
+     * and it is refreshed, discarding any unsaved changes, before each operation. Otherwise, a new session is opened
+     * for the operation and closed when the operation completes.
+     * <p>
+     * Sessions are not thread-safe so a repository helper with session reuse enabled must not be shared by
+     * concurrently executing tests.
+     *
+     * @param callback The operation.
+     * @param <T>      The result type.
+     * @return The result of the operation.
+     * @throws RepositoryException If there was a problem performing the operation.
+     * @since 5.0
+     */
+    public <T> T inSession(final SessionCallback<T> callback) throws RepositoryException {
+        final Session session = openSession(credentials);
+        try {
+            return callback.apply(session);
+        } finally {
+            closeSession(session);
+        }
+    }
+
+    /**
+     * Obtain a session for an operation. If session reuse is enabled and the credentials are those of the repository
+     * helper then the reused session is refreshed and returned, opening it first if necessary. Otherwise, a new
+     * session is opened.
+     *
+     * @param credentials The credentials to use for the operation.
+     * @return The session.
+     * @throws RepositoryException If there was a problem opening or refreshing the session.
+     */
+    private Session openSession(final Credentials credentials) throws RepositoryException {
+        if (reuseSession && credentials == this.credentials) {
+            if (session == null || !session.isLive()) {
+                session = login(credentials);
+            } else {
+                session.refresh(false);
+            }
+            return session;
+        } else {
+            return login(credentials);
+        }
+    }
+
+    /**
+     * Log in to the repository counting the session in the metrics.
+     *
+     * @param credentials The credentials.
+     * @return The session.
+     * @throws RepositoryException If there was a problem logging in.
+     */
+    private Session login(final Credentials credentials) throws RepositoryException {
+        metrics.sessionOpened();
+        return getRepository().login(credentials);
+    }
+
+    /**
+     * Record that a test has started using a shared repository helper. The first of the tests using the repository
+     * helper records the checkpoint restored by {@code purge(JCRPurgeScope.TEST)}.
+     */
+    void beginTest() {
+        if (activeTests.incrementAndGet() == 1 && embeddedRepository != null) {
+            testCheckpoint = embeddedRepository.getNodeStore().getRoot();
+        }
+    }
+
+    /**
+     * Record that a test has finished using a shared repository helper.
+     */
+    void endTest() {
+        activeTests.decrementAndGet();
+    }
+
+    /**
+     * Return the cost of the repository work performed on behalf of the repository helper.
+     *
+     * @return The metrics.
+     */
+    RepositoryMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Release a session obtained by {@link #openSession(Credentials)}. The reused session is left open.
+     *
+     * @param session The session.
+     */
+    private void closeSession(final Session session) {
+        if (session != this.session) {
+            session.logout();
+        }
+    }
+
     /**
      * Provide the assertions object.
      *
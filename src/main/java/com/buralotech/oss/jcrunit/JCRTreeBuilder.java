@@ -0,0 +1,330 @@
+/*
+ * Copyright 2025 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buralotech.oss.jcrunit;
+
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Stages a tree of folders and files and then creates it in the repository using a single session. The tree is
+ * committed with a single save unless a maximum batch size has been specified, in which case the session is saved
+ * each time that many nodes have been added.
+ * <pre>{@code
+ * helper.tree()
+ *         .folder("a", a -> a
+ *                 .folder("b", b -> b.file("c", "text/plain", "UTF-8", "Hello World"))
+ *                 .folder("d"))
+ *         .create();
+ * }</pre>
+ *
+ * @author <a href="mailto:bmatthews68@gmail.com">Brian Matthews</a>
+ * @since 5.0
+ */
+public final class JCRTreeBuilder {
+
+    /**
+     * The repository helper used to create the tree.
+     */
+    private final JCRRepositoryTester tester;
+
+    /**
+     * The fully qualified path of the folder below which the tree will be created.
+     */
+    private final String path;
+
+    /**
+     * The staged content of the folder below which the tree will be created.
+     */
+    private final Folder root = new Folder();
+
+    /**
+     * The maximum number of nodes added before the session is saved or {@code 0} to save once.
+     */
+    private int batchSize;
+
+    /**
+     * Initialise the tree builder.
+     *
+     * @param tester The repository helper used to create the tree.
+     * @param path   The fully qualified path of the folder below which the tree will be created.
+     */
+    JCRTreeBuilder(final JCRRepositoryTester tester,
+                   final String path) {
+        this.tester = tester;
+        this.path = path;
+    }
+
+    /**
+     * Set the maximum number of nodes that are added before the session is saved. This limits the size of the
+     * transient space when creating very large trees.
+     *
+     * @param batchSize The maximum number of nodes or {@code 0} to save once when the whole tree has been added.
+     * @return A reference to {@code this} to allow fluent-style chaining of invocations.
+     */
+    public JCRTreeBuilder withBatchSize(final int batchSize) {
+        if (batchSize < 0) {
+            throw new IllegalArgumentException("Batch size must not be negative");
+        }
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * Stage an empty folder.
+     *
+     * @param name The name of the folder.
+     * @return A reference to {@code this} to allow fluent-style chaining of invocations.
+     */
+    public JCRTreeBuilder folder(final String name) {
+        root.folder(name);
+        return this;
+    }
+
+    /**
+     * Stage a folder and its content.
+     *
+     * @param name    The name of the folder.
+     * @param content Stages the content of the folder.
+     * @return A reference to {@code this} to allow fluent-style chaining of invocations.
+     */
+    public JCRTreeBuilder folder(final String name,
+                                 final Consumer<Folder> content) {
+        root.folder(name, content);
+        return this;
+    }
+
+    /**
+     * Stage a file with string content.
+     *
+     * @param name     The name of the file.
+     * @param type     The content type of the file.
+     * @param encoding The content encoding of the file.
+     * @param data     The string content of the file.
+     * @return A reference to {@code this} to allow fluent-style chaining of invocations.
+     */
+    public JCRTreeBuilder file(final String name,
+                               final String type,
+                               final String encoding,
+                               final String data) {
+        root.file(name, type, encoding, data);
+        return this;
+    }
+
+    /**
+     * Stage a file with binary content.
+     *
+     * @param name     The name of the file.
+     * @param type     The content type of the file.
+     * @param encoding The content encoding of the file.
+     * @param data     The binary content of the file.
+     * @return A reference to {@code this} to allow fluent-style chaining of invocations.
+     */
+    public JCRTreeBuilder file(final String name,
+                               final String type,
+                               final String encoding,
+                               final byte[] data) {
+        root.file(name, type, encoding, data);
+        return this;
+    }
+
+    /**
+     * Create the staged tree in the repository.
+     *
+     * @return The repository helper to allow fluent-style chaining of invocations.
+     * @throws RepositoryException If there was a problem creating the tree.
+     */
+    public JCRRepositoryTester create() throws RepositoryException {
+        return tester.inSession(session -> {
+            final Batch batch = new Batch(session);
+            root.create(session.getNode(path), batch);
+            session.save();
+            return tester;
+        });
+    }
+
+    /**
+     * Stages the content of a folder.
+     */
+    public final class Folder {
+
+        /**
+         * The staged folders and files.
+         */
+        private final List<Entry> entries = new ArrayList<>();
+
+        /**
+         * Only the tree builder can create folders.
+         */
+        private Folder() {
+        }
+
+        /**
+         * Stage an empty sub-folder.
+         *
+         * @param name The name of the sub-folder.
+         * @return A reference to {@code this} to allow fluent-style chaining of invocations.
+         */
+        public Folder folder(final String name) {
+            entries.add(new FolderEntry(name, new Folder()));
+            return this;
+        }
+
+        /**
+         * Stage a sub-folder and its content.
+         *
+         * @param name    The name of the sub-folder.
+         * @param content Stages the content of the sub-folder.
+         * @return A reference to {@code this} to allow fluent-style chaining of invocations.
+         */
+        public Folder folder(final String name,
+                             final Consumer<Folder> content) {
+            final Folder folder = new Folder();
+            content.accept(folder);
+            entries.add(new FolderEntry(name, folder));
+            return this;
+        }
+
+        /**
+         * Stage a file with string content.
+         *
+         * @param name     The name of the file.
+         * @param type     The content type of the file.
+         * @param encoding The content encoding of the file.
+         * @param data     The string content of the file.
+         * @return A reference to {@code this} to allow fluent-style chaining of invocations.
+         */
+        public Folder file(final String name,
+                           final String type,
+                           final String encoding,
+                           final String data) {
+            return file(name, type, encoding, data.getBytes(StandardCharsets.UTF_8));
+        }
+
+        /**
+         * Stage a file with binary content.
+         *
+         * @param name     The name of the file.
+         * @param type     The content type of the file.
+         * @param encoding The content encoding of the file.
+         * @param data     The binary content of the file.
+         * @return A reference to {@code this} to allow fluent-style chaining of invocations.
+         */
+        public Folder file(final String name,
+                           final String type,
+                           final String encoding,
+                           final byte[] data) {
+            entries.add(new FileEntry(name, type, encoding, data));
+            return this;
+        }
+
+        /**
+         * Add the staged folders and files below the parent node.
+         *
+         * @param parent The parent node.
+         * @param batch  Tracks the number of nodes added since the session was last saved.
+         * @throws RepositoryException If there was a problem adding the folders and files.
+         */
+        private void create(final Node parent,
+                            final Batch batch)
+                throws RepositoryException {
+            for (final Entry entry : entries) {
+                switch (entry) {
+                    case FolderEntry folder -> {
+                        final Node node = tester.addFolder(parent, folder.name());
+                        batch.added();
+                        folder.content().create(node, batch);
+                    }
+                    case FileEntry file -> {
+                        tester.addFile(parent, file.name(), file.type(), file.encoding(),
+                                new ByteArrayInputStream(file.data()));
+                        batch.added();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * A staged folder or file.
+     */
+    private sealed interface Entry permits FolderEntry, FileEntry {
+    }
+
+    /**
+     * A staged folder.
+     *
+     * @param name    The name of the folder.
+     * @param content The staged content of the folder.
+     */
+    private record FolderEntry(String name, Folder content) implements Entry {
+    }
+
+    /**
+     * A staged file.
+     *
+     * @param name     The name of the file.
+     * @param type     The content type of the file.
+     * @param encoding The content encoding of the file.
+     * @param data     The binary content of the file.
+     */
+    private record FileEntry(String name, String type, String encoding, byte[] data) implements Entry {
+    }
+
+    /**
+     * Tracks the number of nodes added since the session was last saved and saves the session when the batch is
+     * full.
+     */
+    private final class Batch {
+
+        /**
+         * The session used to create the tree.
+         */
+        private final Session session;
+
+        /**
+         * The number of nodes added since the session was last saved.
+         */
+        private int pending;
+
+        /**
+         * Initialise the batch.
+         *
+         * @param session The session used to create the tree.
+         */
+        private Batch(final Session session) {
+            this.session = session;
+        }
+
+        /**
+         * Record that a node has been added and save the session if the batch is full.
+         *
+         * @throws RepositoryException If there was a problem saving the session.
+         */
+        private void added() throws RepositoryException {
+            if (batchSize > 0 && ++pending >= batchSize) {
+                session.save();
+                pending = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,590 @@
+/*
+ * Copyright 2025 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buralotech.oss.jcrunit;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.jcr.Item;
+import javax.jcr.Node;
+import javax.jcr.Repository;
+import javax.jcr.RepositoryException;
+import javax.jcr.RangeIterator;
+import javax.jcr.Session;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Defers importing XML fixtures until the content below their root node is first accessed.
+ * <p>
+ * Each fixture is registered with the name of the node at the root of the XML document, which is found by parsing
+ * the document up to its first element. The repository is wrapped in a dynamic proxy and so are the sessions obtained
+ * from it and every item and iterator reached through them, so the root node is wrapped however it is obtained, for
+ * example by {@link Node#getParent()} on one of its children. Before a session or root node method is invoked, the
+ * fixtures whose root node is named by a path argument are imported. Methods that can reach any content, such as {@link Session#getWorkspace()},
+ * {@link Session#getNodeByIdentifier(String)} and {@link Node#getNodes()} on the root node, import every fixture that
+ * has not been imported yet.
+ * <p>
+ * Fixtures are imported with a session of their own, so every wrapped session is refreshed, keeping its pending
+ * changes, before it is next used after a fixture has been imported.
+ *
+ * @author <a href="mailto:bmatthews68@gmail.com">Brian Matthews</a>
+ * @since 5.0
+ */
+final class LazyFixtures {
+
+    /**
+     * The namespace URI of the system view elements.
+     */
+    private static final String SV_URI = "http://www.jcp.org/jcr/sv/1.0";
+
+    /**
+     * Matches the characters escaped in document view element names.
+     */
+    private static final Pattern ESCAPED = Pattern.compile("_x(\\p{XDigit}{4})_");
+
+    /**
+     * The session methods that can reach content below any root node.
+     */
+    private static final Set<String> SESSION_WIDE = Set.of(
+            "getWorkspace",
+            "getNodeByIdentifier",
+            "getNodeByUUID",
+            "exportSystemView",
+            "exportDocumentView");
+
+    /**
+     * The root node methods that can reach content below any root node.
+     */
+    private static final Set<String> ROOT_WIDE = Set.of(
+            "getNodes",
+            "hasNodes",
+            "accept",
+            "getReferences",
+            "getWeakReferences");
+
+    /**
+     * Imports a fixture. The importer must use the wrapped repository rather than the one returned by
+     * {@link #getRepository()}.
+     */
+    @FunctionalInterface
+    interface Importer {
+
+        /**
+         * Import a fixture.
+         *
+         * @param path The path of the XML resource on the class path.
+         * @throws IOException         If there was a problem reading the XML resource.
+         * @throws RepositoryException If there was a problem importing the XML resource.
+         */
+        void importFixture(String path) throws IOException, RepositoryException;
+    }
+
+    /**
+     * Signals that the first element of a document has been found.
+     */
+    private static final class RootFound extends SAXException {
+
+        /**
+         * The name of the root node.
+         */
+        private final String name;
+
+        /**
+         * Initialise the signal.
+         *
+         * @param name The name of the root node.
+         */
+        RootFound(final String name) {
+            super(name);
+            this.name = name;
+        }
+    }
+
+    /**
+     * The paths of the fixtures in the order they were listed, mapped to the names of their root nodes.
+     */
+    private final Map<String, String> fixtures;
+
+    /**
+     * The paths of the fixtures that have not been imported.
+     */
+    private final Set<String> pending = new LinkedHashSet<>();
+
+    /**
+     * Imports the fixtures.
+     */
+    private final Importer importer;
+
+    /**
+     * The wrapped repository.
+     */
+    private final Repository repository;
+
+    /**
+     * Incremented each time fixtures are imported so that wrapped sessions know when to refresh.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Initialise the deferred fixtures.
+     *
+     * @param repository  The repository.
+     * @param classLoader Used to load the XML resources.
+     * @param paths       The paths of the XML resources on the class path.
+     * @param importer    Imports the fixtures.
+     * @throws IOException         If there was a problem reading an XML resource.
+     * @throws RepositoryException If an XML resource is not well-formed.
+     */
+    LazyFixtures(final Repository repository,
+                 final ClassLoader classLoader,
+                 final String[] paths,
+                 final Importer importer) throws IOException, RepositoryException {
+        this.fixtures = new LinkedHashMap<>();
+        for (final String path : paths) {
+            fixtures.put(path, rootName(classLoader, path));
+        }
+        this.pending.addAll(fixtures.keySet());
+        this.importer = importer;
+        this.repository = (Repository) Proxy.newProxyInstance(
+                repository.getClass().getClassLoader(),
+                Proxies.interfaces(repository.getClass()),
+                (proxy, method, args) -> {
+                    final Object result = invoke(repository, method, args);
+                    return result instanceof Session session ? wrap(session) : result;
+                });
+    }
+
+    /**
+     * Return the wrapped repository.
+     *
+     * @return The wrapped repository.
+     */
+    Repository getRepository() {
+        return repository;
+    }
+
+    /**
+     * Import every fixture that has not been imported yet.
+     *
+     * @throws IOException         If there was a problem reading an XML resource.
+     * @throws RepositoryException If there was a problem importing an XML resource.
+     */
+    synchronized void materialiseAll() throws IOException, RepositoryException {
+        materialise(null);
+    }
+
+    /**
+     * Reset the fixtures after the repository has been restored to a checkpoint that does not contain any of them.
+     *
+     * @param keep Indicates if the fixtures should be imported again when they are next accessed.
+     */
+    synchronized void reset(final boolean keep) {
+        pending.clear();
+        if (keep) {
+            pending.addAll(fixtures.keySet());
+        }
+        generation.incrementAndGet();
+    }
+
+    /**
+     * Import the fixtures with a root node that has the name, or every fixture if the name is {@code null}, unless
+     * they have already been imported. A fixture stops being pending before it is imported, so that an access made
+     * while it is imported does not import it again, and becomes pending again if the import fails.
+     *
+     * @param name The name of the root node or {@code null}.
+     * @throws IOException         If there was a problem reading an XML resource.
+     * @throws RepositoryException If there was a problem importing an XML resource.
+     */
+    private synchronized void materialise(final String name) throws IOException, RepositoryException {
+        final List<String> paths = new ArrayList<>();
+        for (final String path : pending) {
+            if (name == null || name.equals(fixtures.get(path))) {
+                paths.add(path);
+            }
+        }
+        for (final String path : paths) {
+            pending.remove(path);
+            try {
+                importer.importFixture(path);
+            } catch (final IOException | RepositoryException | RuntimeException e) {
+                pending.add(path);
+                throw e;
+            }
+            generation.incrementAndGet();
+        }
+    }
+
+    /**
+     * Import the fixtures reached by a path, or every fixture if the path is {@code null}.
+     *
+     * @param path The absolute path or a path relative to the root node.
+     * @throws RepositoryException If there was a problem importing a fixture.
+     */
+    private void materialisePath(final String path) throws RepositoryException {
+        if (pendingIsEmpty()) {
+            return;
+        }
+        try {
+            if (path == null) {
+                materialise(null);
+            } else {
+                final String name = firstSegment(path);
+                if (!name.isEmpty() && !".".equals(name) && !"..".equals(name)) {
+                    materialise(name);
+                }
+            }
+        } catch (final IOException e) {
+            throw new RepositoryException(e);
+        }
+    }
+
+    /**
+     * Check if every fixture has been imported.
+     *
+     * @return {@code true} if every fixture has been imported. Otherwise, {@code false}.
+     */
+    private synchronized boolean pendingIsEmpty() {
+        return pending.isEmpty();
+    }
+
+    /**
+     * Wrap a session.
+     *
+     * @param session The session.
+     * @return The wrapped session.
+     */
+    private Session wrap(final Session session) {
+        final SessionHandler handler = new SessionHandler(session);
+        handler.proxy = (Session) Proxy.newProxyInstance(
+                session.getClass().getClassLoader(),
+                Proxies.interfaces(session.getClass()),
+                handler);
+        return handler.proxy;
+    }
+
+    /**
+     * Get the name of the first segment of a path without its same-name sibling index.
+     *
+     * @param path The absolute path or a path relative to the root node.
+     * @return The name of the first segment.
+     */
+    private static String firstSegment(final String path) {
+        final int start = path.startsWith("/") ? 1 : 0;
+        int end = path.indexOf('/', start);
+        if (end == -1) {
+            end = path.length();
+        }
+        final int index = path.indexOf('[', start);
+        if (index != -1 && index < end) {
+            end = index;
+        }
+        return path.substring(start, end);
+    }
+
+    /**
+     * Find the name of the node at the root of an XML document by parsing it up to its first element.
+     *
+     * @param classLoader Used to load the XML resource.
+     * @param path        The path of the XML resource on the class path.
+     * @return The name of the root node.
+     * @throws IOException         If there was a problem reading the XML resource.
+     * @throws RepositoryException If the XML resource is not well-formed.
+     */
+    static String rootName(final ClassLoader classLoader,
+                           final String path) throws IOException, RepositoryException {
+        try (InputStream inputStream = classLoader.getResourceAsStream(path)) {
+            if (inputStream == null) {
+                throw new IOException("XML resource not found: " + path);
+            }
+            final XMLReader reader = ChunkedImportHandler.createReader();
+            reader.setContentHandler(new DefaultHandler() {
+                @Override
+                public void startElement(final String uri,
+                                         final String localName,
+                                         final String qName,
+                                         final Attributes attributes) throws SAXException {
+                    if (SV_URI.equals(uri) && "node".equals(localName)) {
+                        throw new RootFound(attributes.getValue(SV_URI, "name"));
+                    }
+                    throw new RootFound(decode(qName));
+                }
+            });
+            reader.parse(new InputSource(inputStream));
+        } catch (final RootFound e) {
+            return e.name;
+        } catch (final ParserConfigurationException | SAXException e) {
+            throw new RepositoryException(path + ": " + e.getMessage(), e);
+        }
+        throw new RepositoryException(path + ": Document has no root element");
+    }
+
+    /**
+     * Decode a document view element name in which characters that are not allowed in XML names are escaped as
+     * {@code _xHHHH_}.
+     *
+     * @param name The element name.
+     * @return The node name.
+     */
+    private static String decode(final String name) {
+        final Matcher matcher = ESCAPED.matcher(name);
+        final StringBuilder builder = new StringBuilder();
+        while (matcher.find()) {
+            matcher.appendReplacement(builder, Matcher.quoteReplacement(
+                    String.valueOf((char) Integer.parseInt(matcher.group(1), 16))));
+        }
+        return matcher.appendTail(builder).toString();
+    }
+
+    /**
+     * Invoke a method on the wrapped object, unwrapping any proxies passed as arguments.
+     *
+     * @param target The wrapped object.
+     * @param method The method.
+     * @param args   The arguments.
+     * @return The result.
+     * @throws Throwable If the method threw an exception.
+     */
+    private static Object invoke(final Object target,
+                                 final Method method,
+                                 final Object[] args) throws Throwable {
+        if (args != null) {
+            for (int i = 0; i < args.length; i++) {
+                if (args[i] != null
+                        && Proxy.isProxyClass(args[i].getClass())
+                        && Proxy.getInvocationHandler(args[i]) instanceof Handler handler) {
+                    args[i] = handler.target();
+                }
+            }
+        }
+        try {
+            return method.invoke(target, args);
+        } catch (final InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Forwards invocations to a wrapped session, item or iterator.
+     */
+    private abstract static class Handler implements InvocationHandler {
+
+        /**
+         * Return the wrapped object.
+         *
+         * @return The wrapped object.
+         */
+        abstract Object target();
+    }
+
+    /**
+     * Imports the fixtures reached by a session before forwarding invocations to it.
+     */
+    private final class SessionHandler extends Handler {
+
+        /**
+         * The wrapped session.
+         */
+        private final Session session;
+
+        /**
+         * The proxy that wraps the session.
+         */
+        private Session proxy;
+
+        /**
+         * The generation of the fixtures the session was last refreshed with.
+         */
+        private long seen;
+
+        /**
+         * Initialise the handler.
+         *
+         * @param session The wrapped session.
+         */
+        SessionHandler(final Session session) {
+            this.session = session;
+            this.seen = generation.get();
+        }
+
+        @Override
+        Object target() {
+            return session;
+        }
+
+        @Override
+        public Object invoke(final Object proxy,
+                             final Method method,
+                             final Object[] args) throws Throwable {
+            if (!"logout".equals(method.getName()) && !"isLive".equals(method.getName())) {
+                if (SESSION_WIDE.contains(method.getName())) {
+                    materialisePath(null);
+                } else if (args != null) {
+                    for (final Object arg : args) {
+                        if (arg instanceof String path && path.startsWith("/")) {
+                            materialisePath(path);
+                        }
+                    }
+                }
+                refresh();
+            }
+            return wrap(LazyFixtures.invoke(session, method, args));
+        }
+
+        /**
+         * Wrap the session, an item or an iterator returned by a wrapped object so that the root node cannot be
+         * reached without importing the fixtures.
+         *
+         * @param result The result returned by the wrapped object.
+         * @return The wrapped result.
+         * @throws RepositoryException If there was a problem getting the depth of a node.
+         */
+        Object wrap(final Object result) throws RepositoryException {
+            if (result == session) {
+                return proxy;
+            } else if (result instanceof Node node && node.getDepth() == 0) {
+                return Proxy.newProxyInstance(
+                        node.getClass().getClassLoader(),
+                        Proxies.interfaces(node.getClass()),
+                        new RootNodeHandler(this, node));
+            } else if (result instanceof Item || result instanceof RangeIterator) {
+                return Proxy.newProxyInstance(
+                        result.getClass().getClassLoader(),
+                        Proxies.interfaces(result.getClass()),
+                        new ItemHandler(this, result));
+            }
+            return result;
+        }
+
+        /**
+         * Refresh the session, keeping its pending changes, if fixtures have been imported since it was last
+         * refreshed.
+         *
+         * @throws RepositoryException If the session could not be refreshed.
+         */
+        void refresh() throws RepositoryException {
+            final long current = generation.get();
+            if (seen != current) {
+                seen = current;
+                session.refresh(true);
+            }
+        }
+    }
+
+    /**
+     * Imports the fixtures reached by relative paths before forwarding invocations to a root node.
+     */
+    private final class RootNodeHandler extends Handler {
+
+        /**
+         * The handler of the session the root node was obtained from.
+         */
+        private final SessionHandler sessionHandler;
+
+        /**
+         * The wrapped root node.
+         */
+        private final Node node;
+
+        /**
+         * Initialise the handler.
+         *
+         * @param sessionHandler The handler of the session the root node was obtained from.
+         * @param node           The wrapped root node.
+         */
+        RootNodeHandler(final SessionHandler sessionHandler,
+                        final Node node) {
+            this.sessionHandler = sessionHandler;
+            this.node = node;
+        }
+
+        @Override
+        Object target() {
+            return node;
+        }
+
+        @Override
+        public Object invoke(final Object proxy,
+                             final Method method,
+                             final Object[] args) throws Throwable {
+            if (ROOT_WIDE.contains(method.getName())) {
+                materialisePath(null);
+            } else if (args != null && args.length > 0 && args[0] instanceof String path) {
+                materialisePath(path);
+            }
+            sessionHandler.refresh();
+            return sessionHandler.wrap(LazyFixtures.invoke(node, method, args));
+        }
+    }
+
+    /**
+     * Wraps the items returned by an item or iterator that is not the root node.
+     */
+    private final class ItemHandler extends Handler {
+
+        /**
+         * The handler of the session the item or iterator was obtained from.
+         */
+        private final SessionHandler sessionHandler;
+
+        /**
+         * The wrapped item or iterator.
+         */
+        private final Object target;
+
+        /**
+         * Initialise the handler.
+         *
+         * @param sessionHandler The handler of the session the item or iterator was obtained from.
+         * @param target         The wrapped item or iterator.
+         */
+        ItemHandler(final SessionHandler sessionHandler,
+                    final Object target) {
+            this.sessionHandler = sessionHandler;
+            this.target = target;
+        }
+
+        @Override
+        Object target() {
+            return target;
+        }
+
+        @Override
+        public Object invoke(final Object proxy,
+                             final Method method,
+                             final Object[] args) throws Throwable {
+            return sessionHandler.wrap(LazyFixtures.invoke(target, method, args));
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2025 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buralotech.oss.jcrunit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps track of the embedded repositories that have been opened but not yet closed so that a repository that
+ * outlives the test that created it can be reported as a failure.
+ * <p>
+ * The repository helpers are strongly referenced, so a helper that is dropped without being closed is still reported
+ * even though its repository could otherwise be garbage collected while its background threads keep running. Helpers
+ * that are not owned by a test are excluded: shared helpers are excluded when they are created and helpers opened by a
+ * thread outside a test, for example from a {@code @BeforeAll} method, are excluded when that thread next starts a
+ * test.
+ * <p>
+ * Leak detection can be disabled by setting the {@code jcrunit.leakDetection} system property to {@code false}.
+ *
+ * @author <a href="mailto:bmatthews68@gmail.com">Brian Matthews</a>
+ * @since 5.0
+ */
+final class LeakDetector {
+
+    /**
+     * The name of the system property used to disable leak detection.
+     */
+    static final String ENABLED_PROPERTY = "jcrunit.leakDetection";
+
+    /**
+     * The repository helpers that have been opened but not yet closed.
+     */
+    private static final Map<JCRRepositoryTester, Lease> OPEN = new ConcurrentHashMap<>();
+
+    /**
+     * Used to order the leases.
+     */
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    /**
+     * Records when and where a repository helper was opened.
+     *
+     * @param sequence The position of the lease in the order in which repository helpers were opened.
+     * @param thread   The thread that opened the repository helper.
+     * @param origin   Captures the stack trace at the point the repository helper was opened.
+     */
+    private record Lease(long sequence, Thread thread, Throwable origin) {
+    }
+
+    /**
+     * Prevent instantiation.
+     */
+    private LeakDetector() {
+    }
+
+    /**
+     * Record that a repository helper has been opened.
+     *
+     * @param tester The repository helper.
+     */
+    static void opened(final JCRRepositoryTester tester) {
+        if (isEnabled()) {
+            OPEN.put(tester, new Lease(
+                    SEQUENCE.incrementAndGet(),
+                    Thread.currentThread(),
+                    new Throwable("Embedded JCR repository opened here")));
+        }
+    }
+
+    /**
+     * Record that a repository helper has been closed.
+     *
+     * @param tester The repository helper.
+     */
+    static void closed(final JCRRepositoryTester tester) {
+        OPEN.remove(tester);
+    }
+
+    /**
+     * Exclude a repository helper that is not owned by a test, such as a helper shared by the tests of a class, from
+     * leak detection.
+     *
+     * @param tester The repository helper.
+     */
+    static void exclude(final JCRRepositoryTester tester) {
+        OPEN.remove(tester);
+    }
+
+    /**
+     * Mark the start of a test so that repositories opened during the test can be identified afterwards. The
+     * repository helpers the current thread opened before the test, for example from a {@code @BeforeAll} method, are
+     * not owned by the test and are excluded from leak detection.
+     *
+     * @return The marker.
+     */
+    static long mark() {
+        final Thread thread = Thread.currentThread();
+        OPEN.values().removeIf(lease -> lease.thread() == thread);
+        return SEQUENCE.get();
+    }
+
+    /**
+     * Verify that all repository helpers opened by the current thread since the marker was taken have been closed.
+     * Any leaked repository helpers are closed before the failure is reported.
+     *
+     * @param marker The marker returned by {@link #mark()} at the start of the test.
+     * @throws AssertionError If any repository helpers were leaked.
+     */
+    static void verify(final long marker) {
+        final Thread thread = Thread.currentThread();
+        final List<Map.Entry<JCRRepositoryTester, Lease>> leaked = new ArrayList<>();
+        OPEN.forEach((tester, lease) -> {
+            if (lease.thread() == thread && lease.sequence() > marker) {
+                leaked.add(Map.entry(tester, lease));
+            }
+        });
+        if (!leaked.isEmpty()) {
+            final AssertionError error = new AssertionError(
+                    leaked.size() + " embedded JCR repository(s) outlived the test that opened them");
+            for (final Map.Entry<JCRRepositoryTester, Lease> entry : leaked) {
+                error.addSuppressed(entry.getValue().origin());
+                try {
+                    entry.getKey().close();
+                } catch (final Exception e) {
+                    error.addSuppressed(e);
+                }
+            }
+            throw error;
+        }
+    }
+
+    /**
+     * Check if leak detection is enabled.
+     *
+     * @return {@code true} unless the {@code jcrunit.leakDetection} system property is {@code false}.
+     */
+    private static boolean isEnabled() {
+        return !"false".equalsIgnoreCase(System.getProperty(ENABLED_PROPERTY));
+    }
+}
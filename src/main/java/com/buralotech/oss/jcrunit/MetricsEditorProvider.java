@@ -0,0 +1,173 @@
+/*
+ * Copyright 2025 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.buralotech.oss.jcrunit;
+
+import org.apache.jackrabbit.oak.api.PropertyState;
+import org.apache.jackrabbit.oak.api.Type;
+import org.apache.jackrabbit.oak.spi.commit.CommitInfo;
+import org.apache.jackrabbit.oak.spi.commit.DefaultEditor;
+import org.apache.jackrabbit.oak.spi.commit.Editor;
+import org.apache.jackrabbit.oak.spi.commit.EditorProvider;
+import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
+import org.apache.jackrabbit.oak.spi.state.NodeState;
+
+import static org.apache.jackrabbit.oak.plugins.index.IndexConstants.INDEX_DEFINITIONS_NAME;
+import static org.apache.jackrabbit.oak.spi.state.NodeStateUtils.isHidden;
+
+/**
+ * Counts the commits, nodes written and binary bytes stored by an embedded repository on behalf of the
+ * {@link RepositoryMetrics} currently attached to it. No editor is returned while no metrics are attached so the
+ * bootstrap and the commits made while a pooled repository is idle are not counted and cost nothing. Hidden nodes
+ * and index definitions, whose content is maintained by Oak rather than written by the test, are not counted.
+ *
+ * @author <a href="mailto:bmatthews68@gmail.com">Brian Matthews</a>
+ * @since 5.0
+ */
+final class MetricsEditorProvider implements EditorProvider {
+
+    /**
+     * The metrics attached to the repository or {@code null} if there are none.
+     */
+    private volatile RepositoryMetrics metrics;
+
+    /**
+     * Attach the metrics that subsequent commits are counted against.
+     *
+     * @param metrics The metrics or {@code null} to stop counting.
+     */
+    void attach(final RepositoryMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Editor getRootEditor(final NodeState before,
+                                final NodeState after,
+                                final NodeBuilder builder,
+                                final CommitInfo info) {
+        final RepositoryMetrics current = metrics;
+        if (current == null) {
+            return null;
+        }
+        current.committed();
+        return new CountingEditor(current);
+    }
+
+    /**
+     * Counts the nodes and binary properties that were added or modified by a commit. A node is counted if it was
+     * added or if its own properties were changed. The ancestors of a changed node are not counted.
+     */
+    private static final class CountingEditor extends DefaultEditor {
+
+        /**
+         * The metrics being updated.
+         */
+        private final RepositoryMetrics metrics;
+
+        /**
+         * Indicates whether the node being edited has already been counted.
+         */
+        private boolean counted;
+
+        /**
+         * Initialise the editor for the root node.
+         *
+         * @param metrics The metrics being updated.
+         */
+        private CountingEditor(final RepositoryMetrics metrics) {
+            this(metrics, false);
+        }
+
+        /**
+         * Initialise the editor.
+         *
+         * @param metrics The metrics being updated.
+         * @param counted Indicates whether the node being edited has already been counted.
+         */
+        private CountingEditor(final RepositoryMetrics metrics,
+                               final boolean counted) {
+            this.metrics = metrics;
+            this.counted = counted;
+        }
+
+        @Override
+        public void propertyAdded(final PropertyState after) {
+            written();
+            countBinaries(after);
+        }
+
+        @Override
+        public void propertyChanged(final PropertyState before,
+                                    final PropertyState after) {
+            written();
+            countBinaries(after);
+        }
+
+        @Override
+        public void propertyDeleted(final PropertyState before) {
+            written();
+        }
+
+        @Override
+        public Editor childNodeAdded(final String name,
+                                     final NodeState after) {
+            if (isExcluded(name)) {
+                return null;
+            }
+            metrics.nodeWritten();
+            return new CountingEditor(metrics, true);
+        }
+
+        @Override
+        public Editor childNodeChanged(final String name,
+                                       final NodeState before,
+                                       final NodeState after) {
+            return isExcluded(name) ? null : new CountingEditor(metrics, false);
+        }
+
+        /**
+         * Count the node being edited the first time one of its properties is found to have been written.
+         */
+        private void written() {
+            if (!counted) {
+                counted = true;
+                metrics.nodeWritten();
+            }
+        }
+
+        /**
+         * Check if a node is hidden or holds index definitions and so is not counted.
+         *
+         * @param name The name of the node.
+         * @return {@code true} if the node is not counted. Otherwise, {@code false}.
+         */
+        private static boolean isExcluded(final String name) {
+            return isHidden(name) || INDEX_DEFINITIONS_NAME.equals(name);
+        }
+
+        /**
+         * Add the length of the binary values of a property to the metrics.
+         *
+         * @param property The property.
+         */
+        private void countBinaries(final PropertyState property) {
+            if (property.getType().tag() == Type.BINARY.tag()) {
+                for (int i = 0; i < property.count(); i++) {
+                    metrics.blobWritten(property.getValue(Type.BINARY, i).length());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2025 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.buralotech.oss.jcrunit;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects the metrics of each test that used an embedded repository and prints a summary when the test run
+ * completes. The summary lists the totals for the run followed by the tests that spent the longest setting up their
+ * repositories. Instances are held in the root extension context store and closed by JUnit at the end of the run.
+ *
+ * @author <a href="mailto:bmatthews68@gmail.com">Brian Matthews</a>
+ * @since 5.0
+ */
+final class MetricsSummary implements AutoCloseable {
+
+    /**
+     * The maximum number of tests listed in the summary.
+     */
+    private static final int SLOWEST_TESTS = 10;
+
+    /**
+     * The metrics recorded for each test.
+     */
+    private final Queue<Entry> entries = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Where the summary is printed.
+     */
+    private final PrintStream out;
+
+    /**
+     * The metrics recorded for a test.
+     *
+     * @param test    The display name of the test.
+     * @param metrics The metrics.
+     */
+    private record Entry(String test, RepositoryMetrics.Snapshot metrics) {
+    }
+
+    /**
+     * Initialise the summary.
+     *
+     * @param out Where the summary is printed.
+     */
+    MetricsSummary(final PrintStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Record the metrics for a test.
+     *
+     * @param test    The display name of the test.
+     * @param metrics The metrics.
+     */
+    void record(final String test,
+                final RepositoryMetrics.Snapshot metrics) {
+        entries.add(new Entry(test, metrics));
+    }
+
+    /**
+     * Print the summary.
+     */
+    @Override
+    public void close() {
+        if (entries.isEmpty()) {
+            return;
+        }
+        final List<Entry> sorted = new ArrayList<>(entries);
+        sorted.sort(Comparator.comparingLong((Entry entry) -> entry.metrics().setupNanos()).reversed());
+        final RepositoryMetrics.Snapshot total = sorted.stream()
+                .map(Entry::metrics)
+                .reduce(RepositoryMetrics.Snapshot.EMPTY, RepositoryMetrics.Snapshot::plus);
+        out.println("JCR Unit repository metrics for " + sorted.size() + " test(s)");
+        out.println(format("TOTAL", total));
+        for (final Entry entry : sorted.subList(0, Math.min(SLOWEST_TESTS, sorted.size()))) {
+            out.println(format(entry.test(), entry.metrics()));
+        }
+    }
+
+    /**
+     * Format a line of the summary.
+     *
+     * @param test    The display name of the test.
+     * @param metrics The metrics.
+     * @return The formatted line.
+     */
+    private static String format(final String test,
+                                 final RepositoryMetrics.Snapshot metrics) {
+        return String.format("  %-60s startup=%dms import=%dms sessions=%d commits=%d nodes=%d blobBytes=%d",
+                test,
+                TimeUnit.NANOSECONDS.toMillis(metrics.startupNanos()),
+                TimeUnit.NANOSECONDS.toMillis(metrics.importNanos()),
+                metrics.sessions(),
+                metrics.commits(),
+                metrics.nodesWritten(),
+                metrics.blobBytes());
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2025 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.buralotech.oss.jcrunit;
+
+import org.apache.jackrabbit.oak.plugins.memory.EmptyNodeState;
+import org.apache.jackrabbit.oak.plugins.memory.MemoryNodeStore;
+import org.apache.jackrabbit.oak.spi.blob.BlobStore;
+import org.apache.jackrabbit.oak.spi.state.NodeState;
+import org.apache.jackrabbit.oak.spi.state.NodeStore;
+
+import javax.jcr.RepositoryException;
+
+/**
+ * Creates the node stores that back embedded repositories. The segment and document node stores are created by
+ * separate classes so that their optional dependencies are only loaded when they are used.
+ *
+ * @author <a href="mailto:bmatthews68@gmail.com">Brian Matthews</a>
+ * @since 5.0
+ */
+final class NodeStores {
+
+    /**
+     * A node store together with the action that releases its resources.
+     *
+     * @param nodeStore The node store.
+     * @param blobs     The directory holding the binaries or {@code null} if they are held by the node store.
+     * @param disposer  Releases the resources held by the node store.
+     */
+    record Handle(NodeStore nodeStore, FileBlobNodeStore.BlobDirectory blobs, Runnable disposer) {
+
+        /**
+         * Create a handle for a node store that holds its own binaries.
+         *
+         * @param nodeStore The node store.
+         * @param disposer  Releases the resources held by the node store.
+         */
+        Handle(final NodeStore nodeStore,
+               final Runnable disposer) {
+            this(nodeStore, null, disposer);
+        }
+    }
+
+    /**
+     * Prevent instantiation.
+     */
+    private NodeStores() {
+    }
+
+    /**
+     * Create a node store whose content starts from the root node state. The in-memory node store shares the root node
+     * state. The other node stores copy it.
+     *
+     * @param options The options that determine how the node store is constructed.
+     * @param root    The initial root node state.
+     * @return The node store.
+     * @throws IllegalStateException If the node store could not be created or its implementation is not on the
+     *                               class path.
+     */
+    static Handle create(final RepositoryOptions options,
+                         final NodeState root) {
+        return create(options, root, options.blobStore() == JCRBlobStore.FILE
+                ? FileBlobNodeStore.BlobDirectory.create()
+                : null);
+    }
+
+    /**
+     * Create a node store whose content starts from the root node state and whose binaries are written to a blob
+     * directory. The reference to the blob directory passes to the handle and is released by its disposer.
+     *
+     * @param options The options that determine how the node store is constructed.
+     * @param root    The initial root node state.
+     * @param blobs   The directory holding the binaries or {@code null} if they are held by the node store.
+     * @return The node store.
+     * @throws IllegalStateException If the node store could not be created or its implementation is not on the
+     *                               class path.
+     */
+    static Handle create(final RepositoryOptions options,
+                         final NodeState root,
+                         final FileBlobNodeStore.BlobDirectory blobs) {
+        final BlobStore blobStore = blobs == null ? null : blobs.blobStore();
+        final Handle handle;
+        try {
+            final Handle created = switch (options.nodeStore()) {
+                case MEMORY -> new Handle(
+                        blobStore == null ? new MemoryNodeStore(root) : new FileBlobNodeStore(root, blobStore),
+                        () -> {
+                        });
+                case SEGMENT -> SegmentNodeStores.create(blobStore);
+                case DOCUMENT -> DocumentNodeStores.create(blobStore);
+            };
+            handle = blobs == null ? created : new Handle(created.nodeStore(), blobs, () -> {
+                try {
+                    created.disposer().run();
+                } finally {
+                    blobs.release();
+                }
+            });
+        } catch (final NoClassDefFoundError e) {
+            if (blobs != null) {
+                blobs.release();
+            }
+            throw new IllegalStateException("The " + options.nodeStore() + " node store is not on the class path", e);
+        } catch (final RuntimeException e) {
+            if (blobs != null) {
+                blobs.release();
+            }
+            throw e;
+        }
+        if (options.nodeStore() != JCRNodeStore.MEMORY && root != EmptyNodeState.EMPTY_NODE) {
+            try {
+                EmbeddedRepository.restore(handle.nodeStore(), root);
+            } catch (final RepositoryException | RuntimeException e) {
+                handle.disposer().run();
+                throw new IllegalStateException("Failed to copy content into the " + options.nodeStore() + " node store", e);
+            }
+        }
+        return handle;
+    }
+}
@@ -0,0 +1,323 @@
+/*
+ * Copyright 2025 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.buralotech.oss.jcrunit;
+
+import javax.jcr.Binary;
+import javax.jcr.Node;
+import javax.jcr.Property;
+import javax.jcr.PropertyType;
+import javax.jcr.RepositoryException;
+import javax.jcr.Value;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Compares property values with expected values for {@link JCRAssertions#hasPropertyValue(String, String, Object)}
+ * and {@link JCRExpectations#hasPropertyValue(String, String, Object)}.
+ * <p>
+ * The expected values accepted for each property type are:
+ * <ul>
+ *     <li>{@code BOOLEAN} - {@link Boolean}</li>
+ *     <li>{@code LONG} - {@link Long}, {@link Integer}, {@link Short} or {@link Byte}</li>
+ *     <li>{@code DOUBLE} - {@link Double} or {@link Float}</li>
+ *     <li>{@code DECIMAL} - {@link BigDecimal}, compared ignoring the scale</li>
+ *     <li>{@code DATE} - {@link Calendar}, {@link Date}, {@link Instant} or any {@link TemporalAccessor} with an
+ *     instant, compared as instants, or the ISO 8601 {@link String}</li>
+ *     <li>{@code BINARY} - {@code byte[]}, {@link Path}, {@link InputStream} or {@link Binary}, compared by length and
+ *     SHA-256 hash</li>
+ *     <li>{@code REFERENCE} and {@code WEAKREFERENCE} - the referenced {@link Node} or its identifier</li>
+ *     <li>{@code URI} - {@link URI} or {@link String}</li>
+ *     <li>{@code STRING}, {@code NAME} and {@code PATH} - {@link String}</li>
+ * </ul>
+ * Multi-valued properties are compared with a {@link Collection} or an array of expected values.
+ * <p>
+ * Binary values are hashed while they are streamed from the repository and from the expected source a chunk at a time
+ * so they are never held on the heap in full.
+ *
+ * @author <a href="mailto:bmatthews68@gmail.com">Brian Matthews</a>
+ * @since 5.0
+ */
+final class PropertyValues {
+
+    /**
+     * The size of the buffer used to hash binary values.
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Prevent instantiation.
+     */
+    private PropertyValues() {
+    }
+
+    /**
+     * Compare a property value with the expected value.
+     *
+     * @param path          The path of the node.
+     * @param propertyName  The property name.
+     * @param expectedValue The expected value.
+     * @param property      The property.
+     * @return A description of the mismatch or {@code null} if the property has the expected value.
+     * @throws RepositoryException If there was an exception accessing the value.
+     */
+    static String compare(final String path,
+                          final String propertyName,
+                          final Object expectedValue,
+                          final Property property)
+            throws RepositoryException {
+        final List<?> expectedValues = asList(expectedValue);
+        if (property.isMultiple()) {
+            final Value[] values = property.getValues();
+            if (expectedValues == null) {
+                return String.format("Expected [%s] to have property [%s] equal to [%s] but was multi-valued %s", path,
+                        propertyName, expectedValue, describe(values));
+            }
+            boolean matches = expectedValues.size() == values.length;
+            for (int i = 0; matches && i < values.length; i++) {
+                matches = matches(expectedValues.get(i), values[i]);
+            }
+            return matches ? null : String.format("Expected [%s] to have property [%s] equal to %s but was %s", path,
+                    propertyName, expectedValues, describe(values));
+        } else {
+            final Value value = property.getValue();
+            if (expectedValues != null) {
+                return String.format("Expected [%s] to have property [%s] equal to %s but was single-valued [%s]", path,
+                        propertyName, expectedValues, describe(value));
+            }
+            return matches(expectedValue, value) ? null : String.format(
+                    "Expected [%s] to have property [%s] equal to [%s] but was [%s]", path,
+                    propertyName, describeExpected(expectedValue, value.getType()), describe(value));
+        }
+    }
+
+    /**
+     * Calculate the length and SHA-256 hash of a stream, reading it a chunk at a time.
+     *
+     * @param inputStream The stream.
+     * @return The length and hash formatted as {@code <length>:sha256:<hash>}.
+     * @throws IOException If there was a problem reading the stream.
+     */
+    static String digest(final InputStream inputStream) throws IOException {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        long length = 0;
+        for (int count = inputStream.read(buffer); count != -1; count = inputStream.read(buffer)) {
+            digest.update(buffer, 0, count);
+            length += count;
+        }
+        return length + ":sha256:" + HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Calculate the length and SHA-256 hash of a binary value.
+     *
+     * @param binary The binary value.
+     * @return The length and hash formatted as {@code <length>:sha256:<hash>}.
+     * @throws RepositoryException If there was a problem reading the binary value.
+     */
+    static String digest(final Binary binary) throws RepositoryException {
+        try (InputStream inputStream = binary.getStream()) {
+            return digest(inputStream);
+        } catch (final IOException e) {
+            throw new RepositoryException(e);
+        } finally {
+            binary.dispose();
+        }
+    }
+
+    /**
+     * Check if a value matches the expected value.
+     *
+     * @param expected The expected value.
+     * @param value    The value.
+     * @return {@code true} if the value matches. Otherwise, {@code false}.
+     * @throws RepositoryException If there was an exception accessing the value.
+     */
+    private static boolean matches(final Object expected,
+                                   final Value value)
+            throws RepositoryException {
+        if (expected == null) {
+            return false;
+        }
+        return switch (value.getType()) {
+            case PropertyType.BOOLEAN -> expected instanceof Boolean b && b == value.getBoolean();
+            case PropertyType.LONG -> (expected instanceof Long || expected instanceof Integer
+                    || expected instanceof Short || expected instanceof Byte)
+                    && ((Number) expected).longValue() == value.getLong();
+            case PropertyType.DOUBLE -> (expected instanceof Double || expected instanceof Float)
+                    && Double.compare(((Number) expected).doubleValue(), value.getDouble()) == 0;
+            case PropertyType.DECIMAL -> expected instanceof BigDecimal decimal
+                    && decimal.compareTo(value.getDecimal()) == 0;
+            case PropertyType.DATE -> expected instanceof CharSequence
+                    ? expected.toString().equals(value.getString())
+                    : Instant.ofEpochMilli(value.getDate().getTimeInMillis()).equals(toInstant(expected));
+            case PropertyType.BINARY -> {
+                final String expectedDigest = digestExpected(expected);
+                yield expectedDigest != null && expectedDigest.equals(digest(value.getBinary()));
+            }
+            case PropertyType.REFERENCE, PropertyType.WEAKREFERENCE -> expected instanceof Node node
+                    ? node.getIdentifier().equals(value.getString())
+                    : expected instanceof CharSequence && expected.toString().equals(value.getString());
+            case PropertyType.URI -> (expected instanceof URI || expected instanceof CharSequence)
+                    && expected.toString().equals(value.getString());
+            default -> expected instanceof CharSequence && expected.toString().equals(value.getString());
+        };
+    }
+
+    /**
+     * Convert an expected date to an instant.
+     *
+     * @param expected The expected date.
+     * @return The instant or {@code null} if the expected value is not a supported date type.
+     */
+    private static Instant toInstant(final Object expected) {
+        if (expected instanceof Calendar calendar) {
+            return Instant.ofEpochMilli(calendar.getTimeInMillis());
+        } else if (expected instanceof Date date) {
+            return Instant.ofEpochMilli(date.getTime());
+        } else if (expected instanceof TemporalAccessor temporal) {
+            try {
+                return Instant.from(temporal);
+            } catch (final DateTimeException e) {
+                return null;
+            }
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Calculate the length and SHA-256 hash of an expected binary value.
+     *
+     * @param expected The expected binary value.
+     * @return The length and hash or {@code null} if the expected value is not a supported binary type.
+     * @throws RepositoryException If there was a problem reading the expected value.
+     */
+    private static String digestExpected(final Object expected) throws RepositoryException {
+        try {
+            if (expected instanceof byte[] bytes) {
+                return digest(new ByteArrayInputStream(bytes));
+            } else if (expected instanceof Path file) {
+                try (InputStream inputStream = Files.newInputStream(file)) {
+                    return digest(inputStream);
+                }
+            } else if (expected instanceof InputStream inputStream) {
+                return digest(inputStream);
+            } else if (expected instanceof Binary binary) {
+                try (InputStream inputStream = binary.getStream()) {
+                    return digest(inputStream);
+                }
+            } else {
+                return null;
+            }
+        } catch (final IOException e) {
+            throw new RepositoryException(e);
+        }
+    }
+
+    /**
+     * Describe an expected value for a failure message. Expected binary values are described by their length and hash
+     * where this does not consume them.
+     *
+     * @param expected The expected value.
+     * @param type     The type of the property.
+     * @return The description.
+     * @throws RepositoryException If there was a problem reading the expected value.
+     */
+    private static Object describeExpected(final Object expected,
+                                           final int type)
+            throws RepositoryException {
+        if (type == PropertyType.BINARY && (expected instanceof byte[] || expected instanceof Path)) {
+            return digestExpected(expected);
+        }
+        return expected;
+    }
+
+    /**
+     * Describe a value for a failure message. Binary values are described by their length and hash.
+     *
+     * @param value The value.
+     * @return The description.
+     * @throws RepositoryException If there was an exception accessing the value.
+     */
+    private static String describe(final Value value) throws RepositoryException {
+        return value.getType() == PropertyType.BINARY ? digest(value.getBinary()) : value.getString();
+    }
+
+    /**
+     * Describe the values of a multi-valued property for a failure message.
+     *
+     * @param values The values.
+     * @return The description.
+     * @throws RepositoryException If there was an exception accessing the values.
+     */
+    private static String describe(final Value[] values) throws RepositoryException {
+        final List<String> descriptions = new ArrayList<>(values.length);
+        for (final Value value : values) {
+            descriptions.add(describe(value));
+        }
+        return descriptions.toString();
+    }
+
+    /**
+     * Convert the expected values of a multi-valued property to a list.
+     *
+     * @param expected The expected value.
+     * @return The expected values or {@code null} if the expected value is neither a {@link Collection} nor an array
+     * other than {@code byte[]}.
+     */
+    private static List<?> asList(final Object expected) {
+        if (expected instanceof Collection<?> collection) {
+            return new ArrayList<>(collection);
+        } else if (expected instanceof Object[] array) {
+            return Arrays.asList(array);
+        } else if (expected != null && expected.getClass().isArray() && !(expected instanceof byte[])) {
+            final int length = Array.getLength(expected);
+            final List<Object> values = new ArrayList<>(length);
+            for (int i = 0; i < length; i++) {
+                values.add(Array.get(expected, i));
+            }
+            return values;
+        } else {
+            return null;
+        }
+    }
+}
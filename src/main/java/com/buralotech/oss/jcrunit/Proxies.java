@@ -0,0 +1,54 @@
+/*
+ * Copyright 2025 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buralotech.oss.jcrunit;
+
+import java.lang.reflect.Modifier;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Helpers for the dynamic proxies that wrap the repository and the JCR objects obtained from it.
+ *
+ * @author <a href="mailto:bmatthews68@gmail.com">Brian Matthews</a>
+ * @since 5.0
+ */
+final class Proxies {
+
+    /**
+     * Prevent instantiation.
+     */
+    private Proxies() {
+    }
+
+    /**
+     * Find the public interfaces implemented by an implementation class and its superclasses.
+     *
+     * @param type The implementation class.
+     * @return The interfaces.
+     */
+    static Class<?>[] interfaces(final Class<?> type) {
+        final Set<Class<?>> interfaces = new LinkedHashSet<>();
+        for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+            for (final Class<?> candidate : current.getInterfaces()) {
+                if (Modifier.isPublic(candidate.getModifiers())) {
+                    interfaces.add(candidate);
+                }
+            }
+        }
+        return interfaces.toArray(new Class<?>[0]);
+    }
+}
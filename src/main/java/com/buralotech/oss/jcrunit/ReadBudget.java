@@ -0,0 +1,247 @@
+/*
+ * Copyright 2025 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.buralotech.oss.jcrunit;
+
+import javax.jcr.Binary;
+import javax.jcr.Node;
+import javax.jcr.Property;
+import javax.jcr.Repository;
+import javax.jcr.Value;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the nodes and properties read through a repository and verifies them against a {@link JCRReadBudget}.
+ * <p>
+ * The repository is wrapped in a dynamic proxy and so is every JCR object obtained from it, such as sessions, nodes,
+ * properties, iterators and query results. Each {@link Node} or {@link Property} returned by a wrapped object counts
+ * as one read. Wrapped objects passed back to the repository as arguments are unwrapped so the repository only ever
+ * sees its own implementation objects. Values and binaries are returned as they are.
+ *
+ * @author <a href="mailto:bmatthews68@gmail.com">Brian Matthews</a>
+ * @since 5.0
+ */
+final class ReadBudget {
+
+    /**
+     * The interfaces implemented by the proxies for each implementation class.
+     */
+    private static final Map<Class<?>, Class<?>[]> INTERFACES = new ConcurrentHashMap<>();
+
+    /**
+     * The maximum number of nodes that may be read.
+     */
+    private final long maxNodesRead;
+
+    /**
+     * The maximum number of properties that may be read.
+     */
+    private final long maxPropertiesRead;
+
+    /**
+     * The number of nodes read.
+     */
+    private final LongAdder nodesRead = new LongAdder();
+
+    /**
+     * The number of properties read.
+     */
+    private final LongAdder propertiesRead = new LongAdder();
+
+    /**
+     * Initialise the budget.
+     *
+     * @param annotation Specifies the maximum number of nodes and properties that may be read.
+     */
+    ReadBudget(final JCRReadBudget annotation) {
+        this.maxNodesRead = annotation.maxNodesRead();
+        this.maxPropertiesRead = annotation.maxPropertiesRead();
+    }
+
+    /**
+     * Wrap a repository so that the nodes and properties read through it are counted.
+     *
+     * @param repository The repository.
+     * @return The wrapped repository.
+     */
+    Repository wrap(final Repository repository) {
+        return (Repository) wrap((Object) repository);
+    }
+
+    /**
+     * Return the number of nodes read so far.
+     *
+     * @return The number of nodes read.
+     */
+    long nodesRead() {
+        return nodesRead.sum();
+    }
+
+    /**
+     * Return the number of properties read so far.
+     *
+     * @return The number of properties read.
+     */
+    long propertiesRead() {
+        return propertiesRead.sum();
+    }
+
+    /**
+     * Verify that the number of nodes and properties read did not exceed the budget.
+     *
+     * @throws AssertionError If the budget was exceeded.
+     */
+    void verify() {
+        final long nodes = nodesRead();
+        final long properties = propertiesRead();
+        if (nodes > maxNodesRead) {
+            throw new AssertionError(String.format("Read %d node(s) but the budget is %d (%d propert(ies) read)",
+                    nodes, maxNodesRead, properties));
+        }
+        if (properties > maxPropertiesRead) {
+            throw new AssertionError(String.format("Read %d propert(ies) but the budget is %d (%d node(s) read)",
+                    properties, maxPropertiesRead, nodes));
+        }
+    }
+
+    /**
+     * Wrap a JCR object in a counting proxy. Objects that do not implement a JCR interface, values and binaries are
+     * returned as they are.
+     *
+     * @param target The object.
+     * @return The wrapped object.
+     */
+    private Object wrap(final Object target) {
+        if (target == null || target instanceof Value || target instanceof Binary || isCountingProxy(target)) {
+            return target;
+        }
+        final Class<?>[] interfaces = INTERFACES.computeIfAbsent(target.getClass(), ReadBudget::interfaces);
+        if (interfaces.length == 0) {
+            return target;
+        }
+        return Proxy.newProxyInstance(target.getClass().getClassLoader(), interfaces, new Handler(target));
+    }
+
+    /**
+     * Find the public interfaces implemented by an implementation class if at least one of them is a JCR interface.
+     *
+     * @param type The implementation class.
+     * @return The interfaces or an empty array if none of them is a JCR interface.
+     */
+    private static Class<?>[] interfaces(final Class<?> type) {
+        final Class<?>[] interfaces = Proxies.interfaces(type);
+        for (final Class<?> candidate : interfaces) {
+            if (isJcr(candidate)) {
+                return interfaces;
+            }
+        }
+        return new Class<?>[0];
+    }
+
+    /**
+     * Check if an interface is or extends a JCR interface.
+     *
+     * @param type The interface.
+     * @return {@code true} if the interface is or extends a JCR interface. Otherwise, {@code false}.
+     */
+    private static boolean isJcr(final Class<?> type) {
+        if (type.getName().startsWith("javax.jcr.")) {
+            return true;
+        }
+        for (final Class<?> parent : type.getInterfaces()) {
+            if (isJcr(parent)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check if an object is a counting proxy.
+     *
+     * @param target The object.
+     * @return {@code true} if the object is a counting proxy. Otherwise, {@code false}.
+     */
+    private static boolean isCountingProxy(final Object target) {
+        return Proxy.isProxyClass(target.getClass()) && Proxy.getInvocationHandler(target) instanceof Handler;
+    }
+
+    /**
+     * Unwrap a counting proxy.
+     *
+     * @param argument The argument.
+     * @return The wrapped object if the argument is a counting proxy. Otherwise, the argument.
+     */
+    private static Object unwrap(final Object argument) {
+        if (argument != null
+                && Proxy.isProxyClass(argument.getClass())
+                && Proxy.getInvocationHandler(argument) instanceof Handler handler) {
+            return handler.target;
+        }
+        return argument;
+    }
+
+    /**
+     * Forwards invocations to the wrapped object, counting the nodes and properties it returns and wrapping any JCR
+     * objects it returns.
+     */
+    private final class Handler implements InvocationHandler {
+
+        /**
+         * The wrapped object.
+         */
+        private final Object target;
+
+        /**
+         * Initialise the handler.
+         *
+         * @param target The wrapped object.
+         */
+        Handler(final Object target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(final Object proxy,
+                             final Method method,
+                             final Object[] args) throws Throwable {
+            if (args != null) {
+                for (int i = 0; i < args.length; i++) {
+                    args[i] = unwrap(args[i]);
+                }
+            }
+            final Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (final InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (result instanceof Node) {
+                nodesRead.increment();
+            } else if (result instanceof Property) {
+                propertiesRead.increment();
+            }
+            return wrap(result);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2025 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.buralotech.oss.jcrunit;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Accumulates the cost of the repository work performed on behalf of a {@link JCRRepositoryTester} so that tests
+ * that are slow because of the JCR setup, rather than the code under test, can be identified. The counters are
+ * updated by the repository helper and by the {@link MetricsEditorProvider} installed in every embedded repository.
+ * <p>
+ * Writes that are restored from the {@link FixtureCache} or by a purge bypass the commit hooks and are not
+ * counted as nodes written.
+ *
+ * @author <a href="mailto:bmatthews68@gmail.com">Brian Matthews</a>
+ * @since 5.0
+ */
+final class RepositoryMetrics {
+
+    /**
+     * The time spent launching or acquiring the repository in nanoseconds.
+     */
+    private final LongAdder startupNanos = new LongAdder();
+
+    /**
+     * The time spent importing fixtures in nanoseconds.
+     */
+    private final LongAdder importNanos = new LongAdder();
+
+    /**
+     * The number of sessions opened.
+     */
+    private final LongAdder sessions = new LongAdder();
+
+    /**
+     * The number of commits made to the node store.
+     */
+    private final LongAdder commits = new LongAdder();
+
+    /**
+     * The number of nodes added or modified.
+     */
+    private final LongAdder nodesWritten = new LongAdder();
+
+    /**
+     * The number of bytes in the binary properties that were written.
+     */
+    private final LongAdder blobBytes = new LongAdder();
+
+    /**
+     * A point-in-time copy of the metrics.
+     *
+     * @param startupNanos The time spent launching or acquiring the repository in nanoseconds.
+     * @param importNanos  The time spent importing fixtures in nanoseconds.
+     * @param sessions     The number of sessions opened.
+     * @param commits      The number of commits made to the node store.
+     * @param nodesWritten The number of nodes added or modified.
+     * @param blobBytes    The number of bytes in the binary properties that were written.
+     */
+    record Snapshot(long startupNanos,
+                    long importNanos,
+                    long sessions,
+                    long commits,
+                    long nodesWritten,
+                    long blobBytes) {
+
+        /**
+         * An empty snapshot.
+         */
+        static final Snapshot EMPTY = new Snapshot(0, 0, 0, 0, 0, 0);
+
+        /**
+         * Calculate the metrics accumulated since an earlier snapshot was taken.
+         *
+         * @param earlier The earlier snapshot.
+         * @return The difference.
+         */
+        Snapshot minus(final Snapshot earlier) {
+            return new Snapshot(
+                    startupNanos - earlier.startupNanos,
+                    importNanos - earlier.importNanos,
+                    sessions - earlier.sessions,
+                    commits - earlier.commits,
+                    nodesWritten - earlier.nodesWritten,
+                    blobBytes - earlier.blobBytes);
+        }
+
+        /**
+         * Add the metrics from another snapshot.
+         *
+         * @param other The other snapshot.
+         * @return The sum.
+         */
+        Snapshot plus(final Snapshot other) {
+            return new Snapshot(
+                    startupNanos + other.startupNanos,
+                    importNanos + other.importNanos,
+                    sessions + other.sessions,
+                    commits + other.commits,
+                    nodesWritten + other.nodesWritten,
+                    blobBytes + other.blobBytes);
+        }
+
+        /**
+         * Return a copy of the snapshot without the startup and import times.
+         *
+         * @return The copy.
+         */
+        Snapshot withoutSetup() {
+            return new Snapshot(0, 0, sessions, commits, nodesWritten, blobBytes);
+        }
+
+        /**
+         * The total time spent setting up the repository in nanoseconds.
+         *
+         * @return The sum of the startup and import times.
+         */
+        long setupNanos() {
+            return startupNanos + importNanos;
+        }
+
+        /**
+         * Format the metrics as a JUnit report entry.
+         *
+         * @return The report entry.
+         */
+        Map<String, String> toReportEntry() {
+            final Map<String, String> entry = new LinkedHashMap<>();
+            entry.put("jcrunit.startupMillis", Long.toString(TimeUnit.NANOSECONDS.toMillis(startupNanos)));
+            entry.put("jcrunit.importMillis", Long.toString(TimeUnit.NANOSECONDS.toMillis(importNanos)));
+            entry.put("jcrunit.sessions", Long.toString(sessions));
+            entry.put("jcrunit.commits", Long.toString(commits));
+            entry.put("jcrunit.nodesWritten", Long.toString(nodesWritten));
+            entry.put("jcrunit.blobBytes", Long.toString(blobBytes));
+            return entry;
+        }
+    }
+
+    /**
+     * Record the time spent launching or acquiring the repository.
+     *
+     * @param nanos The elapsed time in nanoseconds.
+     */
+    void startup(final long nanos) {
+        startupNanos.add(nanos);
+    }
+
+    /**
+     * Record the time spent importing fixtures.
+     *
+     * @param nanos The elapsed time in nanoseconds.
+     */
+    void imported(final long nanos) {
+        importNanos.add(nanos);
+    }
+
+    /**
+     * Record that a session was opened.
+     */
+    void sessionOpened() {
+        sessions.increment();
+    }
+
+    /**
+     * Record that a commit was made to the node store.
+     */
+    void committed() {
+        commits.increment();
+    }
+
+    /**
+     * Record that a node was added or modified.
+     */
+    void nodeWritten() {
+        nodesWritten.increment();
+    }
+
+    /**
+     * Record that a binary property was written.
+     *
+     * @param bytes The length of the binary.
+     */
+    void blobWritten(final long bytes) {
+        blobBytes.add(bytes);
+    }
+
+    /**
+     * Take a point-in-time copy of the metrics.
+     *
+     * @return The snapshot.
+     */
+    Snapshot snapshot() {
+        return new Snapshot(
+                startupNanos.sum(),
+                importNanos.sum(),
+                sessions.sum(),
+                commits.sum(),
+                nodesWritten.sum(),
+                blobBytes.sum());
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2025 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.buralotech.oss.jcrunit;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A Java Flight Recorder event emitted when a test that used an embedded repository completes. The event is only
+ * recorded when a flight recording with the {@code com.buralotech.oss.jcrunit.Test} event enabled is running, for
+ * example by starting the JVM with {@code -XX:StartFlightRecording}.
+ *
+ * @author <a href="mailto:bmatthews68@gmail.com">Brian Matthews</a>
+ * @since 5.0
+ */
+@Name("com.buralotech.oss.jcrunit.Test")
+@Label("JCR Unit Test")
+@Description("The repository work performed on behalf of a test")
+@Category({"JCR Unit"})
+@StackTrace(false)
+final class RepositoryMetricsEvent extends Event {
+
+    @Label("Test")
+    String test;
+
+    @Label("Startup Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long startup;
+
+    @Label("Import Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long imports;
+
+    @Label("Sessions Opened")
+    long sessions;
+
+    @Label("Commits")
+    long commits;
+
+    @Label("Nodes Written")
+    long nodesWritten;
+
+    @Label("Blob Bytes Stored")
+    @DataAmount(DataAmount.BYTES)
+    long blobBytes;
+
+    /**
+     * Emit the event if it is enabled.
+     *
+     * @param test    The unique identifier of the test.
+     * @param metrics The metrics accumulated by the test.
+     */
+    static void emit(final String test,
+                     final RepositoryMetrics.Snapshot metrics) {
+        final RepositoryMetricsEvent event = new RepositoryMetricsEvent();
+        if (event.isEnabled()) {
+            event.test = test;
+            event.startup = metrics.startupNanos();
+            event.imports = metrics.importNanos();
+            event.sessions = metrics.sessions();
+            event.commits = metrics.commits();
+            event.nodesWritten = metrics.nodesWritten();
+            event.blobBytes = metrics.blobBytes();
+            event.commit();
+        }
+    }
+}
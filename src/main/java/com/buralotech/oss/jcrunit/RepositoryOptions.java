@@ -0,0 +1,89 @@
+/*
+ * Copyright 2025 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buralotech.oss.jcrunit;
+
+/**
+ * The options that determine how an embedded repository is constructed. Embedded repositories are only
+ * interchangeable if they were created with equal options so the options are used to key the {@link RepositoryPool}
+ * and the {@link FixtureCache}.
+ *
+ * @param profile   Determines which Oak features are installed.
+ * @param nodeStore Determines the storage engine.
+ * @param blobStore Determines where binary content is stored.
+ * @author <a href="mailto:bmatthews68@gmail.com">Brian Matthews</a>
+ * @since 5.0
+ */
+record RepositoryOptions(JCRRepositoryProfile profile, JCRNodeStore nodeStore, JCRBlobStore blobStore) {
+
+    /**
+     * The options used when none are specified.
+     */
+    static final RepositoryOptions DEFAULT = new RepositoryOptions(
+            JCRRepositoryProfile.FULL, JCRNodeStore.MEMORY, JCRBlobStore.MEMORY);
+
+    /**
+     * Get the options specified by a {@link JCRRepositoryConfiguration} annotation.
+     *
+     * @param annotation The annotation.
+     * @return The options.
+     */
+    static RepositoryOptions of(final JCRRepositoryConfiguration annotation) {
+        return new RepositoryOptions(annotation.profile(), annotation.nodeStore(), annotation.blobStore());
+    }
+
+    /**
+     * Return a copy of these options with a different profile.
+     *
+     * @param profile Determines which Oak features are installed.
+     * @return The options.
+     */
+    RepositoryOptions withProfile(final JCRRepositoryProfile profile) {
+        return new RepositoryOptions(profile, nodeStore, blobStore);
+    }
+
+    /**
+     * Return a copy of these options with a different storage engine.
+     *
+     * @param nodeStore Determines the storage engine.
+     * @return The options.
+     */
+    RepositoryOptions withNodeStore(final JCRNodeStore nodeStore) {
+        return new RepositoryOptions(profile, nodeStore, blobStore);
+    }
+
+    /**
+     * Return a copy of these options with a different blob store.
+     *
+     * @param blobStore Determines where binary content is stored.
+     * @return The options.
+     */
+    RepositoryOptions withBlobStore(final JCRBlobStore blobStore) {
+        return new RepositoryOptions(profile, nodeStore, blobStore);
+    }
+
+    /**
+     * Check if node states captured from one repository remain valid after the repository has been disposed and can
+     * be shared with other repositories. This is only true for the in-memory node store with binaries held on the
+     * heap, the node states of the other node stores are read from storage that is released when the repository is
+     * disposed and the binaries in a file blob store are deleted with the repository's blob directory.
+     *
+     * @return {@code true} if node states can be shared between repositories.
+     */
+    boolean sharesNodeStates() {
+        return nodeStore == JCRNodeStore.MEMORY && blobStore == JCRBlobStore.MEMORY;
+    }
+}
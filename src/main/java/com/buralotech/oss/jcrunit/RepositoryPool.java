@@ -0,0 +1,165 @@
+/*
+ * Copyright 2025 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buralotech.oss.jcrunit;
+
+import javax.jcr.RepositoryException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A process-wide pool of bootstrapped embedded repositories. Repositories are handed out to tests and, when they
+ * are returned, reset to their post-bootstrap baseline rather than being rebuilt from scratch.
+ * <p>
+ * The maximum number of idle repositories retained by the pool defaults to the number of available processors and
+ * can be overridden with the {@code jcrunit.pool.size} system property.
+ * <p>
+ * The pool is lock-free. Concurrent callers never block waiting for a repository, if no idle repository is available
+ * a new one is bootstrapped, and each repository is only ever handed out to one caller at a time.
+ * <p>
+ * Repositories created with different {@link RepositoryOptions} are not interchangeable so the pool keeps a separate
+ * set of idle repositories for each combination of options.
+ * <p>
+ * The idle repositories of the shared pool are disposed when the JVM shuts down.
+ *
+ * @author <a href="mailto:bmatthews68@gmail.com">Brian Matthews</a>
+ * @since 5.0
+ */
+final class RepositoryPool {
+
+    /**
+     * The name of the system property used to override the pool size.
+     */
+    static final String SIZE_PROPERTY = "jcrunit.pool.size";
+
+    /**
+     * The shared pool.
+     */
+    private static final RepositoryPool INSTANCE = new RepositoryPool(
+            Integer.getInteger(SIZE_PROPERTY, Runtime.getRuntime().availableProcessors()));
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(INSTANCE::clear, "jcrunit-pool-cleanup"));
+    }
+
+    /**
+     * The maximum number of idle repositories retained by the pool for each combination of options.
+     */
+    private final int size;
+
+    /**
+     * The idle repositories keyed by the options used to create them.
+     */
+    private final Map<RepositoryOptions, Idle> idle = new ConcurrentHashMap<>();
+
+    /**
+     * The idle repositories that were created with the same options.
+     *
+     * @param repositories The idle repositories.
+     * @param count        The number of idle repositories.
+     */
+    private record Idle(ConcurrentLinkedDeque<EmbeddedRepository> repositories, AtomicInteger count) {
+
+        /**
+         * Initialise an empty set of idle repositories.
+         */
+        Idle() {
+            this(new ConcurrentLinkedDeque<>(), new AtomicInteger());
+        }
+    }
+
+    /**
+     * Initialise the pool.
+     *
+     * @param size The maximum number of idle repositories retained by the pool for each combination of options.
+     */
+    RepositoryPool(final int size) {
+        this.size = size;
+    }
+
+    /**
+     * Return the shared pool.
+     *
+     * @return The shared pool.
+     */
+    static RepositoryPool getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Hand out an idle repository created with the default options or bootstrap a new one if there are none.
+     *
+     * @return The embedded repository.
+     */
+    EmbeddedRepository acquire() {
+        return acquire(RepositoryOptions.DEFAULT);
+    }
+
+    /**
+     * Hand out an idle repository created with the options or bootstrap a new one if there are none.
+     *
+     * @param options The options that determine how the repository is constructed.
+     * @return The embedded repository.
+     */
+    EmbeddedRepository acquire(final RepositoryOptions options) {
+        final Idle candidates = idle.computeIfAbsent(options, key -> new Idle());
+        final EmbeddedRepository repository = candidates.repositories().pollFirst();
+        if (repository == null) {
+            return EmbeddedRepository.create(options);
+        }
+        candidates.count().decrementAndGet();
+        return repository;
+    }
+
+    /**
+     * Reset a repository to its baseline and return it to the pool. If the pool is already full the repository is
+     * disposed.
+     *
+     * @param repository The embedded repository.
+     * @throws RepositoryException If the repository could not be reset.
+     */
+    void release(final EmbeddedRepository repository) throws RepositoryException {
+        final Idle candidates = idle.computeIfAbsent(repository.getOptions(), key -> new Idle());
+        if (candidates.count().incrementAndGet() <= size) {
+            try {
+                repository.reset();
+            } catch (final RepositoryException | RuntimeException e) {
+                candidates.count().decrementAndGet();
+                repository.dispose();
+                throw e;
+            }
+            candidates.repositories().offerFirst(repository);
+        } else {
+            candidates.count().decrementAndGet();
+            repository.dispose();
+        }
+    }
+
+    /**
+     * Dispose all the idle repositories held by the pool.
+     */
+    void clear() {
+        idle.values().forEach(candidates -> {
+            EmbeddedRepository repository;
+            while ((repository = candidates.repositories().pollFirst()) != null) {
+                candidates.count().decrementAndGet();
+                repository.dispose();
+            }
+        });
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2025 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.buralotech.oss.jcrunit;
+
+import org.apache.jackrabbit.oak.segment.SegmentNodeStoreBuilders;
+import org.apache.jackrabbit.oak.segment.file.FileStore;
+import org.apache.jackrabbit.oak.segment.file.FileStoreBuilder;
+import org.apache.jackrabbit.oak.segment.file.InvalidFileStoreVersionException;
+import org.apache.jackrabbit.oak.spi.blob.BlobStore;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Creates segment node stores in temporary directories. The directories are created on tmpfs if {@code /dev/shm} is
+ * available and writable so the stores are written to memory-mapped files without touching the disk.
+ *
+ * @author <a href="mailto:bmatthews68@gmail.com">Brian Matthews</a>
+ * @since 5.0
+ */
+final class SegmentNodeStores {
+
+    /**
+     * The name of the system property used to choose the parent directory for the segment stores.
+     */
+    static final String DIRECTORY_PROPERTY = "jcrunit.segmentStore.directory";
+
+    /**
+     * The tmpfs mount point found on most Linux systems.
+     */
+    private static final Path SHARED_MEMORY = Paths.get("/dev/shm");
+
+    /**
+     * Prevent instantiation.
+     */
+    private SegmentNodeStores() {
+    }
+
+    /**
+     * Create a segment node store in a new temporary directory. The directory is deleted when the node store is
+     * disposed.
+     *
+     * @param blobStore The blob store used for binaries or {@code null} to inline binaries in the segments.
+     * @return The node store.
+     */
+    static NodeStores.Handle create(final BlobStore blobStore) {
+        try {
+            final Path directory = Files.createTempDirectory(parentDirectory(), "jcrunit-segments");
+            final FileStoreBuilder builder = FileStoreBuilder.fileStoreBuilder(directory.toFile())
+                    .withMemoryMapping(true);
+            if (blobStore != null) {
+                builder.withBlobStore(blobStore);
+            }
+            final FileStore fileStore;
+            try {
+                fileStore = builder.build();
+            } catch (final IOException | InvalidFileStoreVersionException | RuntimeException e) {
+                delete(directory);
+                throw e;
+            }
+            final Closeable closeable = fileStore;
+            return new NodeStores.Handle(SegmentNodeStoreBuilders.builder(fileStore).build(), () -> {
+                try {
+                    closeable.close();
+                } catch (final IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    delete(directory);
+                }
+            });
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (final InvalidFileStoreVersionException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Choose the parent directory for the segment stores.
+     *
+     * @return The directory specified by the {@code jcrunit.segmentStore.directory} system property, {@code /dev/shm}
+     * if it is writable or the default temporary directory.
+     */
+    private static Path parentDirectory() {
+        final String directory = System.getProperty(DIRECTORY_PROPERTY);
+        if (directory != null) {
+            return Paths.get(directory);
+        } else if (Files.isDirectory(SHARED_MEMORY) && Files.isWritable(SHARED_MEMORY)) {
+            return SHARED_MEMORY;
+        } else {
+            return Paths.get(System.getProperty("java.io.tmpdir"));
+        }
+    }
+
+    /**
+     * Delete a directory and its content ignoring any failures.
+     *
+     * @param directory The directory.
+     */
+    private static void delete(final Path directory) {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (final IOException ignored) {
+            // The directory is in a temporary location so it will eventually be cleaned up
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2025 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buralotech.oss.jcrunit;
+
+import javax.jcr.Repository;
+import javax.jcr.Session;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Keeps track of the sessions logged in through a repository so that sessions a test forgot to log out can be found
+ * and logged out when the test completes. Each live session pins the root revision it was last refreshed with, so a
+ * leaked session keeps old revisions and their memory from being reclaimed. The sessions are also counted in the
+ * {@link RepositoryMetrics} of the repository helper.
+ *
+ * @author <a href="mailto:bmatthews68@gmail.com">Brian Matthews</a>
+ * @since 5.0
+ */
+final class SessionTracker {
+
+    /**
+     * The sessions logged in through the wrapped repository.
+     */
+    private final List<Session> sessions = new CopyOnWriteArrayList<>();
+
+    /**
+     * The metrics in which the sessions are counted.
+     */
+    private final RepositoryMetrics metrics;
+
+    /**
+     * Initialise the tracker.
+     *
+     * @param metrics The metrics in which the sessions are counted.
+     */
+    SessionTracker(final RepositoryMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Wrap a repository so that the sessions logged in through it are tracked.
+     *
+     * @param repository The repository.
+     * @return The wrapped repository.
+     */
+    Repository wrap(final Repository repository) {
+        return (Repository) Proxy.newProxyInstance(
+                repository.getClass().getClassLoader(),
+                Proxies.interfaces(repository.getClass()),
+                (proxy, method, args) -> {
+                    final Object result;
+                    try {
+                        result = method.invoke(repository, args);
+                    } catch (final InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                    if (result instanceof Session session) {
+                        metrics.sessionOpened();
+                        sessions.add(session);
+                    }
+                    return result;
+                });
+    }
+
+    /**
+     * Log out the tracked sessions that are still live.
+     *
+     * @return The number of sessions that were still live.
+     */
+    int logoutLive() {
+        int live = 0;
+        for (final Session session : sessions) {
+            if (session.isLive()) {
+                live++;
+                session.logout();
+            }
+        }
+        sessions.clear();
+        return live;
+    }
+}
@@ -0,0 +1,353 @@
+/*
+ * Copyright 2025 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.buralotech.oss.jcrunit;
+
+import org.apache.jackrabbit.oak.commons.json.JsopBuilder;
+import org.apache.jackrabbit.oak.commons.json.JsopTokenizer;
+
+import javax.jcr.ItemNotFoundException;
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.Property;
+import javax.jcr.PropertyIterator;
+import javax.jcr.PropertyType;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.Value;
+import javax.jcr.nodetype.NodeType;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static javax.jcr.Property.JCR_MIXIN_TYPES;
+import static javax.jcr.Property.JCR_PRIMARY_TYPE;
+
+/**
+ * Serialises a subtree of the repository into a canonical form and compares serialised subtrees. Each node is written
+ * as a JSON object on a line of its own holding the path of the node relative to the root of the subtree, its primary
+ * type, its mixin types and its properties. Nodes are written depth-first with the children of each node, its mixin
+ * types and its properties sorted by name so the same content always produces the same snapshot. Binary values are
+ * written as their length and SHA-256 hash, and reference values as the path of the referenced node.
+ * <p>
+ * Nodes are streamed to the writer as they are visited and only the names of the children of the nodes on the
+ * current path are held in memory, so subtrees of any size can be serialised.
+ *
+ * @author <a href="mailto:bmatthews68@gmail.com">Brian Matthews</a>
+ * @since 5.0
+ */
+final class SubtreeSnapshot {
+
+    /**
+     * The name of the system property used to regenerate the snapshot files instead of comparing against them.
+     */
+    static final String UPDATE_PROPERTY = "jcrunit.snapshot.update";
+
+    /**
+     * The name of the system property used to choose the directory to which snapshot files are relative.
+     */
+    static final String DIRECTORY_PROPERTY = "jcrunit.snapshot.directory";
+
+    /**
+     * The directory to which snapshot files are relative unless overridden by the {@code jcrunit.snapshot.directory}
+     * system property.
+     */
+    private static final String DEFAULT_DIRECTORY = "src/test/resources";
+
+    /**
+     * The properties that are left out of snapshots by default because their values change every time the content
+     * is created.
+     */
+    static final Set<String> VOLATILE_PROPERTIES = Set.of(
+            "jcr:uuid",
+            "jcr:created",
+            "jcr:createdBy",
+            "jcr:lastModified",
+            "jcr:lastModifiedBy",
+            "jcr:baseVersion",
+            "jcr:versionHistory",
+            "jcr:predecessors");
+
+    /**
+     * Orders relative paths in the order in which they are written by a depth-first traversal that visits the
+     * children of each node in name order.
+     */
+    static final Comparator<String> PATH_ORDER = SubtreeSnapshot::comparePaths;
+
+    /**
+     * The session used to resolve reference values.
+     */
+    private final Session session;
+
+    /**
+     * The names of the properties that are left out of the snapshot.
+     */
+    private final Set<String> ignoredProperties;
+
+    /**
+     * Receives the serialised nodes.
+     */
+    private final Writer writer;
+
+    /**
+     * Initialise the serialiser.
+     *
+     * @param session           The session used to resolve reference values.
+     * @param ignoredProperties The names of the properties that are left out of the snapshot.
+     * @param writer            Receives the serialised nodes.
+     */
+    private SubtreeSnapshot(final Session session,
+                            final Set<String> ignoredProperties,
+                            final Writer writer) {
+        this.session = session;
+        this.ignoredProperties = ignoredProperties;
+        this.writer = writer;
+    }
+
+    /**
+     * Serialise a subtree.
+     *
+     * @param root              The root node of the subtree.
+     * @param ignoredProperties The names of the properties that are left out of the snapshot.
+     * @param writer            Receives the serialised nodes.
+     * @throws RepositoryException If there was a problem reading the subtree.
+     * @throws IOException         If there was a problem reading a binary value or writing the snapshot.
+     */
+    static void write(final Node root,
+                      final Set<String> ignoredProperties,
+                      final Writer writer) throws RepositoryException, IOException {
+        new SubtreeSnapshot(root.getSession(), ignoredProperties, writer).visit(root, "/");
+    }
+
+    /**
+     * Resolve the location of a snapshot file.
+     *
+     * @param snapshot The path of the snapshot file relative to the snapshot directory.
+     * @return The location of the snapshot file.
+     */
+    static Path file(final String snapshot) {
+        return Paths.get(System.getProperty(DIRECTORY_PROPERTY, DEFAULT_DIRECTORY)).resolve(snapshot);
+    }
+
+    /**
+     * Check if snapshot files should be regenerated instead of compared against.
+     *
+     * @return {@code true} if the {@code jcrunit.snapshot.update} system property is {@code true}.
+     */
+    static boolean isUpdating() {
+        return Boolean.getBoolean(UPDATE_PROPERTY);
+    }
+
+    /**
+     * Compare two snapshots. Both snapshots are read one line at a time and matched up by path so that a missing or
+     * additional node is reported once rather than shifting every line that follows it.
+     *
+     * @param expected Reads the expected snapshot.
+     * @param actual   Reads the actual snapshot.
+     * @param limit    The maximum number of differences to describe.
+     * @return The descriptions of the differences followed by a count of the differences that were not described.
+     * @throws IOException If there was a problem reading either snapshot.
+     */
+    static List<String> diff(final BufferedReader expected,
+                             final BufferedReader actual,
+                             final int limit) throws IOException {
+        final List<String> differences = new ArrayList<>();
+        int count = 0;
+        String expectedLine = expected.readLine();
+        String actualLine = actual.readLine();
+        while (expectedLine != null || actualLine != null) {
+            final int order;
+            if (expectedLine == null) {
+                order = 1;
+            } else if (actualLine == null) {
+                order = -1;
+            } else {
+                order = PATH_ORDER.compare(path(expectedLine), path(actualLine));
+            }
+            final String difference;
+            if (order < 0) {
+                difference = String.format("Missing [%s]", path(expectedLine));
+                expectedLine = expected.readLine();
+            } else if (order > 0) {
+                difference = String.format("Unexpected [%s]", path(actualLine));
+                actualLine = actual.readLine();
+            } else {
+                difference = expectedLine.equals(actualLine)
+                        ? null
+                        : String.format("Changed [%s]%n  expected: %s%n  actual:   %s", path(expectedLine), expectedLine, actualLine);
+                expectedLine = expected.readLine();
+                actualLine = actual.readLine();
+            }
+            if (difference != null && count++ < limit) {
+                differences.add(difference);
+            }
+        }
+        if (count > limit) {
+            differences.add(String.format("... and %d more", count - limit));
+        }
+        return differences;
+    }
+
+    /**
+     * Write a node and then visit its children in name order.
+     *
+     * @param node The node.
+     * @param path The path of the node relative to the root of the subtree.
+     * @throws RepositoryException If there was a problem reading the node.
+     * @throws IOException         If there was a problem reading a binary value or writing the snapshot.
+     */
+    private void visit(final Node node,
+                       final String path) throws RepositoryException, IOException {
+        writer.write(serialise(node, path));
+        writer.write('\n');
+        final List<String> names = new ArrayList<>();
+        for (final NodeIterator children = node.getNodes(); children.hasNext(); ) {
+            names.add(children.nextNode().getName());
+        }
+        names.sort(Comparator.naturalOrder());
+        for (final String name : names) {
+            visit(node.getNode(name), path.equals("/") ? "/" + name : path + "/" + name);
+        }
+    }
+
+    /**
+     * Serialise a node without its children.
+     *
+     * @param node The node.
+     * @param path The path of the node relative to the root of the subtree.
+     * @return The JSON object.
+     * @throws RepositoryException If there was a problem reading the node.
+     * @throws IOException         If there was a problem reading a binary value.
+     */
+    private String serialise(final Node node,
+                             final String path) throws RepositoryException, IOException {
+        final JsopBuilder json = new JsopBuilder();
+        json.object();
+        json.key("path").value(path);
+        json.key("primaryType").value(node.getPrimaryNodeType().getName());
+        final List<String> mixins = new ArrayList<>();
+        for (final NodeType mixin : node.getMixinNodeTypes()) {
+            mixins.add(mixin.getName());
+        }
+        if (!mixins.isEmpty()) {
+            mixins.sort(Comparator.naturalOrder());
+            json.key("mixins").array();
+            for (final String mixin : mixins) {
+                json.value(mixin);
+            }
+            json.endArray();
+        }
+        final Map<String, Property> properties = new TreeMap<>();
+        for (final PropertyIterator iterator = node.getProperties(); iterator.hasNext(); ) {
+            final Property property = iterator.nextProperty();
+            final String name = property.getName();
+            if (!name.equals(JCR_PRIMARY_TYPE) && !name.equals(JCR_MIXIN_TYPES) && !ignoredProperties.contains(name)) {
+                properties.put(name, property);
+            }
+        }
+        if (!properties.isEmpty()) {
+            json.key("properties").object();
+            for (final Property property : properties.values()) {
+                json.key(property.getName()).object();
+                json.key("type").value(PropertyType.nameFromValue(property.getType()));
+                if (property.isMultiple()) {
+                    json.key("values").array();
+                    for (final Value value : property.getValues()) {
+                        json.value(serialise(value));
+                    }
+                    json.endArray();
+                } else {
+                    json.key("value").value(serialise(property.getValue()));
+                }
+                json.endObject();
+            }
+            json.endObject();
+        }
+        json.endObject();
+        return json.toString();
+    }
+
+    /**
+     * Serialise a value. Binary values are replaced by their length and hash and reference values by the path of the
+     * referenced node, if it exists, so that snapshots do not depend on generated identifiers.
+     *
+     * @param value The value.
+     * @return The serialised value.
+     * @throws RepositoryException If there was a problem reading the value.
+     */
+    private String serialise(final Value value) throws RepositoryException {
+        switch (value.getType()) {
+            case PropertyType.BINARY -> {
+                return PropertyValues.digest(value.getBinary());
+            }
+            case PropertyType.REFERENCE, PropertyType.WEAKREFERENCE -> {
+                try {
+                    return session.getNodeByIdentifier(value.getString()).getPath();
+                } catch (final ItemNotFoundException e) {
+                    return value.getString();
+                }
+            }
+            default -> {
+                return value.getString();
+            }
+        }
+    }
+
+    /**
+     * Extract the path from a serialised node.
+     *
+     * @param line The serialised node.
+     * @return The path.
+     */
+    private static String path(final String line) {
+        final JsopTokenizer tokenizer = new JsopTokenizer(line);
+        tokenizer.read('{');
+        tokenizer.readString();
+        tokenizer.read(':');
+        return tokenizer.readString();
+    }
+
+    /**
+     * Compare paths one segment at a time so that a node sorts before its descendants and its descendants sort
+     * before its next sibling.
+     *
+     * @param left  The first path.
+     * @param right The second path.
+     * @return A negative number, zero or a positive number if the first path sorts before, with or after the second.
+     */
+    private static int comparePaths(final String left,
+                                    final String right) {
+        final String[] leftSegments = left.split("/");
+        final String[] rightSegments = right.split("/");
+        final int length = Math.min(leftSegments.length, rightSegments.length);
+        for (int i = 0; i < length; i++) {
+            final int order = leftSegments[i].compareTo(rightSegments[i]);
+            if (order != 0) {
+                return order;
+            }
+        }
+        return Integer.compare(leftSegments.length, rightSegments.length);
+    }
+}
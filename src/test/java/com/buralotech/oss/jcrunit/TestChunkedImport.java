@@ -0,0 +1,128 @@
+/*
+ * Copyright 2025 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.buralotech.oss.jcrunit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.jcr.RepositoryException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JCRRepositoryConfiguration
+@ExtendWith(JCRRepositoryExtension.class)
+class TestChunkedImport {
+
+    @Test
+    void importDocumentViewInBatches(final JCRRepositoryTester helper,
+                                     @TempDir final Path directory) throws IOException, RepositoryException {
+        final Path file = directory.resolve("dump.xml");
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("<dump xmlns:jcr=\"http://www.jcp.org/jcr/1.0\" jcr:primaryType=\"nt:folder\">");
+            for (int i = 0; i < 999; i++) {
+                writer.write("<f" + i + " jcr:primaryType=\"nt:folder\"/>");
+            }
+            writer.write("</dump>");
+        }
+        final List<Long> progress = new ArrayList<>();
+        helper.importFromXML(file, 100, progress::add);
+        assertThat(progress)
+                .startsWith(100L, 200L)
+                .endsWith(1000L);
+        assertThat(helper)
+                .isFolder("/dump")
+                .isFolder("/dump/f0")
+                .isFolder("/dump/f998");
+    }
+
+    @Test
+    void importSystemViewInBatches(final JCRRepositoryTester helper) throws IOException, RepositoryException {
+        final String xml = """
+                <sv:node xmlns:sv="http://www.jcp.org/jcr/sv/1.0" sv:name="sys">
+                    <sv:property sv:name="jcr:primaryType" sv:type="Name"><sv:value>nt:unstructured</sv:value></sv:property>
+                    <sv:property sv:name="title" sv:type="String"><sv:value>Hello</sv:value></sv:property>
+                    <sv:node sv:name="child">
+                        <sv:property sv:name="jcr:primaryType" sv:type="Name"><sv:value>nt:unstructured</sv:value></sv:property>
+                        <sv:property sv:name="count" sv:type="Long"><sv:value>3</sv:value></sv:property>
+                    </sv:node>
+                </sv:node>
+                """;
+        final List<Long> progress = new ArrayList<>();
+        helper.importFromXML(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), 1, progress::add);
+        assertThat(progress).containsExactly(1L, 2L);
+        assertThat(helper)
+                .hasPropertyValue("/sys", "title", "Hello")
+                .hasPropertyValue("/sys/child", "count", 3L);
+    }
+
+    @Test
+    void holdBackBatchWithForwardReference(final JCRRepositoryTester helper) throws IOException, RepositoryException {
+        final String xml = """
+                <sv:node xmlns:sv="http://www.jcp.org/jcr/sv/1.0" sv:name="refs">
+                    <sv:property sv:name="jcr:primaryType" sv:type="Name"><sv:value>nt:unstructured</sv:value></sv:property>
+                    <sv:node sv:name="source">
+                        <sv:property sv:name="jcr:primaryType" sv:type="Name"><sv:value>nt:unstructured</sv:value></sv:property>
+                        <sv:property sv:name="target" sv:type="Reference"><sv:value>7b4c5e1a-2f0d-4c3b-9a8e-6d1f2e3a4b5c</sv:value></sv:property>
+                    </sv:node>
+                    <sv:node sv:name="target">
+                        <sv:property sv:name="jcr:primaryType" sv:type="Name"><sv:value>nt:unstructured</sv:value></sv:property>
+                        <sv:property sv:name="jcr:mixinTypes" sv:type="Name"><sv:value>mix:referenceable</sv:value></sv:property>
+                        <sv:property sv:name="jcr:uuid" sv:type="String"><sv:value>7b4c5e1a-2f0d-4c3b-9a8e-6d1f2e3a4b5c</sv:value></sv:property>
+                    </sv:node>
+                </sv:node>
+                """;
+        final List<Long> progress = new ArrayList<>();
+        helper.importFromXML(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), 1, progress::add);
+        assertThat(progress).containsExactly(2L, 3L);
+        assertThat(helper.inSession(session -> session.getNode("/refs/source").getProperty("target").getNode().getPath()))
+                .isEqualTo("/refs/target");
+    }
+
+    @Test
+    void identifierLikeStringDoesNotHoldBackBatches(final JCRRepositoryTester helper) throws IOException, RepositoryException {
+        final String xml = """
+                <ids xmlns:jcr="http://www.jcp.org/jcr/1.0" jcr:primaryType="nt:unstructured">
+                    <one jcr:primaryType="nt:unstructured" externalId="7b4c5e1a-2f0d-4c3b-9a8e-6d1f2e3a4b5c"/>
+                    <two jcr:primaryType="nt:unstructured" externalId="0e9d8c7b-6a5f-4e3d-2c1b-0a9f8e7d6c5b"/>
+                </ids>
+                """;
+        final List<Long> progress = new ArrayList<>();
+        helper.importFromXML(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), 1, progress::add);
+        assertThat(progress).containsExactly(1L, 2L, 3L);
+        assertThat(helper)
+                .hasPropertyValue("/ids/one", "externalId", "7b4c5e1a-2f0d-4c3b-9a8e-6d1f2e3a4b5c");
+    }
+
+    @Test
+    @JCRRepositoryConfiguration(importXMLs = "data.xml", importBatchSize = 1, cacheImports = false)
+    void importXMLsInBatches(final JCRRepositoryTester helper) {
+        assertThat(helper)
+                .isFolder("/a/b")
+                .isFile("/a/b/c")
+                .isFolder("/a/d");
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2025 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.buralotech.oss.jcrunit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.jcr.Node;
+import javax.jcr.PropertyType;
+import javax.jcr.RepositoryException;
+import javax.jcr.Value;
+import javax.jcr.ValueFactory;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@JCRRepositoryConfiguration
+@ExtendWith(JCRRepositoryExtension.class)
+class TestHasPropertyValue {
+
+    private final byte[] data = new byte[256 * 1024];
+
+    private final Calendar date = Calendar.getInstance();
+
+    private String identifier;
+
+    @BeforeEach
+    void createProperties(final JCRRepositoryTester helper) throws RepositoryException {
+        new Random(42).nextBytes(data);
+        identifier = helper.inSession(session -> {
+            final ValueFactory valueFactory = session.getValueFactory();
+            final Node target = session.getRootNode().addNode("target", "nt:unstructured");
+            target.addMixin("mix:referenceable");
+            final Node node = session.getRootNode().addNode("properties", "nt:unstructured");
+            node.setProperty("date", date);
+            node.setProperty("binary", valueFactory.createBinary(new ByteArrayInputStream(data)));
+            node.setProperty("decimal", new BigDecimal("1.50"));
+            node.setProperty("long", 42L);
+            node.setProperty("name", "nt:base", PropertyType.NAME);
+            node.setProperty("path", "/target", PropertyType.PATH);
+            node.setProperty("uri", "https://example.com/", PropertyType.URI);
+            node.setProperty("reference", target);
+            node.setProperty("weakReference", valueFactory.createValue(target, true));
+            node.setProperty("strings", new String[]{"a", "b"});
+            node.setProperty("longs", new Value[]{valueFactory.createValue(1L), valueFactory.createValue(2L)});
+            session.save();
+            return target.getIdentifier();
+        });
+    }
+
+    @Test
+    void allPropertyTypes(final JCRRepositoryTester helper,
+                          @TempDir final Path directory) throws IOException {
+        final Path file = directory.resolve("data.bin");
+        Files.write(file, data);
+        assertThat(helper)
+                .hasPropertyValue("/properties", "date", date)
+                .hasPropertyValue("/properties", "date", date.toInstant())
+                .hasPropertyValue("/properties", "date", date.getTime())
+                .hasPropertyValue("/properties", "binary", data)
+                .hasPropertyValue("/properties", "binary", file)
+                .hasPropertyValue("/properties", "binary", new ByteArrayInputStream(data))
+                .hasPropertyValue("/properties", "decimal", new BigDecimal("1.5"))
+                .hasPropertyValue("/properties", "long", 42)
+                .hasPropertyValue("/properties", "long", 42L)
+                .hasPropertyValue("/properties", "name", "nt:base")
+                .hasPropertyValue("/properties", "path", "/target")
+                .hasPropertyValue("/properties", "uri", URI.create("https://example.com/"))
+                .hasPropertyValue("/properties", "reference", identifier)
+                .hasPropertyValue("/properties", "weakReference", identifier)
+                .hasPropertyValue("/properties", "strings", List.of("a", "b"))
+                .hasPropertyValue("/properties", "strings", new String[]{"a", "b"})
+                .hasPropertyValue("/properties", "longs", List.of(1L, 2L))
+                .hasPropertyValue("/properties", "longs", new long[]{1L, 2L});
+    }
+
+    @Test
+    void binaryMismatchIsDescribedByDigest(final JCRRepositoryTester helper) {
+        final byte[] other = data.clone();
+        other[other.length - 1]++;
+        assertThatThrownBy(() -> assertThat(helper).hasPropertyValue("/properties", "binary", other))
+                .isInstanceOf(AssertionError.class)
+                .hasMessageContaining(data.length + ":sha256:");
+    }
+
+    @Test
+    void dateMismatch(final JCRRepositoryTester helper) {
+        assertThatThrownBy(() -> assertThat(helper).hasPropertyValue("/properties", "date", date.toInstant().plusSeconds(1)))
+                .isInstanceOf(AssertionError.class);
+    }
+
+    @Test
+    void multiValuedMismatch(final JCRRepositoryTester helper) {
+        assertThatThrownBy(() -> assertThat(helper).hasPropertyValue("/properties", "strings", "a"))
+                .isInstanceOf(AssertionError.class)
+                .hasMessageContaining("multi-valued");
+        assertThatThrownBy(() -> assertThat(helper).hasPropertyValue("/properties", "strings", List.of("a", "c")))
+                .isInstanceOf(AssertionError.class);
+        assertThatThrownBy(() -> assertThat(helper).hasPropertyValue("/properties", "long", List.of(42L)))
+                .isInstanceOf(AssertionError.class)
+                .hasMessageContaining("single-valued");
+    }
+
+    @Test
+    void unsupportedExpectedTypeFails(final JCRRepositoryTester helper) {
+        assertThatThrownBy(() -> assertThat(helper).hasPropertyValue("/properties", "long", "42"))
+                .isInstanceOf(AssertionError.class);
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2025 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.buralotech.oss.jcrunit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.RepetitionInfo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.jcr.RepositoryException;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(JCRRepositoryExtension.class)
+class TestImageCache {
+
+    @TempDir
+    static Path directory;
+
+    @BeforeAll
+    static void useTemporaryDirectory() {
+        System.setProperty(ImageCache.DIRECTORY_PROPERTY, directory.toString());
+    }
+
+    @AfterAll
+    static void restoreDirectory() {
+        System.clearProperty(ImageCache.DIRECTORY_PROPERTY);
+    }
+
+    @RepeatedTest(2)
+    @JCRRepositoryConfiguration(cacheImage = true, importXMLs = "data.xml")
+    void cachedImage(final JCRRepositoryTester helper,
+                     final RepetitionInfo repetitionInfo) throws RepositoryException, IOException, NoSuchMethodException {
+        verifyImage(helper, repetitionInfo, "cachedImage");
+        verify(helper);
+    }
+
+    @RepeatedTest(2)
+    @JCRRepositoryConfiguration(cacheImage = true, pooled = true, importXMLs = "data.xml")
+    void pooledCachedImage(final JCRRepositoryTester helper,
+                           final RepetitionInfo repetitionInfo) throws RepositoryException, IOException, NoSuchMethodException {
+        verifyImage(helper, repetitionInfo, "pooledCachedImage");
+        verify(helper);
+    }
+
+    @Test
+    void keyIsCalculatedOncePerConfiguration() throws IOException, NoSuchMethodException {
+        final JCRRepositoryConfiguration annotation = TestImageCache.class
+                .getDeclaredMethod("cachedImage", JCRRepositoryTester.class, RepetitionInfo.class)
+                .getAnnotation(JCRRepositoryConfiguration.class);
+        final RepositoryOptions options = RepositoryOptions.of(annotation);
+        assertThat(ImageCache.key(annotation, options)).isSameAs(ImageCache.key(annotation, options));
+    }
+
+    private static void verifyImage(final JCRRepositoryTester helper,
+                                    final RepetitionInfo repetitionInfo,
+                                    final String methodName) throws NoSuchMethodException {
+        final JCRRepositoryConfiguration annotation = TestImageCache.class
+                .getDeclaredMethod(methodName, JCRRepositoryTester.class, RepetitionInfo.class)
+                .getAnnotation(JCRRepositoryConfiguration.class);
+        final String key = ImageCache.key(annotation, RepositoryOptions.of(annotation));
+        assertThat(directory.resolve(key)).isDirectory();
+        assertThat(ImageCache.load(key)).isNotNull();
+        if (repetitionInfo.getCurrentRepetition() == 1) {
+            assertThat(helper.getMetrics().snapshot().importNanos()).isPositive();
+        } else {
+            assertThat(helper.getMetrics().snapshot().importNanos()).isZero();
+        }
+    }
+
+    private static void verify(final JCRRepositoryTester helper) throws RepositoryException, IOException {
+        helper
+                .createRootFolder("txt")
+                .createFile("/txt", "data.txt", "text/plain", "UTF-8", "Hello world");
+        assertThat(helper)
+                .isFolder("/a/b")
+                .isFile("/a/b/c")
+                .isFile("/txt/data.txt");
+        assertThat(helper.purge(JCRPurgeScope.TEST))
+                .isFile("/a/b/c")
+                .pathDoesNotExist("/txt");
+        assertThat(helper.purge())
+                .pathDoesNotExist("/a");
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2025 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.buralotech.oss.jcrunit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@ExtendWith(JCRRepositoryExtension.class)
+@JCRRepositoryConfiguration(importXMLs = "data.xml")
+class TestJCRExpectations {
+
+    @Test
+    void treeUsesOneSession(final JCRRepositoryTester helper) {
+        final long sessions = helper.getMetrics().snapshot().sessions();
+        assertThat(helper).tree("/a", a -> a
+                .pathExists(".")
+                .isFolder("b")
+                .isFile("b/c")
+                .hasProperty("b/c/jcr:content", "jcr:data")
+                .hasNoProperty("b/c", "title")
+                .hasPropertyValue("b/c/jcr:content", "jcr:mimeType", "text/plain")
+                .isFolder("/a/d")
+                .pathDoesNotExist("e"));
+        assertThat(helper.getMetrics().snapshot().sessions() - sessions).isEqualTo(1);
+    }
+
+    @Test
+    void pathsExist(final JCRRepositoryTester helper) {
+        assertThat(helper)
+                .pathsExist(List.of("/a", "/a/b", "/a/b/c", "/a/d"))
+                .pathsDoNotExist(List.of("/b", "/a/c"));
+    }
+
+    @Test
+    void reportsAllFailures(final JCRRepositoryTester helper) {
+        assertThatThrownBy(() -> assertThat(helper).matches(JCRExpectations.expect()
+                .pathsExist(List.of("/a", "/x", "/y"))
+                .isFile("/a/d")
+                .hasPropertyValue("/a/b/c/jcr:content", "jcr:mimeType", "text/html")))
+                .isInstanceOf(AssertionError.class)
+                .hasMessageContaining("4 expectation(s) were not met")
+                .hasMessageContaining("Expected [/x] to exist")
+                .hasMessageContaining("Expected [/y] to exist")
+                .hasMessageContaining("[/a/d] is not a file")
+                .hasMessageContaining("equal to [text/html] but was [text/plain]");
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2025 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buralotech.oss.jcrunit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import javax.jcr.RepositoryException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(JCRRepositoryExtension.class)
+class TestJCRNodeStore {
+
+    @Test
+    @JCRRepositoryConfiguration(nodeStore = JCRNodeStore.SEGMENT, importXMLs = "data.xml")
+    void segmentNodeStore(final JCRRepositoryTester helper) throws RepositoryException, IOException {
+        verify(helper);
+    }
+
+    @Test
+    @JCRRepositoryConfiguration(nodeStore = JCRNodeStore.DOCUMENT, importXMLs = "data.xml")
+    void documentNodeStore(final JCRRepositoryTester helper) throws RepositoryException, IOException {
+        verify(helper);
+    }
+
+    @Test
+    @JCRRepositoryConfiguration(nodeStore = JCRNodeStore.SEGMENT, blobStore = JCRBlobStore.FILE, pooled = true)
+    void pooledSegmentNodeStoreWithFileBlobs(final JCRRepositoryTester helper) throws RepositoryException, IOException {
+        helper
+                .createRootFolder("txt")
+                .createFile("/txt", "data.txt", "text/plain", "UTF-8", new byte[64 * 1024]);
+        assertThat(helper)
+                .isFile("/txt/data.txt");
+    }
+
+    @Test
+    void blobDirectoryIsDeletedWithLastRepository() throws IOException {
+        final FileBlobNodeStore.BlobDirectory blobs = FileBlobNodeStore.BlobDirectory.create();
+        final Path directory = blobs.directory();
+        final String blobId = blobs.blobStore().writeBlob(new ByteArrayInputStream(new byte[64 * 1024]));
+        assertThat(blobs.blobStore().getBlobLength(blobId)).isEqualTo(64 * 1024);
+        blobs.acquire().clear();
+        assertThat(countFiles(directory)).isPositive();
+        blobs.release();
+        blobs.clear();
+        assertThat(countFiles(directory)).isZero();
+        blobs.release();
+        assertThat(directory).doesNotExist();
+    }
+
+    private static long countFiles(final Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            return paths.filter(Files::isRegularFile).count();
+        }
+    }
+
+    private static void verify(final JCRRepositoryTester helper) throws RepositoryException, IOException {
+        helper
+                .createRootFolder("txt")
+                .createFile("/txt", "data.txt", "text/plain", "UTF-8", "Hello world");
+        assertThat(helper)
+                .isFolder("/a/b")
+                .isFile("/a/b/c")
+                .isFile("/txt/data.txt");
+        try (JCRRepositoryTester fork = helper.fork()) {
+            fork.createRootFolder("fork");
+            assertThat(fork.purge(JCRPurgeScope.TEST))
+                    .isFile("/a/b/c")
+                    .isFile("/txt/data.txt")
+                    .pathDoesNotExist("/fork");
+        }
+        assertThat(helper)
+                .pathDoesNotExist("/fork");
+        assertThat(helper.purge())
+                .pathDoesNotExist("/a")
+                .pathDoesNotExist("/txt");
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2025 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.buralotech.oss.jcrunit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@JCRRepositoryConfiguration
+@ExtendWith(JCRRepositoryExtension.class)
+class TestJCRQueryAssertions {
+
+    @Test
+    @JCRRepositoryConfiguration(indexDefinitions = "index.xml")
+    void queryUsesImportedIndex(final JCRRepositoryTester helper) throws RepositoryException {
+        createContent(helper);
+        assertThat(helper).query("SELECT * FROM [nt:base] WHERE [title] = 'Hello'")
+                .usesIndex("titleIndex")
+                .doesNotTraverse()
+                .returnsCount(2)
+                .returnsPaths("/content/two", "/content/one");
+    }
+
+    @Test
+    void queryUsesCreatedIndex(final JCRRepositoryTester helper) throws RepositoryException {
+        helper.createPropertyIndex("tagIndex", "tag");
+        createContent(helper);
+        assertThat(helper).query("SELECT * FROM [nt:base] WHERE [tag] = 'blue' ORDER BY [title]")
+                .usesIndex("tagIndex")
+                .doesNotTraverse()
+                .returnsPathsInOrder("/content/three", "/content/two");
+    }
+
+    @Test
+    void propertyNamedLikeIndexIsNotMistakenForIndex(final JCRRepositoryTester helper) throws RepositoryException {
+        helper.createPropertyIndex("tagIndex", "tag");
+        createContent(helper);
+        assertThat(helper).query("SELECT * FROM [nt:base] WHERE [tag] = 'blue'")
+                .usesIndex("tagIndex");
+        assertThatThrownBy(() -> assertThat(helper).query("SELECT * FROM [nt:base] WHERE [tag] = 'blue'").usesIndex("tag"))
+                .isInstanceOf(AssertionError.class)
+                .hasMessageContaining("to use index [tag]");
+    }
+
+    @Test
+    void traversingQueryFails(final JCRRepositoryTester helper) throws RepositoryException {
+        createContent(helper);
+        assertThat(helper).query("SELECT * FROM [nt:base] WHERE [tag] = 'red'")
+                .planContains("traverse")
+                .returnsPaths("/content/one");
+        assertThatThrownBy(() -> assertThat(helper).query("SELECT * FROM [nt:base] WHERE [tag] = 'red'").doesNotTraverse())
+                .isInstanceOf(AssertionError.class)
+                .hasMessageContaining("traverse");
+        assertThatThrownBy(() -> assertThat(helper).query("SELECT * FROM [nt:base] WHERE [tag] = 'red'").usesIndex("tagIndex"))
+                .isInstanceOf(AssertionError.class);
+    }
+
+    @Test
+    @JCRRepositoryConfiguration(indexDefinitions = "index.xml", importXMLs = "data.xml")
+    void purgeKeepsIndexDefinitions(final JCRRepositoryTester helper) throws RepositoryException {
+        assertThat(helper.purge())
+                .pathDoesNotExist("/a")
+                .pathExists("/oak:index/titleIndex");
+    }
+
+    private static void createContent(final JCRRepositoryTester helper) throws RepositoryException {
+        helper.inSession(session -> {
+            final Node content = session.getRootNode().addNode("content", "nt:unstructured");
+            final Node one = content.addNode("one", "nt:unstructured");
+            one.setProperty("title", "Hello");
+            one.setProperty("tag", "red");
+            final Node two = content.addNode("two", "nt:unstructured");
+            two.setProperty("title", "Hello");
+            two.setProperty("tag", "blue");
+            final Node three = content.addNode("three", "nt:unstructured");
+            three.setProperty("title", "Goodbye");
+            three.setProperty("tag", "blue");
+            session.save();
+            return null;
+        });
+    }
+}
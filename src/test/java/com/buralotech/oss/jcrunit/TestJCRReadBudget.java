@@ -0,0 +1,121 @@
+/*
+ * Copyright 2025 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.buralotech.oss.jcrunit;
+
+import org.apache.jackrabbit.api.JackrabbitSession;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.Repository;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.SimpleCredentials;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.platform.testkit.engine.EventConditions.event;
+import static org.junit.platform.testkit.engine.EventConditions.finishedWithFailure;
+import static org.junit.platform.testkit.engine.EventConditions.test;
+import static org.junit.platform.testkit.engine.TestExecutionResultConditions.instanceOf;
+import static org.junit.platform.testkit.engine.TestExecutionResultConditions.message;
+
+@ExtendWith(JCRRepositoryExtension.class)
+@JCRRepositoryConfiguration(importXMLs = "data.xml")
+class TestJCRReadBudget {
+
+    @Test
+    @JCRReadBudget(maxNodesRead = 6, maxPropertiesRead = 1)
+    void withinBudget(final Repository repository) throws RepositoryException {
+        final Session session = login(repository);
+        try {
+            assertThat(walk(session.getNode("/a"))).isEqualTo(5);
+            assertThat(session.getNode("/a/b/c/jcr:content").getProperty("jcr:mimeType").getString()).isEqualTo("text/plain");
+        } finally {
+            session.logout();
+        }
+    }
+
+    @Test
+    void countsReads(final JCRRepositoryTester helper) throws Exception {
+        final ReadBudget budget = new ReadBudget(getClass().getDeclaredMethod("budget").getAnnotation(JCRReadBudget.class));
+        final Session session = login(budget.wrap(helper.getRepository()));
+        try {
+            assertThat(session).isInstanceOf(JackrabbitSession.class);
+            final Node a = session.getNode("/a");
+            assertThat(a.isSame(session.getNodeByIdentifier(a.getIdentifier()))).isTrue();
+            assertThat(walk(a)).isEqualTo(5);
+            assertThat(budget.nodesRead()).isEqualTo(6);
+            a.getProperty("jcr:createdBy");
+            assertThat(budget.propertiesRead()).isEqualTo(1);
+        } finally {
+            session.logout();
+        }
+        assertThatThrownBy(budget::verify)
+                .isInstanceOf(AssertionError.class)
+                .hasMessageContaining("Read 6 node(s) but the budget is 2");
+    }
+
+    @Test
+    void extensionFailsTestThatExceedsBudget() {
+        EngineTestKits.execute(OverBudget.class)
+                .testEvents()
+                .assertStatistics(stats -> stats.started(1).failed(1))
+                .assertThatEvents()
+                .haveExactly(1, event(
+                        test("readsTooMuch"),
+                        finishedWithFailure(
+                                instanceOf(AssertionError.class),
+                                message(text -> text.contains("Read 6 node(s) but the budget is 1")))));
+    }
+
+    @JCRReadBudget(maxNodesRead = 2)
+    private void budget() {
+    }
+
+    @ExtendWith(JCRRepositoryExtension.class)
+    @JCRRepositoryConfiguration(importXMLs = "data.xml")
+    @EnabledIfSystemProperty(named = EngineTestKits.ENABLED_PROPERTY, matches = "true")
+    static class OverBudget {
+
+        @Test
+        @JCRReadBudget(maxNodesRead = 1)
+        void readsTooMuch(final Repository repository) throws RepositoryException {
+            final Session session = login(repository);
+            try {
+                walk(session.getNode("/a"));
+            } finally {
+                session.logout();
+            }
+        }
+    }
+
+    private static Session login(final Repository repository) throws RepositoryException {
+        return repository.login(new SimpleCredentials("admin", "admin".toCharArray()));
+    }
+
+    private static int walk(final Node node) throws RepositoryException {
+        int count = 1;
+        for (final NodeIterator children = node.getNodes(); children.hasNext(); ) {
+            count += walk(children.nextNode());
+        }
+        return count;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2025 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buralotech.oss.jcrunit;
+
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.RepetitionInfo;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.RepositoryException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Execution(ExecutionMode.CONCURRENT)
+@ExtendWith(JCRRepositoryExtension.class)
+@JCRRepositoryConfiguration(pooled = true, importXMLs = "data.xml")
+class TestJCRRepositoryConcurrency {
+
+    private static final int REPETITIONS = 32;
+
+    private static final String PREFIX = "test";
+
+    @RepeatedTest(REPETITIONS)
+    void pooledRepositoriesAreIsolated(final JCRRepositoryTester helper,
+                                       final RepetitionInfo repetitionInfo) throws RepositoryException {
+        verifyIsolation(helper, PREFIX + repetitionInfo.getCurrentRepetition());
+    }
+
+    @RepeatedTest(REPETITIONS)
+    @JCRRepositoryConfiguration(importXMLs = "data.xml")
+    void methodScopedRepositoriesAreIsolated(final JCRRepositoryTester helper,
+                                             final RepetitionInfo repetitionInfo) throws RepositoryException {
+        verifyIsolation(helper, PREFIX + repetitionInfo.getCurrentRepetition());
+    }
+
+    private void verifyIsolation(final JCRRepositoryTester helper,
+                                 final String name) throws RepositoryException {
+        helper.tree()
+                .folder(name, folder -> folder.file("data.txt", "text/plain", "UTF-8", name))
+                .create()
+                .assertFileExists("/a/b/c")
+                .assertFileExists("/" + name + "/data.txt");
+        assertThat(helper.inSession(session -> {
+            final List<String> names = new ArrayList<>();
+            final NodeIterator nodes = session.getRootNode().getNodes();
+            while (nodes.hasNext()) {
+                final Node node = nodes.nextNode();
+                if (node.getName().startsWith(PREFIX)) {
+                    names.add(node.getName());
+                }
+            }
+            return names;
+        })).containsExactly(name);
+    }
+}
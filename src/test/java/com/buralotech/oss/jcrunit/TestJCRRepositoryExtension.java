@@ -16,11 +16,22 @@
 
 package com.buralotech.oss.jcrunit;
 
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.RepetitionInfo;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 
 import javax.jcr.*;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
 import java.util.function.Consumer;
 
 import static javax.jcr.nodetype.NodeType.NT_FILE;
@@ -105,6 +116,101 @@ class TestJCRRepositoryExtension extends AbstractJCRRepositoryTest {
                 .assertFileExists("/txt/data.txt");
     }
 
+    @Test
+    void createFileFromStringRunsCallbacks(final JCRRepositoryTester helper) throws RepositoryException, IOException {
+        helper
+                .createRootFolder("txt")
+                .createFile("/txt", DATA_TXT, "text/plain", "UTF-8", "Hello world",
+                        file -> file.addMixin("mix:title"));
+        assertThat(helper.isType("/txt/data.txt", "mix:title")).isTrue();
+    }
+
+    @Test
+    @JCRRepositoryConfiguration(blobStore = JCRBlobStore.FILE)
+    void createFileFromPath(final JCRRepositoryTester helper,
+                            @TempDir final Path directory) throws RepositoryException, IOException {
+        final byte[] data = new byte[1024 * 1024];
+        new Random(42).nextBytes(data);
+        final Path source = Files.write(directory.resolve("data.bin"), data);
+        helper
+                .createRootFolder("bin")
+                .createFile("/bin", "data.bin", "application/octet-stream", "binary", source)
+                .assertFileExists("/bin/data.bin");
+        assertThat(readFile(helper, "/bin/data.bin")).isEqualTo(data);
+    }
+
+    @Test
+    @JCRRepositoryConfiguration(blobStore = JCRBlobStore.FILE)
+    void createFileFromChannel(final JCRRepositoryTester helper) throws RepositoryException, IOException {
+        final byte[] data = "Hello world".getBytes(StandardCharsets.UTF_8);
+        try (ReadableByteChannel channel = Channels.newChannel(new ByteArrayInputStream(data))) {
+            helper
+                    .createRootFolder("txt")
+                    .createFile("/txt", DATA_TXT, "text/plain", "UTF-8", channel);
+            assertThat(channel.isOpen()).isTrue();
+        }
+        assertThat(readFile(helper, "/txt/data.txt")).isEqualTo(data);
+    }
+
+    @Test
+    @JCRRepositoryConfiguration(blobStore = JCRBlobStore.FILE)
+    void forkSharesFileBlobs(final JCRRepositoryTester helper) throws RepositoryException, IOException {
+        final byte[] data = "Hello world".getBytes(StandardCharsets.UTF_8);
+        helper
+                .createRootFolder("txt")
+                .createFile("/txt", DATA_TXT, "text/plain", "UTF-8", data);
+        try (JCRRepositoryTester fork = helper.fork()) {
+            assertThat(readFile(fork, "/txt/data.txt")).isEqualTo(data);
+        }
+    }
+
+    @Test
+    @JCRRepositoryConfiguration(importXMLs = "data.xml", cacheImports = false)
+    void metricsRecordRepositoryWork(final JCRRepositoryTester helper) throws RepositoryException, IOException {
+        final RepositoryMetrics.Snapshot before = helper.getMetrics().snapshot();
+        assertThat(before.startupNanos()).isPositive();
+        assertThat(before.importNanos()).isPositive();
+        helper
+                .createRootFolder("txt")
+                .createFile("/txt", DATA_TXT, "text/plain", "UTF-8", "Hello world");
+        final RepositoryMetrics.Snapshot after = helper.getMetrics().snapshot().minus(before);
+        assertThat(after.sessions()).isEqualTo(2);
+        assertThat(after.commits()).isEqualTo(2);
+        assertThat(after.nodesWritten()).isEqualTo(3);
+        assertThat(after.blobBytes()).isEqualTo(11);
+    }
+
+    @Test
+    @JCRRepositoryConfiguration
+    void metricsCountSessionsOpenedThroughInjectedRepository(final JCRRepositoryTester helper,
+                                                             final Repository repository) throws RepositoryException {
+        final long before = helper.getMetrics().snapshot().sessions();
+        repository.login(new SimpleCredentials("admin", "admin".toCharArray())).logout();
+        assertThat(helper.getMetrics().snapshot().sessions() - before).isEqualTo(1);
+    }
+
+    @Test
+    @JCRRepositoryConfiguration(profile = JCRRepositoryProfile.MINIMAL, importXMLs = "data.xml")
+    void minimalProfile(final JCRRepositoryTester helper) throws RepositoryException, IOException {
+        helper
+                .createRootFolder("txt")
+                .createFile("/txt", DATA_TXT, "text/plain", "UTF-8", "Hello world");
+        assertThat(helper)
+                .isFile("/a/b/c")
+                .isFile("/txt/data.txt")
+                .hasPropertyValue("/a/b/c/jcr:content", "jcr:mimeType", "text/plain");
+        assertThat(helper.purge())
+                .pathDoesNotExist("/a")
+                .pathDoesNotExist("/txt");
+    }
+
+    @Test
+    @JCRRepositoryConfiguration(profile = JCRRepositoryProfile.MINIMAL, username = USERNAME, password = PASSWORD)
+    void minimalProfileDoesNotCreateUser(final JCRRepositoryTester helper) throws RepositoryException {
+        assertThat(helper.createRootFolder("top"))
+                .isFolder("/top");
+    }
+
     @Test
     void assertFolderExistsFailsWhenFolderDoesNotExist(final JCRRepositoryTester helper) {
         assertThrows(AssertionError.class, () -> helper.assertFolderExists(DATA_FOLDER));
@@ -150,6 +256,39 @@ class TestJCRRepositoryExtension extends AbstractJCRRepositoryTest {
                 .assertFolderExists("/a/d");
     }
 
+    @RepeatedTest(2)
+    @JCRRepositoryConfiguration(importXMLs = "data.xml", cacheImports = true)
+    void cachedImportIsIndexed(final JCRRepositoryTester helper) throws RepositoryException {
+        assertThat(helper.inSession(session -> session.getNodeByIdentifier("f835e33a-10fa-409e-8a01-e16089988199").getPath()))
+                .isEqualTo("/a/b/c");
+    }
+
+    @RepeatedTest(2)
+    @JCRRepositoryConfiguration(username = USERNAME, password = PASSWORD, importXMLs = "data.xml", cacheImports = true)
+    void cachedImportIsRestored(final RepetitionInfo repetition,
+                                final JCRRepositoryTester helper) {
+        if (repetition.getCurrentRepetition() == 2) {
+            assertThat(helper.getMetrics().snapshot().nodesWritten()).isZero();
+        }
+        helper.assertFileExists("/a/b/c");
+    }
+
+    @RepeatedTest(2)
+    @JCRRepositoryConfiguration(importXMLs = {"more.xml", "data.xml"}, cacheImports = true)
+    void cachedImportOnTopOfOtherImports(final JCRRepositoryTester helper) throws RepositoryException {
+        assertThat(helper.inSession(session -> session.getNodeByIdentifier("f835e33a-10fa-409e-8a01-e16089988199").getPath()))
+                .isEqualTo("/a/b/c");
+        helper.assertFolderExists("/e/f");
+    }
+
+    @Test
+    @JCRRepositoryConfiguration(importXMLs = "data.xml", cacheImports = false)
+    void importFromXMLWithoutCache(final JCRRepositoryTester helper) {
+        helper
+                .assertFolderExists("/a")
+                .assertFileExists("/a/b/c");
+    }
+
     @Test
     @JCRRepositoryConfiguration(username = USERNAME, password = PASSWORD)
     void overrideUsernameAndPassword(final Repository repository) throws RepositoryException {
@@ -168,6 +307,39 @@ class TestJCRRepositoryExtension extends AbstractJCRRepositoryTest {
                 .pathDoesNotExist("/a/d");
     }
 
+    @Test
+    @JCRRepositoryConfiguration(importXMLs = "data.xml")
+    void purgeTestContent(final JCRRepositoryTester helper) throws RepositoryException {
+        helper.createRootFolder("top")
+                .createFolder("/a", "e");
+        assertThat(helper.purge(JCRPurgeScope.TEST))
+                .pathDoesNotExist("/top")
+                .pathDoesNotExist("/a/e")
+                .pathExists("/a/b/c")
+                .pathExists("/a/d");
+    }
+
+    @Test
+    void purgeRemovesAllNodeTypes(final JCRRepositoryTester helper) throws RepositoryException {
+        helper.inSession(session -> {
+            session.getRootNode().addNode("unstructured", "nt:unstructured");
+            session.save();
+            return null;
+        });
+        assertThat(helper.purge())
+                .pathDoesNotExist("/unstructured");
+    }
+
+    @Test
+    @JCRRepositoryConfiguration(username = USERNAME, password = PASSWORD)
+    void purgeKeepsUser(final JCRRepositoryTester helper) throws RepositoryException {
+        helper.createRootFolder("top")
+                .purge(JCRPurgeScope.ALL);
+        final Session session = helper.getRepository().login(new SimpleCredentials(USERNAME, PASSWORD.toCharArray()));
+        assertNotNull(session);
+        session.logout();
+    }
+
     @Test
     @JCRRepositoryConfiguration(importXMLs = "data.xml")
     void verifyIsType(final JCRRepositoryTester helper) throws RepositoryException {
@@ -195,6 +367,95 @@ class TestJCRRepositoryExtension extends AbstractJCRRepositoryTest {
         assertThat(helper.property("/a/d", Property.JCR_CREATED_BY)).hasValueSatisfying(property -> isEquals("admin", property::getString));
     }
 
+    @Test
+    @JCRRepositoryConfiguration(pooled = true, importXMLs = "data.xml")
+    void pooledRepositoryIsPopulated(final JCRRepositoryTester helper) throws RepositoryException {
+        helper
+                .assertFolderExists("/a")
+                .createRootFolder("pooled")
+                .assertFolderExists("/pooled");
+    }
+
+    @Test
+    @JCRRepositoryConfiguration(pooled = true, username = USERNAME, password = PASSWORD)
+    void pooledRepositoryWithUser(final JCRRepositoryTester helper) throws RepositoryException {
+        helper
+                .createRootFolder("pooled")
+                .assertFolderExists("/pooled");
+    }
+
+    @Test
+    @JCRRepositoryConfiguration(reuseSession = true, importXMLs = "data.xml")
+    void reusedSessionSeesChanges(final JCRRepositoryTester helper) throws RepositoryException {
+        final Session session = helper.inSession(s -> s);
+        helper
+                .createRootFolder("top")
+                .createFolder("/top", "sub")
+                .assertFolderExists("/top/sub")
+                .assertFileExists("/a/b/c");
+        assertThat(helper.inSession(s -> s)).isSameAs(session);
+        assertThat(helper.inSession(s -> s.nodeExists("/top/sub"))).isTrue();
+    }
+
+    @Test
+    void sessionIsNotReusedByDefault(final JCRRepositoryTester helper) throws RepositoryException {
+        assertThat(helper.inSession(s -> s)).isNotSameAs(helper.inSession(s -> s));
+    }
+
+    @Test
+    void createTree(final JCRRepositoryTester helper) throws RepositoryException {
+        helper.tree()
+                .folder("a", a -> a
+                        .folder("b", b -> b.file("c", "text/plain", "UTF-8", "Hello World"))
+                        .folder("d"))
+                .create()
+                .assertFolderExists("/a")
+                .assertFolderExists("/a/b")
+                .assertFileExists("/a/b/c")
+                .assertFolderExists("/a/d");
+    }
+
+    @Test
+    void createTreeInBatches(final JCRRepositoryTester helper) throws RepositoryException {
+        final byte[] data = generateBinaryData();
+        helper.createRootFolder("top")
+                .tree("/top")
+                .withBatchSize(2)
+                .folder("bin", bin -> {
+                    for (int i = 0; i < 5; i++) {
+                        bin.file("data" + i + ".bin", "application/octet", null, data);
+                    }
+                })
+                .create()
+                .assertFolderExists("/top/bin")
+                .assertFileExists("/top/bin/data0.bin")
+                .assertFileExists("/top/bin/data4.bin");
+    }
+
+    @Test
+    @JCRRepositoryConfiguration(importXMLs = "data.xml")
+    void forkIsIsolatedFromTemplate(final JCRRepositoryTester helper) throws RepositoryException {
+        try (final JCRRepositoryTester fork = helper.fork()) {
+            fork
+                    .assertFileExists("/a/b/c")
+                    .createRootFolder("forked");
+            helper.createRootFolder("template");
+            assertThat(fork)
+                    .pathExists("/forked")
+                    .pathDoesNotExist("/template");
+            assertThat(helper)
+                    .pathExists("/a/b/c")
+                    .pathExists("/template")
+                    .pathDoesNotExist("/forked");
+        }
+    }
+
+    @Test
+    void cannotForkExternalRepository(final Repository repository) {
+        final JCRRepositoryTester helper = new JCRRepositoryTester(repository, new SimpleCredentials("admin", "admin".toCharArray()), false);
+        assertThrows(IllegalStateException.class, helper::fork);
+    }
+
     private  <T> Consumer<T> isEquals(final T expectedValue,
                                     final JCRAssertions.ValueAccessor<T> accessor) {
         return (actual) -> {
@@ -205,4 +466,18 @@ class TestJCRRepositoryExtension extends AbstractJCRRepositoryTest {
             }
         };
     }
-}
\ No newline at end of file
+
+    private static byte[] readFile(final JCRRepositoryTester helper,
+                                   final String path) throws RepositoryException {
+        return helper.inSession(session -> {
+            final Binary binary = session.getNode(path).getNode(Node.JCR_CONTENT).getProperty(Property.JCR_DATA).getBinary();
+            try (InputStream inputStream = binary.getStream()) {
+                return inputStream.readAllBytes();
+            } catch (final IOException e) {
+                throw new RepositoryException(e);
+            } finally {
+                binary.dispose();
+            }
+        });
+    }
+}
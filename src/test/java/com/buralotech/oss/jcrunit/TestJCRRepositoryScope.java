@@ -0,0 +1,107 @@
+/*
+ * Copyright 2025 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buralotech.oss.jcrunit;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import javax.jcr.Repository;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.SimpleCredentials;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@JCRRepositoryConfiguration(scope = JCRRepositoryScope.CLASS, importXMLs = "data.xml")
+@ExtendWith(JCRRepositoryExtension.class)
+class TestJCRRepositoryScope {
+
+    private static JCRRepositoryTester classHelper;
+
+    private static JCRRepositoryTester globalHelper;
+
+    @BeforeAll
+    static void captureClassHelper(final JCRRepositoryTester helper) throws RepositoryException {
+        classHelper = helper;
+        helper.createRootFolder("shared");
+    }
+
+    @RepeatedTest(3)
+    void classScopedRepositoryIsShared(final JCRRepositoryTester helper) {
+        assertSame(classHelper, helper);
+        helper
+                .assertFolderExists("/a")
+                .assertFileExists("/a/b/c");
+    }
+
+    @Test
+    void classScopedRepositoryIsInjected(final Repository repository) throws RepositoryException {
+        classHelper.createRootFolder("injected");
+        final Session session = repository.login(new SimpleCredentials("admin", "admin".toCharArray()));
+        try {
+            assertTrue(session.nodeExists("/injected"));
+            session.removeItem("/injected");
+            session.save();
+        } finally {
+            session.logout();
+        }
+    }
+
+    @Test
+    void purgeOfSharedRepositoryOnlyRemovesContentOfCurrentTest(final JCRRepositoryTester helper) throws RepositoryException {
+        helper.createRootFolder("current");
+        helper.purge(JCRPurgeScope.TEST);
+        assertFalse(helper.exists("/current"));
+        assertTrue(helper.exists("/shared"));
+    }
+
+    @Test
+    void purgeIsRejectedWhileOtherTestsUseTheRepository() throws IOException, RepositoryException {
+        try (final JCRRepositoryTester helper = JCRRepositoryTester.createHelper("admin", "admin", false, new String[0])) {
+            helper.beginTest();
+            helper.beginTest();
+            assertThrows(IllegalStateException.class, () -> helper.purge(JCRPurgeScope.TEST));
+            helper.endTest();
+            helper.purge(JCRPurgeScope.TEST);
+        }
+    }
+
+    @Test
+    @JCRRepositoryConfiguration(importXMLs = "data.xml")
+    void methodScopedRepositoryIsNotShared(final JCRRepositoryTester helper) {
+        assertNotSame(classHelper, helper);
+        helper.assertFolderExists("/a");
+    }
+
+    @RepeatedTest(2)
+    @JCRRepositoryConfiguration(scope = JCRRepositoryScope.GLOBAL, importXMLs = "data.xml")
+    void globalScopedRepositoryIsShared(final JCRRepositoryTester helper) {
+        if (globalHelper == null) {
+            globalHelper = helper;
+        }
+        assertSame(globalHelper, helper);
+        assertNotSame(classHelper, helper);
+        helper.assertFolderExists("/a/d");
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2025 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buralotech.oss.jcrunit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.Repository;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.SimpleCredentials;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JCRRepositoryConfiguration(importXMLs = {"data.xml", "more.xml"}, lazyImports = true, cacheImports = false)
+@ExtendWith(JCRRepositoryExtension.class)
+class TestLazyImports {
+
+    @Test
+    void importFixturesOnFirstAccess(final JCRRepositoryTester helper) {
+        final long initial = helper.getMetrics().snapshot().commits();
+        assertThat(helper).isFolder("/e/f");
+        final long afterFirst = helper.getMetrics().snapshot().commits();
+        assertThat(afterFirst).isGreaterThan(initial);
+        assertThat(helper).isFolder("/e");
+        assertThat(helper.getMetrics().snapshot().commits()).isEqualTo(afterFirst);
+        assertThat(helper).isFile("/a/b/c");
+        assertThat(helper.getMetrics().snapshot().commits()).isGreaterThan(afterFirst);
+    }
+
+    @Test
+    void listingRootImportsEveryFixture(final Repository repository) throws RepositoryException {
+        final Session session = repository.login(new SimpleCredentials("admin", "admin".toCharArray()));
+        try {
+            final List<String> names = new ArrayList<>();
+            for (final NodeIterator nodes = session.getRootNode().getNodes(); nodes.hasNext(); ) {
+                names.add(nodes.nextNode().getName());
+            }
+            assertThat(names).contains("a", "e");
+        } finally {
+            session.logout();
+        }
+    }
+
+    @Test
+    void rootReachedThroughParentImportsFixtures(final Repository repository) throws RepositoryException {
+        final Session session = repository.login(new SimpleCredentials("admin", "admin".toCharArray()));
+        try {
+            final Node root = session.getNode("/e").getParent();
+            assertThat(root.hasNode("a")).isTrue();
+            assertThat(root.getNode("a/b").getParent().getParent().getNode("a/b/c").getPath()).isEqualTo("/a/b/c");
+        } finally {
+            session.logout();
+        }
+    }
+
+    @Test
+    void purgeForgetsImportedFixtures(final JCRRepositoryTester helper) throws RepositoryException {
+        assertThat(helper).isFolder("/e");
+        helper.purge(JCRPurgeScope.TEST);
+        assertThat(helper).isFolder("/e");
+        helper.purge(JCRPurgeScope.ALL);
+        assertThat(helper).pathDoesNotExist("/e");
+    }
+
+    @Test
+    @JCRRepositoryConfiguration(importXMLs = {"data.xml", "references.xml"}, lazyImports = true, importBatchSize = 1, cacheImports = false)
+    void importFixtureWithReferencesInBatches(final JCRRepositoryTester helper) throws RepositoryException {
+        assertThat(helper.inSession(session -> session.getNode("/refs/source").getProperty("target").getNode().getPath()))
+                .isEqualTo("/refs/target");
+        assertThat(helper).isFile("/a/b/c");
+    }
+
+    @Test
+    void findRootNames() throws IOException, RepositoryException {
+        final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        assertThat(LazyFixtures.rootName(classLoader, "data.xml")).isEqualTo("a");
+        assertThat(LazyFixtures.rootName(classLoader, "index.xml")).isEqualTo("titleIndex");
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2025 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buralotech.oss.jcrunit;
+
+import org.junit.jupiter.api.Test;
+
+import javax.jcr.RepositoryException;
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TestLeakDetector {
+
+    private static final String[] NO_XMLS = {};
+
+    @Test
+    void closedRepositoryIsNotReported() throws IOException, RepositoryException {
+        final long marker = LeakDetector.mark();
+        try (final JCRRepositoryTester helper = JCRRepositoryTester.createHelper("admin", "admin", false, NO_XMLS)) {
+            helper.createRootFolder("top");
+        }
+        assertThatCode(() -> LeakDetector.verify(marker)).doesNotThrowAnyException();
+    }
+
+    @Test
+    void leakedRepositoryIsReportedAndClosed() throws IOException, RepositoryException {
+        final long marker = LeakDetector.mark();
+        JCRRepositoryTester.createHelper("admin", "admin", false, NO_XMLS);
+        assertThatThrownBy(() -> LeakDetector.verify(marker))
+                .isInstanceOf(AssertionError.class)
+                .hasMessage("1 embedded JCR repository(s) outlived the test that opened them");
+        assertThatCode(() -> LeakDetector.verify(marker)).doesNotThrowAnyException();
+    }
+
+    @Test
+    void unreachableRepositoryIsReported() throws IOException, RepositoryException {
+        final long marker = LeakDetector.mark();
+        JCRRepositoryTester.createHelper("admin", "admin", false, NO_XMLS);
+        System.gc();
+        assertThatThrownBy(() -> LeakDetector.verify(marker))
+                .isInstanceOf(AssertionError.class)
+                .hasMessage("1 embedded JCR repository(s) outlived the test that opened them");
+    }
+
+    @Test
+    void repositoryOpenedBeforeTestIsExcluded() throws IOException, RepositoryException {
+        try (final JCRRepositoryTester helper = JCRRepositoryTester.createHelper("admin", "admin", false, NO_XMLS)) {
+            final long marker = LeakDetector.mark();
+            assertThatCode(() -> LeakDetector.verify(marker)).doesNotThrowAnyException();
+            assertThatCode(() -> LeakDetector.verify(marker - 1)).doesNotThrowAnyException();
+        }
+    }
+}
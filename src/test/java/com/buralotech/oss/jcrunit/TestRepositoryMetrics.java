@@ -0,0 +1,131 @@
+/*
+ * Copyright 2025 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.buralotech.oss.jcrunit;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.jcr.RepositoryException;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+class TestRepositoryMetrics {
+
+    private static final String[] NO_XMLS = {};
+
+    private JCRRepositoryTester helper;
+
+    @BeforeEach
+    void setUp() throws IOException, RepositoryException {
+        helper = JCRRepositoryTester.createHelper("admin", "admin", false, NO_XMLS);
+    }
+
+    @AfterEach
+    void tearDown() throws RepositoryException {
+        helper.close();
+    }
+
+    @Test
+    void unchangedAncestorsAreNotCounted() throws RepositoryException {
+        helper.createRootFolder("a").createFolder("/a", "b");
+        final RepositoryMetrics.Snapshot before = helper.getMetrics().snapshot();
+        helper.createFolder("/a/b", "c");
+        assertThat(helper.getMetrics().snapshot().minus(before).nodesWritten()).isEqualTo(1);
+    }
+
+    @Test
+    void changedPropertiesAreCounted() throws RepositoryException {
+        helper.createRootFolder("a");
+        final RepositoryMetrics.Snapshot before = helper.getMetrics().snapshot();
+        helper.inSession(session -> {
+            session.getNode("/a").addMixin("mix:title");
+            session.getNode("/a").setProperty("jcr:title", "A");
+            session.save();
+            return null;
+        });
+        assertThat(helper.getMetrics().snapshot().minus(before).nodesWritten()).isEqualTo(1);
+    }
+
+    @Test
+    void reportEntryListsEveryMetric() {
+        assertThat(new RepositoryMetrics.Snapshot(2_000_000, 3_000_000, 4, 5, 6, 7).toReportEntry())
+                .containsExactly(
+                        entry("jcrunit.startupMillis", "2"),
+                        entry("jcrunit.importMillis", "3"),
+                        entry("jcrunit.sessions", "4"),
+                        entry("jcrunit.commits", "5"),
+                        entry("jcrunit.nodesWritten", "6"),
+                        entry("jcrunit.blobBytes", "7"));
+    }
+
+    @Test
+    void summaryListsTotalsAndSlowestTestsFirst() {
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        final MetricsSummary summary = new MetricsSummary(new PrintStream(buffer, true, StandardCharsets.UTF_8));
+        summary.record("fast", new RepositoryMetrics.Snapshot(1_000_000, 0, 1, 1, 1, 0));
+        summary.record("slow", new RepositoryMetrics.Snapshot(5_000_000, 2_000_000, 2, 3, 4, 5));
+        summary.close();
+        final List<String> lines = buffer.toString(StandardCharsets.UTF_8).lines().toList();
+        assertThat(lines).hasSize(4);
+        assertThat(lines.get(0)).isEqualTo("JCR Unit repository metrics for 2 test(s)");
+        assertThat(lines.get(1)).startsWith("  TOTAL").endsWith("startup=6ms import=2ms sessions=3 commits=4 nodes=5 blobBytes=5");
+        assertThat(lines.get(2)).startsWith("  slow");
+        assertThat(lines.get(3)).startsWith("  fast");
+    }
+
+    @Test
+    void emptySummaryPrintsNothing() {
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        new MetricsSummary(new PrintStream(buffer, true, StandardCharsets.UTF_8)).close();
+        assertThat(buffer.size()).isZero();
+    }
+
+    @Test
+    void flightRecorderEventIsEmitted(@TempDir final Path directory) throws IOException {
+        final Path file = directory.resolve("metrics.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.buralotech.oss.jcrunit.Test");
+            recording.start();
+            RepositoryMetricsEvent.emit("[test:metrics]", new RepositoryMetrics.Snapshot(2, 3, 4, 5, 6, 7));
+            recording.stop();
+            recording.dump(file);
+        }
+        final List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        assertThat(events).hasSize(1);
+        final RecordedEvent event = events.get(0);
+        assertThat(event.getString("test")).isEqualTo("[test:metrics]");
+        assertThat(event.getDuration("startup").toNanos()).isEqualTo(2);
+        assertThat(event.getDuration("imports").toNanos()).isEqualTo(3);
+        assertThat(event.getLong("sessions")).isEqualTo(4);
+        assertThat(event.getLong("commits")).isEqualTo(5);
+        assertThat(event.getLong("nodesWritten")).isEqualTo(6);
+        assertThat(event.getLong("blobBytes")).isEqualTo(7);
+    }
+}
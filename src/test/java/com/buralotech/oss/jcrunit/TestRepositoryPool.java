@@ -0,0 +1,83 @@
+/*
+ * Copyright 2025 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buralotech.oss.jcrunit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.jcr.RepositoryException;
+import javax.jcr.SimpleCredentials;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TestRepositoryPool {
+
+    private static final SimpleCredentials CREDENTIALS = new SimpleCredentials("admin", "admin".toCharArray());
+
+    private final RepositoryPool pool = new RepositoryPool(1);
+
+    private final List<EmbeddedRepository> held = new ArrayList<>();
+
+    @AfterEach
+    void releaseRepositories() throws RepositoryException {
+        try {
+            for (final EmbeddedRepository repository : held) {
+                pool.release(repository);
+            }
+        } finally {
+            pool.clear();
+        }
+    }
+
+    @Test
+    void releasedRepositoryIsReusedAndReset() throws RepositoryException {
+        final EmbeddedRepository first = acquire();
+        new JCRRepositoryTester(first, false, CREDENTIALS, false, false)
+                .createRootFolder("top")
+                .createFolder("/top", "sub")
+                .assertFolderExists("/top/sub");
+        release(first);
+
+        final EmbeddedRepository second = acquire();
+        assertThat(second).isSameAs(first);
+        assertThat(new JCRRepositoryTester(second, false, CREDENTIALS, false, false))
+                .pathDoesNotExist("/top");
+    }
+
+    @Test
+    void repositoryIsDiscardedWhenPoolIsFull() throws RepositoryException {
+        final EmbeddedRepository first = acquire();
+        final EmbeddedRepository second = acquire();
+        release(first);
+        release(second);
+        assertThat(acquire()).isSameAs(first);
+        assertThat(acquire()).isNotSameAs(second);
+    }
+
+    private EmbeddedRepository acquire() {
+        final EmbeddedRepository repository = pool.acquire();
+        held.add(repository);
+        return repository;
+    }
+
+    private void release(final EmbeddedRepository repository) throws RepositoryException {
+        held.remove(repository);
+        pool.release(repository);
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2025 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.buralotech.oss.jcrunit;
+
+import org.apache.jackrabbit.api.JackrabbitSession;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.extension.ParameterResolutionException;
+
+import javax.jcr.Repository;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.SimpleCredentials;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.platform.testkit.engine.EventConditions.event;
+import static org.junit.platform.testkit.engine.EventConditions.finishedWithFailure;
+import static org.junit.platform.testkit.engine.EventConditions.test;
+import static org.junit.platform.testkit.engine.TestExecutionResultConditions.instanceOf;
+
+@JCRRepositoryConfiguration(username = "bob", password = "secret")
+@ExtendWith(JCRRepositoryExtension.class)
+class TestSessionInjection {
+
+    private Session beforeEachSession;
+
+    @BeforeEach
+    void captureSession(final Session session) {
+        beforeEachSession = session;
+    }
+
+    @Test
+    void injectSession(final Session session) throws RepositoryException {
+        assertThat(session.isLive()).isTrue();
+        assertThat(session.getUserID()).isEqualTo("bob");
+        assertThat(session).isSameAs(beforeEachSession);
+    }
+
+    @Test
+    void injectJackrabbitSession(final JackrabbitSession session) throws RepositoryException {
+        assertThat(session.getUserManager()).isNotNull();
+    }
+
+    @Test
+    void injectSessionForUser(final Session session,
+                              @JCRSessionUser(username = "admin", password = "admin") final Session adminSession) {
+        assertThat(session.getUserID()).isEqualTo("bob");
+        assertThat(adminSession.getUserID()).isEqualTo("admin");
+        assertThat(adminSession).isNotSameAs(session);
+    }
+
+    @Test
+    void logoutLiveSessions(final JCRRepositoryTester helper) throws RepositoryException {
+        final SessionTracker tracker = new SessionTracker(new RepositoryMetrics());
+        final Session live = tracker.wrap(helper.getRepository()).login(new SimpleCredentials("admin", "admin".toCharArray()));
+        final Session closed = tracker.wrap(helper.getRepository()).login(new SimpleCredentials("admin", "admin".toCharArray()));
+        closed.logout();
+        assertThat(tracker.logoutLive()).isEqualTo(1);
+        assertThat(live.isLive()).isFalse();
+    }
+
+    @Test
+    void extensionLogsOutLeakedSession() {
+        final Logger logger = Logger.getLogger(JCRRepositoryExtension.class.getName());
+        final List<LogRecord> records = new CopyOnWriteArrayList<>();
+        final Handler handler = new Handler() {
+            @Override
+            public void publish(final LogRecord record) {
+                records.add(record);
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        logger.addHandler(handler);
+        try {
+            EngineTestKits.execute(LeaksSession.class)
+                    .testEvents()
+                    .assertStatistics(stats -> stats.started(1).succeeded(1));
+        } finally {
+            logger.removeHandler(handler);
+        }
+        assertThat(LeaksSession.leaked.isLive()).isFalse();
+        assertThat(records).anySatisfy(record -> {
+            assertThat(record.getLevel()).isEqualTo(Level.WARNING);
+            assertThat(record.getMessage()).contains("were still live");
+            assertThat(record.getParameters()).contains(1, "LeaksSession");
+        });
+    }
+
+    @Test
+    void sessionsAreKeyedByCredentials() {
+        EngineTestKits.execute(WrongPassword.class)
+                .testEvents()
+                .assertStatistics(stats -> stats.started(1).failed(1))
+                .assertThatEvents()
+                .haveExactly(1, event(
+                        test("loginWithWrongPassword"),
+                        finishedWithFailure(instanceOf(ParameterResolutionException.class))));
+    }
+
+    @ExtendWith(JCRRepositoryExtension.class)
+    @JCRRepositoryConfiguration
+    @EnabledIfSystemProperty(named = EngineTestKits.ENABLED_PROPERTY, matches = "true")
+    static class LeaksSession {
+
+        static Session leaked;
+
+        @Test
+        void leakSession(final Repository repository) throws RepositoryException {
+            leaked = repository.login(new SimpleCredentials("admin", "admin".toCharArray()));
+        }
+    }
+
+    @ExtendWith(JCRRepositoryExtension.class)
+    @JCRRepositoryConfiguration
+    @EnabledIfSystemProperty(named = EngineTestKits.ENABLED_PROPERTY, matches = "true")
+    static class WrongPassword {
+
+        @Test
+        void loginWithWrongPassword(@JCRSessionUser(username = "admin", password = "admin") final Session session,
+                                    @JCRSessionUser(username = "admin", password = "wrong") final Session other) {
+        }
+    }
+}
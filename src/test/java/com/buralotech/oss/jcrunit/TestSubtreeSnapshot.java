@@ -0,0 +1,105 @@
+/*
+ * Copyright 2025 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.buralotech.oss.jcrunit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.jcr.RepositoryException;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@ExtendWith(JCRRepositoryExtension.class)
+@JCRRepositoryConfiguration(importXMLs = "data.xml")
+class TestSubtreeSnapshot {
+
+    @Test
+    void snapshotIsCanonical(final JCRRepositoryTester helper) throws RepositoryException, IOException {
+        final StringWriter writer = new StringWriter();
+        helper.snapshot("/a", SubtreeSnapshot.VOLATILE_PROPERTIES, writer);
+        assertThat(writer.toString().split("\n"))
+                .hasSize(5)
+                .satisfies(lines -> assertThat(lines[0]).startsWith("{\"path\":\"/\",\"primaryType\":\"nt:folder\""))
+                .satisfies(lines -> assertThat(lines[1]).startsWith("{\"path\":\"/b\","))
+                .satisfies(lines -> assertThat(lines[2]).startsWith("{\"path\":\"/b/c\","))
+                .satisfies(lines -> assertThat(lines[3])
+                        .startsWith("{\"path\":\"/b/c/jcr:content\",")
+                        .contains("\"jcr:mimeType\":{\"type\":\"String\",\"value\":\"text/plain\"}")
+                        .containsPattern("\"jcr:data\":\\{\"type\":\"Binary\",\"value\":\"\\d+:sha256:[0-9a-f]{64}\"}")
+                        .doesNotContain("jcr:lastModified"))
+                .satisfies(lines -> assertThat(lines[4]).startsWith("{\"path\":\"/d\","));
+    }
+
+    @Test
+    void subtreeMatchesSnapshot(final JCRRepositoryTester helper,
+                                @TempDir final Path directory) throws RepositoryException, IOException {
+        final Path snapshot = directory.resolve("a.json");
+        try (Writer writer = Files.newBufferedWriter(snapshot, StandardCharsets.UTF_8)) {
+            helper.snapshot("/a", SubtreeSnapshot.VOLATILE_PROPERTIES, writer);
+        }
+        helper.purge(JCRPurgeScope.ALL).importFromXML("data.xml");
+        assertThat(helper).subtreeMatchesSnapshot("/a", snapshot.toString());
+    }
+
+    @Test
+    void subtreeDoesNotMatchSnapshot(final JCRRepositoryTester helper,
+                                     @TempDir final Path directory) throws RepositoryException, IOException {
+        final Path snapshot = directory.resolve("a.json");
+        try (Writer writer = Files.newBufferedWriter(snapshot, StandardCharsets.UTF_8)) {
+            helper.snapshot("/a", SubtreeSnapshot.VOLATILE_PROPERTIES, writer);
+        }
+        helper.inSession(session -> {
+            session.getNode("/a/d").remove();
+            session.getNode("/a/b/c/jcr:content").setProperty("jcr:mimeType", "text/html");
+            session.getNode("/a").addNode("e", "nt:folder");
+            session.save();
+            return null;
+        });
+        assertThatThrownBy(() -> assertThat(helper).subtreeMatchesSnapshot("/a", snapshot.toString()))
+                .isInstanceOf(AssertionError.class)
+                .hasMessageContaining("Changed [/b/c/jcr:content]")
+                .hasMessageContaining("Missing [/d]")
+                .hasMessageContaining("Unexpected [/e]");
+    }
+
+    @Test
+    void ignoredPropertiesAreLeftOut(final JCRRepositoryTester helper) throws RepositoryException, IOException {
+        final StringWriter writer = new StringWriter();
+        helper.snapshot("/a/b/c", Set.of("jcr:mimeType"), writer);
+        assertThat(writer.toString())
+                .doesNotContain("jcr:mimeType")
+                .contains("jcr:created");
+    }
+
+    @Test
+    void missingSnapshotFails(final JCRRepositoryTester helper,
+                              @TempDir final Path directory) {
+        assertThatThrownBy(() -> assertThat(helper).subtreeMatchesSnapshot("/a", directory.resolve("missing.json").toString()))
+                .isInstanceOf(AssertionError.class)
+                .hasMessageContaining(SubtreeSnapshot.UPDATE_PROPERTY);
+    }
+}